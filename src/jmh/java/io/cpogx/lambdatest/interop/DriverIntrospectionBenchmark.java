@@ -0,0 +1,100 @@
+package io.cpogx.lambdatest.interop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session id lookup on a driver that only exposes its id through an inherited private field:
+ * the per-call reflective walk the interop used to do, the cached per-class plan, and the per-instance cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DriverIntrospectionBenchmark {
+
+    private FieldDriver driver;
+
+    @Setup
+    public void setUp() {
+        driver = new FieldDriver();
+        driver.remoteSession = "0f3c9a2e-session";
+    }
+
+    @Benchmark
+    public String reflectiveScan() {
+        String fromMethod = invokeNoArgMethod(driver, "getSessionId");
+        return fromMethod != null ? fromMethod : findSessionIdField(driver);
+    }
+
+    @Benchmark
+    public String cachedPlan() {
+        return LambdaDriverIntrospection.resolveSessionId(driver);
+    }
+
+    @Benchmark
+    public String instanceCache() {
+        return LambdaDriverIntrospection.sessionId(driver);
+    }
+
+    private static String invokeNoArgMethod(Object target, String methodName) {
+        try {
+            Method method = target.getClass().getMethod(methodName);
+            Object value = method.invoke(target);
+            return value == null ? null : value.toString();
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private static String findSessionIdField(Object target) {
+        Class<?> type = target.getClass();
+        while (type != null && type != Object.class) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!field.getName().toLowerCase(Locale.ROOT).contains("session")) {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    Object value = field.get(target);
+                    if (value != null) {
+                        return value.toString();
+                    }
+                } catch (Exception ignored) {
+                    // continue scanning fields
+                }
+            }
+            type = type.getSuperclass();
+        }
+        return null;
+    }
+
+    static class BaseDriver {
+
+        private final String browser = "chrome";
+        private final int timeout = 30_000;
+        String remoteSession;
+    }
+
+    static final class FieldDriver extends BaseDriver {
+
+        private final String name = "scenario";
+        private final Object options = new Object();
+        private final Object http = new Object();
+    }
+}
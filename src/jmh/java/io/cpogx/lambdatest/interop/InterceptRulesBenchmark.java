@@ -0,0 +1,51 @@
+package io.cpogx.lambdatest.interop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intercept rule normalization: one mock rule (JSON body serialized), one redirect, and a whole rule set as a
+ * scenario registers it (served from the compiled-set cache after the first call).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterceptRulesBenchmark {
+
+    private final Map<String, Object> mock = Map.of("url", "https://api.example.com/v1/profile", "method", "GET",
+            "response", Map.of("status", 200, "headers", Map.of("content-type", "application/json"),
+                    "body", Map.of("id", 42, "name", "bench", "roles", List.of("admin", "viewer"))));
+    private final Map<String, Object> redirect = Map.of("url", "https://cdn.example.com/app.js",
+            "redirectUrl", "https://cdn.example.com/app.mock.js");
+    private final List<Map<String, Object>> ruleSet = List.of(mock, redirect,
+            Map.of("url", "https://metrics.example.com/collect", "errorCode", "Failed"));
+
+    @Benchmark
+    public LambdaInterceptRules.Rule compileMockRule() {
+        return LambdaInterceptRules.compileRule(mock);
+    }
+
+    @Benchmark
+    public LambdaInterceptRules.Rule compileRedirectRule() {
+        return LambdaInterceptRules.compileRule(redirect);
+    }
+
+    @Benchmark
+    public LambdaInterceptRules compileRuleSet() {
+        return LambdaInterceptRules.compile(ruleSet);
+    }
+}
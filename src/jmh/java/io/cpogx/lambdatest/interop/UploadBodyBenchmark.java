@@ -0,0 +1,86 @@
+package io.cpogx.lambdatest.interop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code /se/file} request body (zip, base64, JSON) for one file, by size and type: {@code csv} is deflated,
+ * {@code mp4} is stored as-is. The body goes to a counting sink, so only the encoding is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UploadBodyBenchmark {
+
+    @Param({"4096", "1048576", "16777216"})
+    public int size;
+
+    @Param({"csv", "mp4"})
+    public String type;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("upload-bench-", "." + type);
+        byte[] bytes = new byte[size];
+        if ("csv".equals(type)) {
+            byte[] row = "2024-01-01,order-000123,customer@example.com,19.99,EUR\n".getBytes();
+            for (int i = 0; i < size; i++) {
+                bytes[i] = row[i % row.length];
+            }
+        } else {
+            new Random(7).nextBytes(bytes);
+        }
+        Files.write(file, bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long writeBody() throws IOException {
+        CountingSink sink = new CountingSink();
+        LambdaUploadStream.writeBody(List.of(file), sink);
+        return sink.count;
+    }
+
+    private static final class CountingSink extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
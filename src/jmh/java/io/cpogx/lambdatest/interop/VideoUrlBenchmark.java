@@ -0,0 +1,76 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Video URL lookup in session payloads shaped like the LambdaTest API: the URL sits under {@code data}, after
+ * {@code depth} levels of artifacts and metadata. Parsing the whole body into maps is compared with streaming out
+ * only the {@code url}-style fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VideoUrlBenchmark {
+
+    @Param({"2", "8", "24"})
+    public int depth;
+
+    private static final Set<String> VIDEO_PATHS = Set.of("url", "video_url", "data.url", "data.video_url");
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> leaf = new LinkedHashMap<>();
+        leaf.put("status", "completed");
+        Map<String, Object> current = leaf;
+        for (int level = 0; level < depth; level++) {
+            Map<String, Object> parent = new LinkedHashMap<>();
+            parent.put("meta", Map.of("level", level, "browser", "chrome", "platform", "win11", "duration", 73));
+            List<Object> artifacts = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                artifacts.add(Map.of("name", "log-" + i, "url", "https://example.invalid/logs/" + level + "/" + i + ".json"));
+            }
+            parent.put("artifacts", artifacts);
+            parent.put("data", current);
+            current = parent;
+        }
+        Map<String, Object> data = new LinkedHashMap<>(current);
+        data.put("video_url", "https://automation-prod-user-videos.lambdatest.com/orgs/1/sessions/abc/video.mp4");
+        body = Json.of(Map.of("status", "success", "data", data)).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object parseTree() {
+        return Json.of(new String(body, StandardCharsets.UTF_8)).get("$.data.video_url");
+    }
+
+    @Benchmark
+    public String streamFields() throws IOException {
+        return LambdaApiClient.videoUrl(LambdaApiFields.read(new ByteArrayInputStream(body), VIDEO_PATHS));
+    }
+}
@@ -0,0 +1,60 @@
+package io.cpogx.lambdatest.spring;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-scenario target work: building the session capabilities in {@code start} and parsing Karate properties into
+ * a target (done once per matrix cell, but on the suite's startup path).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DriverTargetBenchmark {
+
+    private Map<String, String> properties;
+    private LambdaDriverTarget target;
+
+    @Setup
+    public void setUp() {
+        properties = new LinkedHashMap<>();
+        properties.put("karate.driver.type", "chromedriver");
+        properties.put("karate.grid.url", "https://hub.lambdatest.com/wd/hub");
+        properties.put("karate.browser.name", "Chrome");
+        properties.put("karate.browser.version", "latest");
+        properties.put("karate.platform.name", "Windows 11");
+        properties.put("lt.username", "bench-user");
+        properties.put("lt.accessKey", "bench-key");
+        properties.put("lt.project", "lambda-karate-lt");
+        properties.put("lt.build", "nightly-2000");
+        properties.put("lt.tags", "smoke,lambda,nightly,regression");
+        properties.put("lt.tunnel.name", "bench-tunnel");
+        properties.put("lt.user.files", "a.csv,b.pdf,c.png");
+        target = LambdaDriverTarget.fromKarateProperties(properties);
+    }
+
+    @Benchmark
+    public Map<String, Object> startCapabilities() {
+        return target.start(null);
+    }
+
+    @Benchmark
+    public LambdaDriverTarget fromKarateProperties() {
+        return LambdaDriverTarget.fromKarateProperties(properties);
+    }
+}
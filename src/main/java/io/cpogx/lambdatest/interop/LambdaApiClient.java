@@ -0,0 +1,647 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Long-lived client for the LambdaTest automation REST API.
+ * One {@link HttpClient} (connection pool, HTTP/2) is shared by every credential pair; each instance
+ * carries its precomputed {@code Authorization} header. The typed {@code *Async} calls stream only the fields they
+ * need out of the response, keep up to {@code lt.api.parallelism} (8) requests in flight and fail with a
+ * {@link LambdaApiException} carrying the HTTP status.
+ */
+public final class LambdaApiClient {
+
+    static final String DEFAULT_LT_API_BASE_URL = "https://api.lambdatest.com/automation/api/v1";
+
+    private static final String[] VIDEO_URL_FIELDS = {"url", "video_url", "download_url", "videoUrl"};
+    private static final String[] LOG_TYPES = {"command", "console", "network", "selenium"};
+    private static final Set<String> SESSION_FIELDS = Set.of("session_id", "test_id", "build_id", "build_name", "name",
+            "status_ind", "browser", "platform", "video_url", "command_logs_url", "console_logs_url", "network_logs_url",
+            "selenium_logs_url");
+    private static final Set<String> VIDEO_PATHS = paths(Set.of(VIDEO_URL_FIELDS), "", "data.");
+    private static final Set<String> SESSION_PATHS = union(paths(SESSION_FIELDS, "data."), VIDEO_PATHS);
+    private static final int ERROR_BODY_LIMIT = 512;
+
+    private static final Map<String, LambdaApiClient> SHARED = new ConcurrentHashMap<>();
+    private static volatile HttpClient sharedHttpClient;
+
+    private final HttpClient httpClient;
+    private final String apiBaseUrl;
+    private final String username;
+    private final String accessKey;
+    private final String authorization;
+    private final Duration requestTimeout;
+    private final Duration videoTimeout;
+    private final LambdaAsyncPermits inFlight;
+    private volatile boolean videoUrlFromSessionDetails;
+
+    public LambdaApiClient(HttpClient httpClient,
+                           String apiBaseUrl,
+                           String username,
+                           String accessKey,
+                           Duration requestTimeout,
+                           Duration videoTimeout) {
+        if (httpClient == null) {
+            throw new IllegalArgumentException("httpClient is required");
+        }
+        this.httpClient = httpClient;
+        this.apiBaseUrl = stripTrailingSlash(apiBaseUrl == null || apiBaseUrl.isBlank()
+                ? DEFAULT_LT_API_BASE_URL
+                : apiBaseUrl.trim());
+        this.username = username;
+        this.accessKey = accessKey;
+        this.authorization = basicAuthValue(username, accessKey);
+        this.requestTimeout = requestTimeout;
+        this.videoTimeout = videoTimeout;
+        this.inFlight = new LambdaAsyncPermits((int) Math.min(256L, readLong("lt.api.parallelism", 8L)));
+    }
+
+    /**
+     * Returns the process-wide client for the configured API base URL and the given credentials.
+     */
+    public static LambdaApiClient shared(String username, String accessKey) {
+        String apiBaseUrl = configuredApiBaseUrl();
+        String cacheKey = apiBaseUrl + '\n' + username + '\n' + accessKey;
+        return SHARED.computeIfAbsent(cacheKey, ignored -> new LambdaApiClient(
+                sharedHttpClient(),
+                apiBaseUrl,
+                username,
+                accessKey,
+                Duration.ofMillis(readLong("lt.api.request-timeout-ms", 30_000L)),
+                Duration.ofMillis(readLong("lt.api.video-timeout-ms", 300_000L))));
+    }
+
+    static String configuredApiBaseUrl() {
+        String apiBase = trimToNull(System.getProperty("lt.api.base.url"));
+        if (apiBase == null) {
+            apiBase = trimToNull(System.getenv("LT_API_BASE_URL"));
+        }
+        return apiBase == null ? DEFAULT_LT_API_BASE_URL : apiBase;
+    }
+
+    static HttpClient sharedHttpClient() {
+        HttpClient current = sharedHttpClient;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LambdaApiClient.class) {
+            if (sharedHttpClient == null) {
+                boolean http2 = !"false".equalsIgnoreCase(trimToNull(System.getProperty("lt.api.http2")));
+                sharedHttpClient = HttpClient.newBuilder()
+                        .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .connectTimeout(Duration.ofMillis(readLong("lt.api.connect-timeout-ms", 10_000L)))
+                        .build();
+            }
+            return sharedHttpClient;
+        }
+    }
+
+    public String apiBaseUrl() {
+        return apiBaseUrl;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String accessKey() {
+        return accessKey;
+    }
+
+    /**
+     * Whether this account last got its video URL from the session details rather than the video endpoint; the
+     * poller asks that endpoint first.
+     */
+    boolean videoUrlFromSessionDetails() {
+        return videoUrlFromSessionDetails;
+    }
+
+    void videoUrlFromSessionDetails(boolean fromDetails) {
+        this.videoUrlFromSessionDetails = fromDetails;
+    }
+
+    public URI sessionUri(String sessionId) {
+        return apiUri("/sessions/" + URLEncoder.encode(sessionId, StandardCharsets.UTF_8));
+    }
+
+    public URI sessionVideoUri(String sessionId) {
+        return apiUri("/sessions/" + URLEncoder.encode(sessionId, StandardCharsets.UTF_8) + "/video");
+    }
+
+    URI apiUri(String path) {
+        try {
+            URI uri = URI.create(apiBaseUrl + path);
+            return uri.isAbsolute() ? uri : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Request builder for API endpoints, with the shared auth header and API timeout applied.
+     */
+    public HttpRequest.Builder apiRequest(URI uri) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).header("Authorization", authorization);
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        return builder;
+    }
+
+    /**
+     * Request builder for video downloads. Credentials embedded in the URL (LambdaTest bundler links)
+     * are moved into the {@code Authorization} header.
+     */
+    public HttpRequest.Builder videoRequest(URI uri) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(withoutUserInfo(uri))
+                .header("Authorization", videoAuthValue(uri));
+        if (videoTimeout != null) {
+            builder.timeout(videoTimeout);
+        }
+        return builder;
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        return httpClient.send(request, handler);
+    }
+
+    /**
+     * {@code PATCH /sessions/{id}} with the given fields (e.g. {@code name}, {@code tags}, {@code status_ind});
+     * returns {@code true} on a 2xx response.
+     */
+    public boolean updateSession(String sessionId, Map<String, Object> fields) {
+        URI uri = sessionUri(sessionId);
+        if (uri == null || fields == null || fields.isEmpty()) {
+            return false;
+        }
+        HttpRequest request = apiRequest(uri)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(Json.of(fields).toString(), StandardCharsets.UTF_8))
+                .build();
+        try {
+            int status = send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parallel session limit of the account ({@code GET /org/concurrency}), or {@code 0} when it cannot be read.
+     */
+    public int concurrencyLimit() {
+        URI uri = apiUri("/org/concurrency");
+        if (uri == null) {
+            return 0;
+        }
+        HttpRequest request = apiRequest(uri).header("Accept", "application/json").GET().build();
+        try {
+            HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != 200) {
+                return 0;
+            }
+            Object limit = Json.of(response.body()).getFirst("$..max_concurrency");
+            return limit == null ? 0 : Integer.parseInt(String.valueOf(limit).trim());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Uploads one file to the account's user storage ({@code POST /user-files}, multipart field {@code files}), where
+     * sessions can reference it through {@code lambda:userFiles}. Bounded by {@code lt.user.files.timeout-ms} (300000).
+     */
+    public void uploadUserFile(Path file) {
+        URI uri = apiUri("/user-files");
+        if (uri == null) {
+            throw new IllegalArgumentException("invalid LambdaTest API base URL: " + apiBaseUrl);
+        }
+        String boundary = "lambda-" + UUID.randomUUID();
+        String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"" + file.getFileName() + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String tail = "\r\n--" + boundary + "--\r\n";
+        HttpResponse<String> response;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Authorization", authorization)
+                    .header("Accept", "application/json")
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .timeout(Duration.ofMillis(Math.max(1L, readLong("lt.user.files.timeout-ms", 300_000L))))
+                    .POST(HttpRequest.BodyPublishers.concat(
+                            HttpRequest.BodyPublishers.ofString(head, StandardCharsets.UTF_8),
+                            HttpRequest.BodyPublishers.ofFile(file),
+                            HttpRequest.BodyPublishers.ofString(tail, StandardCharsets.UTF_8)))
+                    .build();
+            response = send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("user file upload interrupted: " + file.getFileName(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("user file upload failed: " + file.getFileName(), e);
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new RuntimeException("user file upload failed: status=" + response.statusCode()
+                    + ", file=" + file.getFileName() + ", body=" + response.body());
+        }
+    }
+
+    /**
+     * {@code GET /sessions/{id}}.
+     */
+    public CompletableFuture<Session> sessionAsync(String sessionId) {
+        return getAsync("session", sessionUri(sessionId), SESSION_PATHS, null, Set.of(),
+                fields -> Session.from(field -> fields.get("data." + field), videoUrl(fields)));
+    }
+
+    /**
+     * {@code GET /sessions/{id}/video}; completes with {@code null} while the response carries no MP4 link yet.
+     */
+    public CompletableFuture<String> sessionVideoUrlAsync(String sessionId) {
+        return getAsync("sessionVideo", sessionVideoUri(sessionId), VIDEO_PATHS, null, Set.of(), LambdaApiClient::videoUrl);
+    }
+
+    /**
+     * {@code GET /builds/{id}}.
+     */
+    public CompletableFuture<Build> buildAsync(String buildId) {
+        return getAsync("build", apiUri("/builds/" + encode(buildId)),
+                Set.of("data.name", "data.status_ind"), null, Set.of(),
+                fields -> new Build(buildId, fields.get("data.name"), fields.get("data.status_ind")));
+    }
+
+    /**
+     * One page of {@code GET /sessions?build_id=..&limit=..&offset=..}.
+     */
+    public CompletableFuture<SessionPage> buildSessionsAsync(String buildId, int limit, int offset) {
+        if (limit <= 0 || offset < 0) {
+            throw new IllegalArgumentException("limit must be positive and offset not negative");
+        }
+        URI uri = apiUri("/sessions?build_id=" + encode(buildId) + "&limit=" + limit + "&offset=" + offset);
+        return getAsync("buildSessions", uri, Set.of("meta.result_set.total"), "data", SESSION_FIELDS, fields -> {
+            List<Session> sessions = new ArrayList<>();
+            for (Map<String, String> item : fields.items()) {
+                String itemVideoUrl = mp4Url(item.get("video_url"));
+                sessions.add(Session.from(item::get, itemVideoUrl));
+            }
+            return new SessionPage(sessions, fields.getLong("meta.result_set.total", -1L));
+        });
+    }
+
+    /**
+     * Streams {@code GET /sessions/{id}/log/{type}} ({@code command}, {@code console}, {@code network},
+     * {@code selenium}) to {@code target} and completes with it.
+     */
+    public CompletableFuture<Path> sessionLogAsync(String sessionId, String type, Path target) {
+        String logType = trimToNull(type);
+        if (logType == null || !List.of(LOG_TYPES).contains(logType.toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("log type must be one of " + List.of(LOG_TYPES) + ": " + type);
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("log target path is required");
+        }
+        URI uri = apiUri("/sessions/" + encode(sessionId) + "/log/" + logType.toLowerCase(Locale.ROOT));
+        return sendAsync("sessionLog", uri, body -> {
+            Path file = target.toAbsolutePath().normalize();
+            Path partial = file.resolveSibling(file.getFileName() + ".part");
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            long bytes = Files.copy(body, partial, StandardCopyOption.REPLACE_EXISTING);
+            LambdaMetrics.payload("sessionLog", "response", bytes);
+            Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        });
+    }
+
+    private <T> CompletableFuture<T> getAsync(String operation, URI uri, Set<String> paths, String itemsPath,
+                                              Set<String> itemFields, Function<LambdaApiFields, T> mapper) {
+        return sendAsync(operation, uri, body -> mapper.apply(LambdaApiFields.read(body, paths, itemsPath, itemFields)));
+    }
+
+    private <T> CompletableFuture<T> sendAsync(String operation, URI uri, BodyReader<T> reader) {
+        if (uri == null) {
+            throw new IllegalArgumentException("invalid LambdaTest API URL for " + operation + ": " + apiBaseUrl);
+        }
+        HttpRequest request = apiRequest(uri).header("Accept", "application/json").GET().build();
+        return inFlight.submit(() -> {
+            long startedAt = System.nanoTime();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).whenComplete((response, error) -> {
+                int status = response == null ? 0 : response.statusCode();
+                try {
+                    if (error != null) {
+                        throw LambdaApiException.unwrap(operation, error);
+                    }
+                    try (InputStream body = response.body()) {
+                        if (status < 200 || status >= 300) {
+                            long retryAfterMs = LambdaVideoPollPolicy.parseRetryAfterMs(
+                                    response.headers().firstValue("Retry-After").orElse(null));
+                            String text = new String(body.readNBytes(ERROR_BODY_LIMIT), StandardCharsets.UTF_8);
+                            throw new LambdaApiException(operation, status, retryAfterMs,
+                                    operation + " failed: status=" + status + ", uri=" + uri + ", body=" + text, null);
+                        }
+                        result.complete(reader.read(body));
+                    }
+                } catch (LambdaApiException e) {
+                    result.completeExceptionally(e);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(new LambdaApiException(operation, status, 0L,
+                            operation + " failed: status=" + status + ", uri=" + uri + ", error=" + e, e));
+                } finally {
+                    LambdaMetrics.call(operation, null, status, startedAt);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * First absolute MP4 link among the {@code url}-style fields at the top level or under {@code data}.
+     */
+    static String videoUrl(LambdaApiFields fields) {
+        for (String prefix : new String[]{"", "data."}) {
+            for (String field : VIDEO_URL_FIELDS) {
+                String candidate = mp4Url(fields.get(prefix + field));
+                if (candidate != null) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String mp4Url(String value) {
+        String candidate = trimToNull(value);
+        if (candidate == null || !candidate.toLowerCase(Locale.ROOT).contains(".mp4")) {
+            return null;
+        }
+        try {
+            return URI.create(candidate).isAbsolute() ? candidate : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> paths(Set<String> fields, String... prefixes) {
+        Set<String> paths = new HashSet<>();
+        for (String prefix : prefixes) {
+            for (String field : fields) {
+                paths.add(prefix + field);
+            }
+        }
+        return Set.copyOf(paths);
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        Set<String> paths = new HashSet<>(first);
+        paths.addAll(second);
+        return Set.copyOf(paths);
+    }
+
+    private static String encode(String value) {
+        String text = trimToNull(value);
+        if (text == null) {
+            throw new IllegalArgumentException("id is required");
+        }
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    private String videoAuthValue(URI uri) {
+        String fromUserInfo = uri == null ? null : basicAuthValue(uri.getUserInfo());
+        return fromUserInfo == null ? authorization : fromUserInfo;
+    }
+
+    /**
+     * Basic auth header for URL userinfo ({@code user:key}, URL-encoded), or {@code null} if it is incomplete.
+     */
+    static String basicAuthValue(String rawUserInfo) {
+        String userInfo = trimToNull(rawUserInfo);
+        if (userInfo != null) {
+            int delimiter = userInfo.indexOf(':');
+            if (delimiter > 0 && delimiter < userInfo.length() - 1) {
+                String user = URLDecoder.decode(userInfo.substring(0, delimiter), StandardCharsets.UTF_8);
+                String key = URLDecoder.decode(userInfo.substring(delimiter + 1), StandardCharsets.UTF_8);
+                if (!user.isBlank() && !key.isBlank()) {
+                    return basicAuthValue(user, key);
+                }
+            }
+        }
+        return null;
+    }
+
+    static URI withoutUserInfo(URI uri) {
+        if (uri == null || uri.getUserInfo() == null) {
+            return uri;
+        }
+        try {
+            return new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(),
+                    uri.getPath(), uri.getQuery(), uri.getFragment());
+        } catch (Exception e) {
+            return uri;
+        }
+    }
+
+    private static String basicAuthValue(String username, String accessKey) {
+        String userPass = username + ":" + accessKey;
+        return "Basic " + Base64.getEncoder().encodeToString(userPass.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String stripTrailingSlash(String value) {
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = trimToNull(System.getProperty(property));
+        if (raw == null) {
+            return fallback;
+        }
+        try {
+            long value = Long.parseLong(raw);
+            return value > 0 ? value : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * The fields of a LambdaTest session this project reads.
+     */
+    public static final class Session {
+
+        private final String sessionId;
+        private final String buildId;
+        private final String buildName;
+        private final String name;
+        private final String status;
+        private final String browser;
+        private final String platform;
+        private final String videoUrl;
+        private final Map<String, String> logUrls;
+
+        public Session(String sessionId, String buildId, String buildName, String name, String status,
+                       String browser, String platform, String videoUrl, Map<String, String> logUrls) {
+            this.sessionId = sessionId;
+            this.buildId = buildId;
+            this.buildName = buildName;
+            this.name = name;
+            this.status = status;
+            this.browser = browser;
+            this.platform = platform;
+            this.videoUrl = videoUrl;
+            this.logUrls = logUrls == null ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(logUrls));
+        }
+
+        private static Session from(Function<String, String> field, String videoUrl) {
+            Map<String, String> logUrls = new LinkedHashMap<>();
+            for (String type : LOG_TYPES) {
+                String url = trimToNull(field.apply(type + "_logs_url"));
+                if (url != null) {
+                    logUrls.put(type, url);
+                }
+            }
+            String sessionId = trimToNull(field.apply("session_id"));
+            return new Session(sessionId == null ? trimToNull(field.apply("test_id")) : sessionId,
+                    trimToNull(field.apply("build_id")), field.apply("build_name"), field.apply("name"),
+                    field.apply("status_ind"), field.apply("browser"), field.apply("platform"), videoUrl, logUrls);
+        }
+
+        public String sessionId() {
+            return sessionId;
+        }
+
+        public String buildId() {
+            return buildId;
+        }
+
+        public String buildName() {
+            return buildName;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String status() {
+            return status;
+        }
+
+        public String browser() {
+            return browser;
+        }
+
+        public String platform() {
+            return platform;
+        }
+
+        /**
+         * Absolute MP4 link, or {@code null} while the video is not ready.
+         */
+        public String videoUrl() {
+            return videoUrl;
+        }
+
+        /**
+         * Log links by type ({@code command}, {@code console}, {@code network}, {@code selenium}).
+         */
+        public Map<String, String> logUrls() {
+            return logUrls;
+        }
+    }
+
+    public static final class Build {
+
+        private final String buildId;
+        private final String name;
+        private final String status;
+
+        public Build(String buildId, String name, String status) {
+            this.buildId = buildId;
+            this.name = name;
+            this.status = status;
+        }
+
+        public String buildId() {
+            return buildId;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public String status() {
+            return status;
+        }
+    }
+
+    /**
+     * One page of sessions plus the total across all pages ({@code -1} when the API did not report it).
+     */
+    public static final class SessionPage {
+
+        private final List<Session> sessions;
+        private final long total;
+
+        public SessionPage(List<Session> sessions, long total) {
+            this.sessions = sessions == null ? List.of() : List.copyOf(sessions);
+            this.total = total;
+        }
+
+        public List<Session> sessions() {
+            return sessions;
+        }
+
+        public long total() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.cpogx.lambdatest.interop;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Failed LambdaTest API call: the HTTP status ({@code 0} when the request never got a response), the operation and
+ * the {@code Retry-After} delay the API asked for, if any.
+ */
+public final class LambdaApiException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String operation;
+    private final int status;
+    private final long retryAfterMs;
+
+    public LambdaApiException(String operation, int status, long retryAfterMs, String message, Throwable cause) {
+        super(message, cause);
+        this.operation = operation;
+        this.status = status;
+        this.retryAfterMs = Math.max(0L, retryAfterMs);
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public long retryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /**
+     * 401 or 403: the credentials are wrong, retrying will not help.
+     */
+    public boolean isUnauthorized() {
+        return status == 401 || status == 403;
+    }
+
+    public boolean isNotFound() {
+        return status == 404;
+    }
+
+    /**
+     * 429, or a 503 that came with {@code Retry-After}.
+     */
+    public boolean isRateLimited() {
+        return status == 429 || (status == 503 && retryAfterMs > 0L);
+    }
+
+    public boolean isServerError() {
+        return status >= 500;
+    }
+
+    public boolean isTransportError() {
+        return status == 0;
+    }
+
+    /**
+     * The {@link LambdaApiException} behind a failed future, or a transport-level one for any other cause.
+     */
+    public static LambdaApiException unwrap(String operation, Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof LambdaApiException apiException) {
+            return apiException;
+        }
+        return new LambdaApiException(operation, 0, 0L, operation + " failed: " + cause, cause);
+    }
+}
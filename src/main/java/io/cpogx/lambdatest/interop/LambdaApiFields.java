@@ -0,0 +1,163 @@
+package io.cpogx.lambdatest.interop;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming field extraction for LambdaTest API responses: only the requested dotted paths (e.g.
+ * {@code data.video_url}) are materialized, every other subtree is skipped token by token. Arrays are transparent,
+ * except {@code itemsPath}, whose objects are read as one record each.
+ */
+final class LambdaApiFields {
+
+    private static final JsonFactory JSON = JsonFactory.builder().build();
+
+    private final Map<String, String> fields;
+    private final List<Map<String, String>> items;
+
+    private LambdaApiFields(Map<String, String> fields, List<Map<String, String>> items) {
+        this.fields = Collections.unmodifiableMap(fields);
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    static LambdaApiFields read(InputStream in, Set<String> paths) throws IOException {
+        return read(in, paths, null, Set.of());
+    }
+
+    /**
+     * Reads the scalar values at {@code paths} (first occurrence wins) and, when {@code itemsPath} is set, the
+     * {@code itemFields} of every object in that array.
+     */
+    static LambdaApiFields read(InputStream in, Set<String> paths, String itemsPath, Set<String> itemFields) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        List<Map<String, String>> items = new ArrayList<>();
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != null) {
+                new Walk(paths, itemsPath, itemFields, fields, items).value(parser, "");
+            }
+        }
+        return new LambdaApiFields(fields, items);
+    }
+
+    String get(String path) {
+        return fields.get(path);
+    }
+
+    /**
+     * First non-blank value among {@code paths}.
+     */
+    String first(String... paths) {
+        for (String path : paths) {
+            String value = fields.get(path);
+            if (value != null && !value.isBlank()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    long getLong(String path, long fallback) {
+        String value = fields.get(path);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    List<Map<String, String>> items() {
+        return items;
+    }
+
+    private static final class Walk {
+
+        private final Set<String> paths;
+        private final String itemsPath;
+        private final Set<String> itemFields;
+        private final Map<String, String> fields;
+        private final List<Map<String, String>> items;
+
+        private Walk(Set<String> paths, String itemsPath, Set<String> itemFields,
+                     Map<String, String> fields, List<Map<String, String>> items) {
+            this.paths = paths;
+            this.itemsPath = itemsPath;
+            this.itemFields = itemFields;
+            this.fields = fields;
+            this.items = items;
+        }
+
+        private void value(JsonParser parser, String path) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String child = path.isEmpty() ? parser.currentName() : path + "." + parser.currentName();
+                    parser.nextToken();
+                    if (wanted(child)) {
+                        value(parser, child);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (token == JsonToken.START_ARRAY) {
+                boolean records = path.equals(itemsPath);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (records && parser.currentToken() == JsonToken.START_OBJECT) {
+                        Map<String, String> item = new LinkedHashMap<>();
+                        record(parser, "", item);
+                        items.add(item);
+                    } else if (records) {
+                        parser.skipChildren();
+                    } else {
+                        value(parser, path);
+                    }
+                }
+            } else if (token != null && token.isScalarValue() && token != JsonToken.VALUE_NULL && paths.contains(path)) {
+                fields.putIfAbsent(path, parser.getValueAsString());
+            }
+        }
+
+        private void record(JsonParser parser, String path, Map<String, String> item) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String child = path.isEmpty() ? parser.currentName() : path + "." + parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT && prefixOf(child, itemFields)) {
+                    record(parser, child, item);
+                } else if (token.isScalarValue() && token != JsonToken.VALUE_NULL && itemFields.contains(child)) {
+                    item.putIfAbsent(child, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        private boolean wanted(String path) {
+            if (paths.contains(path) || prefixOf(path, paths)) {
+                return true;
+            }
+            return itemsPath != null && (itemsPath.equals(path) || itemsPath.startsWith(path + "."));
+        }
+
+        private static boolean prefixOf(String path, Set<String> candidates) {
+            String prefix = path + ".";
+            for (String candidate : candidates) {
+                if (candidate.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
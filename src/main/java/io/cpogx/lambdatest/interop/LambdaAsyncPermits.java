@@ -0,0 +1,62 @@
+package io.cpogx.lambdatest.interop;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of a {@link java.util.concurrent.Semaphore} for async HTTP calls: a call that finds no free
+ * permit is queued and started by the release of an earlier one, so neither callers nor {@code HttpClient} threads
+ * ever wait for a permit.
+ */
+final class LambdaAsyncPermits {
+
+    private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    LambdaAsyncPermits(int permits) {
+        this.available = Math.max(1, permits);
+    }
+
+    /**
+     * Starts {@code call} once a permit is free and returns the permit when the call's future completes.
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        return acquire().thenCompose(ignored -> {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+            return future.whenComplete((result, error) -> release());
+        });
+    }
+
+    private CompletableFuture<Void> acquire() {
+        synchronized (waiters) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.addLast(waiter);
+            return waiter;
+        }
+    }
+
+    private void release() {
+        CompletableFuture<Void> next;
+        synchronized (waiters) {
+            next = waiters.pollFirst();
+            if (next == null) {
+                available++;
+                return;
+            }
+        }
+        // the permit passes straight to the next queued call
+        next.complete(null);
+    }
+}
@@ -0,0 +1,44 @@
+package io.cpogx.lambdatest.interop;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter, capped at a maximum interval; a longer server {@code Retry-After} wins.
+ */
+public final class LambdaBackoff {
+
+    private final long intervalMs;
+    private final long maxIntervalMs;
+    private final double multiplier;
+    private final double jitter;
+
+    public LambdaBackoff(long intervalMs, long maxIntervalMs, double multiplier, double jitter) {
+        if (intervalMs < 1 || maxIntervalMs < intervalMs) {
+            throw new IllegalArgumentException("backoff interval must be >= 1 and <= max interval");
+        }
+        if (multiplier < 1.0d) {
+            throw new IllegalArgumentException("backoff multiplier must be >= 1");
+        }
+        if (jitter < 0.0d || jitter >= 1.0d) {
+            throw new IllegalArgumentException("backoff jitter must be in [0, 1)");
+        }
+        this.intervalMs = intervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Delay before the attempt following {@code attempt} (zero-based).
+     */
+    public long delayMs(int attempt, long retryAfterMs) {
+        double base = intervalMs * Math.pow(multiplier, Math.max(0, attempt));
+        long capped = (long) Math.min(base, maxIntervalMs);
+        long jittered = capped;
+        if (jitter > 0.0d) {
+            double factor = 1.0d + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+            jittered = Math.max(1L, Math.round(capped * factor));
+        }
+        return Math.max(jittered, Math.max(0L, retryAfterMs));
+    }
+}
@@ -0,0 +1,564 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.intuit.karate.driver.WebDriver;
+import io.cpogx.lambdatest.session.LambdaSessionBroker;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One WebDriver BiDi websocket per session, opened on first use: commands, event subscriptions and network
+ * interception share the connection instead of going through per-command HTTP calls.
+ * Event queues are bounded and overflow per subscription (the newest or the oldest event is dropped), so a slow
+ * consumer never holds back command replies, intercepts or other subscriptions, and never grows the heap.
+ * The socket URL is {@code lt.bidi.url} ({@code {sessionId}} is replaced) or the Grid's
+ * {@code ws(s)://<hub host>/session/<id>/se/bidi}.
+ */
+public final class LambdaBidiChannel implements AutoCloseable {
+
+    private static final Map<String, LambdaBidiChannel> CHANNELS = new ConcurrentHashMap<>();
+    private static final long DEFAULT_COMMAND_TIMEOUT_MS = 30_000L;
+    private static final long DEFAULT_CONNECT_TIMEOUT_MS = 15_000L;
+    private static final int DEFAULT_EVENT_CAPACITY = 1_000;
+
+    private final String sessionId;
+    private final long commandTimeoutMs;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Map<String, LambdaInterceptRules.Rule> intercepts = new ConcurrentHashMap<>();
+    private final Object sendLock = new Object();
+
+    private volatile WebSocket socket;
+    private volatile boolean closed;
+    private volatile boolean interceptEventsSubscribed;
+    private CompletableFuture<?> sendChain = CompletableFuture.completedFuture(null);
+
+    private LambdaBidiChannel(String sessionId, long commandTimeoutMs) {
+        this.sessionId = sessionId;
+        this.commandTimeoutMs = commandTimeoutMs;
+    }
+
+    /**
+     * The session's channel, connecting on first use.
+     */
+    public static LambdaBidiChannel forDriver(Object driverRef) {
+        if (!(driverRef instanceof WebDriver webDriver)) {
+            throw new IllegalArgumentException("expected com.intuit.karate.driver.WebDriver but got: "
+                    + (driverRef == null ? "null" : driverRef.getClass().getName()));
+        }
+        return forSession(webDriver.getHttp().urlBase, webDriver.getSessionId());
+    }
+
+    static LambdaBidiChannel forSession(String webDriverUrl, String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) {
+            throw new IllegalArgumentException("bidi needs a started session");
+        }
+        while (true) {
+            LambdaBidiChannel channel = CHANNELS.get(sessionId);
+            if (channel != null) {
+                if (!channel.closed) {
+                    return channel;
+                }
+                CHANNELS.remove(sessionId, channel);
+                continue;
+            }
+            // connected outside the map, so a slow handshake does not block other sessions' lookups
+            LambdaBidiChannel connected = connect(webDriverUrl, sessionId);
+            if (CHANNELS.putIfAbsent(sessionId, connected) == null) {
+                return connected;
+            }
+            connected.close();
+        }
+    }
+
+    /**
+     * Closes the session's channel if one was opened; called before the session is quit.
+     */
+    public static void closeSession(String sessionId) {
+        LambdaBidiChannel channel = sessionId == null ? null : CHANNELS.remove(sessionId);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    static URI webSocketUrl(String webDriverUrl, String sessionId) {
+        String template = trimToNull(System.getProperty("lt.bidi.url"));
+        if (template != null) {
+            return URI.create(template.replace("{sessionId}", sessionId));
+        }
+        URI base = URI.create(webDriverUrl);
+        String scheme = "https".equalsIgnoreCase(base.getScheme()) ? "wss" : "ws";
+        String port = base.getPort() < 0 ? "" : ":" + base.getPort();
+        return URI.create(scheme + "://" + base.getHost() + port + "/session/" + sessionId + "/se/bidi");
+    }
+
+    private static LambdaBidiChannel connect(String webDriverUrl, String sessionId) {
+        // pooled and look-ahead sessions run through the local broker, which only forwards plain HTTP
+        String gridUrl = LambdaSessionBroker.upstreamUrl(webDriverUrl);
+        URI base = URI.create(gridUrl);
+        URI url = webSocketUrl(gridUrl, sessionId);
+        LambdaBidiChannel channel = new LambdaBidiChannel(sessionId, readLong("lt.bidi.command-timeout-ms", DEFAULT_COMMAND_TIMEOUT_MS));
+        WebSocket.Builder builder = LambdaApiClient.sharedHttpClient().newWebSocketBuilder()
+                .connectTimeout(Duration.ofMillis(readLong("lt.bidi.connect-timeout-ms", DEFAULT_CONNECT_TIMEOUT_MS)));
+        if (base.getUserInfo() != null) {
+            builder.header("Authorization", LambdaApiClient.basicAuthValue(base.getUserInfo()));
+        }
+        try {
+            channel.socket = builder.buildAsync(url, channel.new Listener()).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw new RuntimeException("bidi connect failed: url=" + url + ", error=" + cause.getMessage(), cause);
+        }
+        return channel;
+    }
+
+    public String sessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Sends a command and waits for its result ({@code lt.bidi.command-timeout-ms}).
+     */
+    public Map<String, Object> send(String method, Map<String, Object> params) {
+        return await(method, sendAsync(method, params));
+    }
+
+    public CompletableFuture<Map<String, Object>> sendAsync(String method, Map<String, Object> params) {
+        return dispatch(method, params, new CompletableFuture<>());
+    }
+
+    /**
+     * Sends with a caller-made future, so stages attached to it before the call run on the listener thread ahead of
+     * the next incoming frame.
+     */
+    private CompletableFuture<Map<String, Object>> dispatch(String method, Map<String, Object> params,
+                                                            CompletableFuture<Map<String, Object>> future) {
+        if (method == null || method.isBlank()) {
+            throw new IllegalArgumentException("bidi method is required");
+        }
+        if (closed) {
+            future.completeExceptionally(new IllegalStateException("bidi channel closed: session=" + sessionId));
+            return future;
+        }
+        long id = ids.incrementAndGet();
+        Map<String, Object> command = new LinkedHashMap<>();
+        command.put("id", id);
+        command.put("method", method);
+        command.put("params", params == null ? Collections.emptyMap() : params);
+        pending.put(id, future);
+        String text = Json.of(command).toString();
+        // a websocket accepts the next message only after the previous one is out
+        synchronized (sendLock) {
+            sendChain = sendChain
+                    .handle((ignored, error) -> null)
+                    .thenCompose(ignored -> socket.sendText(text, true))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            pending.remove(id);
+                            future.completeExceptionally(error);
+                        }
+                    });
+        }
+        return future;
+    }
+
+    /**
+     * Subscribes to events or whole modules (e.g. {@code network}). A full queue drops the oldest event when
+     * {@code dropOldest} is true, otherwise the new one; {@link Subscription#dropped()} counts both.
+     */
+    public Subscription subscribe(List<String> events, int capacity, boolean dropOldest) {
+        if (events == null || events.isEmpty()) {
+            throw new IllegalArgumentException("bidi events are required");
+        }
+        Subscription subscription = new Subscription(this, List.copyOf(events), Math.max(1, capacity), dropOldest);
+        subscriptions.add(subscription);
+        try {
+            Map<String, Object> result = send("session.subscribe", Map.of("events", subscription.events));
+            subscription.remoteId = trimToNull(result.get("subscription"));
+        } catch (RuntimeException e) {
+            subscriptions.remove(subscription);
+            throw e;
+        }
+        return subscription;
+    }
+
+    /**
+     * Subscription with {@code lt.bidi.event-capacity} (1000) and {@code lt.bidi.overflow} ({@code drop-newest}, the
+     * default, or {@code drop-oldest}).
+     */
+    public Subscription subscribe(List<String> events) {
+        String overflow = trimToNull(System.getProperty("lt.bidi.overflow"));
+        boolean dropOldest = "drop-oldest".equalsIgnoreCase(overflow) || "drop".equalsIgnoreCase(overflow);
+        return subscribe(events, (int) readLong("lt.bidi.event-capacity", DEFAULT_EVENT_CAPACITY), dropOldest);
+    }
+
+    /**
+     * Registers a {@code network.addIntercept} for the rule (same shape as {@link LambdaInterceptRules#compileRule})
+     * and answers the blocked requests from this channel; returns the intercept id.
+     */
+    public String intercept(Map<String, Object> rule) {
+        LambdaInterceptRules.Rule compiled = LambdaInterceptRules.compileRule(rule);
+        if (!interceptEventsSubscribed) {
+            send("session.subscribe", Map.of("events", List.of("network.beforeRequestSent")));
+            interceptEventsSubscribed = true;
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("phases", List.of("beforeRequestSent"));
+        params.put("urlPatterns", List.of(urlPattern(compiled.url())));
+        // registered before the listener reads on, so a request blocked right away is answered too
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        CompletableFuture<String> registered = result.thenApply(value -> {
+            String id = trimToNull(value.get("intercept"));
+            if (id != null) {
+                intercepts.put(id, compiled);
+            }
+            return id;
+        });
+        dispatch("network.addIntercept", params, result);
+        String id = await("network.addIntercept", registered);
+        if (id == null) {
+            throw new RuntimeException("bidi network.addIntercept returned no intercept id");
+        }
+        return id;
+    }
+
+    /**
+     * Waits up to {@code lt.bidi.command-timeout-ms} for a command's result, or for a stage attached to it.
+     */
+    private <T> T await(String method, CompletableFuture<T> future) {
+        try {
+            return future.get(commandTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("bidi " + method + " timed out after " + commandTimeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("bidi " + method + " interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    public void removeIntercept(String interceptId) {
+        if (intercepts.remove(interceptId) != null) {
+            send("network.removeIntercept", Map.of("intercept", interceptId));
+        }
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        shutdown(new IllegalStateException("bidi channel closed: session=" + sessionId));
+        WebSocket current = socket;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(error -> null);
+        }
+    }
+
+    private void shutdown(Throwable reason) {
+        closed = true;
+        CHANNELS.remove(sessionId, this);
+        pending.values().forEach(future -> future.completeExceptionally(reason));
+        pending.clear();
+        subscriptions.forEach(Subscription::markClosed);
+        subscriptions.clear();
+    }
+
+    private void onMessage(String text) {
+        Map<String, Object> message = Json.of(text).asMap();
+        Object id = message.get("id");
+        if (id != null && !"event".equals(message.get("type"))) {
+            CompletableFuture<Map<String, Object>> future = pending.remove(((Number) id).longValue());
+            if (future != null) {
+                if ("error".equals(message.get("type"))) {
+                    future.completeExceptionally(new RuntimeException("bidi command failed: error="
+                            + message.get("error") + ", message=" + message.get("message")));
+                } else {
+                    Map<String, Object> result = toMap(message.get("result"));
+                    future.complete(result == null ? Collections.emptyMap() : result);
+                }
+            }
+            socket.request(1);
+            return;
+        }
+        String method = trimToNull(message.get("method"));
+        if (method == null) {
+            socket.request(1);
+            return;
+        }
+        Map<String, Object> params = toMap(message.get("params"));
+        if ("network.beforeRequestSent".equals(method) && params != null) {
+            answerIntercept(params);
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("method", method);
+        event.put("params", params == null ? Collections.emptyMap() : params);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(method)) {
+                subscription.offer(event);
+            }
+        }
+        socket.request(1);
+    }
+
+    private void answerIntercept(Map<String, Object> params) {
+        if (!Boolean.TRUE.equals(params.get("isBlocked")) || !(params.get("intercepts") instanceof List<?> ids)) {
+            return;
+        }
+        LambdaInterceptRules.Rule rule = null;
+        for (Object id : ids) {
+            rule = id == null ? null : intercepts.get(id.toString());
+            if (rule != null) {
+                break;
+            }
+        }
+        Map<String, Object> request = toMap(params.get("request"));
+        if (rule == null || request == null || request.get("request") == null) {
+            return;
+        }
+        String requestId = request.get("request").toString();
+        Object method = rule.args().get("method");
+        if (method != null && !method.toString().equalsIgnoreCase(String.valueOf(request.get("method")))) {
+            sendAsync("network.continueRequest", Map.of("request", requestId));
+            return;
+        }
+        switch (rule.command()) {
+            case "lt:intercept:redirect" -> sendAsync("network.continueRequest",
+                    Map.of("request", requestId, "url", rule.args().get("redirectUrl")));
+            case "lt:intercept:error" -> sendAsync("network.failRequest", Map.of("request", requestId));
+            default -> sendAsync("network.provideResponse", provideResponse(requestId, toMap(rule.args().get("response"))));
+        }
+    }
+
+    /**
+     * A BiDi {@code pattern} URL pattern for the rule's URL: the given protocol, host, port, path and query must
+     * match, parts the URL leaves out match anything.
+     */
+    static Map<String, Object> urlPattern(String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("intercept rule url is not a valid URL: " + url, e);
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            throw new IllegalArgumentException("intercept rule url must be absolute: " + url);
+        }
+        Map<String, Object> pattern = new LinkedHashMap<>();
+        pattern.put("type", "pattern");
+        pattern.put("protocol", uri.getScheme());
+        pattern.put("hostname", uri.getHost());
+        if (uri.getPort() >= 0) {
+            pattern.put("port", String.valueOf(uri.getPort()));
+        }
+        if (uri.getRawPath() != null && !uri.getRawPath().isEmpty()) {
+            pattern.put("pathname", uri.getRawPath());
+        }
+        if (uri.getRawQuery() != null) {
+            pattern.put("search", uri.getRawQuery());
+        }
+        return pattern;
+    }
+
+    private static Map<String, Object> provideResponse(String requestId, Map<String, Object> response) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("request", requestId);
+        params.put("statusCode", response.get("status"));
+        Map<String, Object> headers = toMap(response.get("headers"));
+        if (headers != null) {
+            List<Map<String, Object>> list = new ArrayList<>();
+            headers.forEach((name, value) -> list.add(Map.of("name", name,
+                    "value", Map.of("type", "string", "value", String.valueOf(value)))));
+            params.put("headers", list);
+        }
+        if (response.get("body") != null) {
+            params.put("body", Map.of("type", "string", "value", response.get("body").toString()));
+        }
+        return params;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(Object value) {
+        return value instanceof Map<?, ?> ? (Map<String, Object>) value : null;
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = trimToNull(System.getProperty(property));
+        if (raw == null) {
+            return fallback;
+        }
+        try {
+            long value = Long.parseLong(raw);
+            return value > 0 ? value : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String trimToNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * A bounded event queue for one {@code session.subscribe} call.
+     */
+    public static final class Subscription implements AutoCloseable {
+
+        private final LambdaBidiChannel channel;
+        private final List<String> events;
+        private final BlockingQueue<Map<String, Object>> queue;
+        private final boolean dropOldest;
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile String remoteId;
+        private volatile boolean closed;
+
+        private Subscription(LambdaBidiChannel channel, List<String> events, int capacity, boolean dropOldest) {
+            this.channel = channel;
+            this.events = events;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.dropOldest = dropOldest;
+        }
+
+        /**
+         * Next event ({@code method}, {@code params}), or {@code null} after {@code timeoutMs}.
+         */
+        public Map<String, Object> poll(long timeoutMs) throws InterruptedException {
+            return queue.poll(Math.max(0L, timeoutMs), TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Everything queued right now.
+         */
+        public List<Map<String, Object>> drain() {
+            List<Map<String, Object>> out = new ArrayList<>();
+            queue.drainTo(out);
+            return out;
+        }
+
+        public long received() {
+            return received.get();
+        }
+
+        public long dropped() {
+            return dropped.get();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            markClosed();
+            channel.subscriptions.remove(this);
+            if (channel.isOpen()) {
+                channel.sendAsync("session.unsubscribe", remoteId != null
+                        ? Map.of("subscriptions", List.of(remoteId))
+                        : Map.of("events", events));
+            }
+        }
+
+        private void markClosed() {
+            closed = true;
+        }
+
+        private boolean matches(String method) {
+            for (String event : events) {
+                if (method.equals(event) || method.startsWith(event + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void offer(Map<String, Object> event) {
+            if (closed) {
+                return;
+            }
+            if (queue.offer(event)) {
+                received.incrementAndGet();
+                return;
+            }
+            if (!dropOldest) {
+                dropped.incrementAndGet();
+                return;
+            }
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            received.incrementAndGet();
+        }
+    }
+
+    private final class Listener implements WebSocket.Listener {
+
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            socket = webSocket;
+            webSocket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (!last) {
+                webSocket.request(1);
+                return null;
+            }
+            String text = partial.toString();
+            partial.setLength(0);
+            try {
+                onMessage(text);
+            } catch (RuntimeException e) {
+                // not a BiDi message; skip it
+                webSocket.request(1);
+            }
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            shutdown(new IllegalStateException("bidi channel closed by remote: status=" + statusCode + ", reason=" + reason));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            shutdown(error);
+        }
+    }
+}
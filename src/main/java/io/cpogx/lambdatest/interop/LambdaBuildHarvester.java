@@ -0,0 +1,416 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * End-of-suite artifact collection ({@code -Dlt.video.harvest=build}, the default for suites that run with
+ * {@link LambdaSuiteHook}; without the hook the scenarios fall back to {@link LambdaVideoHarvester}): the finalizer
+ * only registers each scenario's session, then the hook calls {@link #harvest(String, long)} once. It lists the build's sessions
+ * page by page, asks for the video of sessions the listing has no link for yet, and downloads videos plus
+ * {@code lt.harvest.logs} logs with up to {@code lt.harvest.parallelism} (4) sessions in flight. Files land at the
+ * session-keyed paths the scenario already embedded; {@value #INDEX_FILE} maps them back to the scenarios.
+ * {@code -Dlt.video.harvest=session} keeps the per-scenario polling of {@link LambdaVideoHarvester}.
+ */
+public final class LambdaBuildHarvester {
+
+    public static final String INDEX_FILE = "lambdatest-artifacts.json";
+
+    private static final String SESSION_LOG_DIR = "lambdatest-logs";
+    private static final String DEFAULT_LOG_TYPES = "command,console";
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int VIDEO_ATTEMPTS = 3;
+    private static final long DEFAULT_TIMEOUT_MS = 600_000L;
+    private static final LambdaBuildHarvester SHARED = new LambdaBuildHarvester();
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final Map<String, Map<String, Entry>> registered = new ConcurrentHashMap<>();
+
+    LambdaBuildHarvester() {
+    }
+
+    public static LambdaBuildHarvester shared() {
+        return SHARED;
+    }
+
+    /**
+     * {@code true} unless {@code -Dlt.video.harvest=session}.
+     */
+    public static boolean enabled() {
+        String raw = System.getProperty("lt.video.harvest");
+        return raw == null || !"session".equalsIgnoreCase(raw.trim());
+    }
+
+    /**
+     * {@code true} when the sessions of the suite writing to {@code reportDir} are collected here: build mode is on
+     * and a {@link LambdaSuiteHook} will harvest the report dir when the suite ends.
+     */
+    public boolean collects(String reportDir) {
+        return enabled() && LambdaSuiteHook.isAttached(reportDir);
+    }
+
+    /**
+     * Log types fetched per session ({@code lt.harvest.logs}, default {@code command,console}; {@code none} for
+     * videos only).
+     */
+    public static List<String> logTypes() {
+        String raw = System.getProperty("lt.harvest.logs");
+        String value = raw == null || raw.isBlank() ? DEFAULT_LOG_TYPES : raw.trim();
+        List<String> types = new ArrayList<>();
+        if (!"none".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+            for (String type : value.split(",")) {
+                if (!type.isBlank()) {
+                    types.add(type.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return types;
+    }
+
+    static String logRelativePath(String sessionId, String type) {
+        return SESSION_LOG_DIR + "/" + sessionId.replaceAll("[^A-Za-z0-9._-]", "_") + "/" + type + ".log";
+    }
+
+    /**
+     * Remembers a finished scenario's session for the harvest of the suite writing to {@code reportDir}.
+     */
+    public void register(String reportDir, String sessionId, String scenario, String username, String accessKey) {
+        if (reportDir == null || sessionId == null || username == null || accessKey == null) {
+            throw new IllegalArgumentException("reportDir, sessionId and credentials are required");
+        }
+        // in registration order, so the build is looked up from the suite's first session
+        registered.computeIfAbsent(reportDir, ignored -> Collections.synchronizedMap(new LinkedHashMap<>()))
+                .put(sessionId, new Entry(sessionId, scenario, username, accessKey));
+    }
+
+    public int registeredCount(String reportDir) {
+        Map<String, Entry> entries = registered.get(reportDir);
+        return entries == null ? 0 : entries.size();
+    }
+
+    /**
+     * {@link #harvest(String, long)} bounded by {@code lt.video.drain.timeout-ms} (600000).
+     */
+    public Map<String, Object> harvest(String reportDir) {
+        return harvest(reportDir, readLong("lt.video.drain.timeout-ms", DEFAULT_TIMEOUT_MS));
+    }
+
+    /**
+     * Collects the artifacts of every session registered for {@code reportDir}, writes {@value #INDEX_FILE} and
+     * returns {@code sessions}, {@code videos}, {@code logs}, {@code missing} and {@code totalMs}. The accounts are
+     * looked up concurrently; whatever is not downloaded within {@code timeoutMs} is left out of the index.
+     */
+    public Map<String, Object> harvest(String reportDir, long timeoutMs) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        Map<String, Entry> removed = reportDir == null ? null : registered.remove(reportDir);
+        if (removed != null) {
+            synchronized (removed) {
+                entries.putAll(removed);
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (entries.isEmpty()) {
+            summary.put("sessions", 0);
+            return summary;
+        }
+        Map<String, List<Entry>> byAccount = new LinkedHashMap<>();
+        entries.values().forEach(entry -> byAccount.computeIfAbsent(entry.username + '\n' + entry.accessKey,
+                ignored -> new ArrayList<>()).add(entry));
+        Path root = Path.of(reportDir).toAbsolutePath().normalize();
+        List<String> logTypes = logTypes();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                (int) Math.min(entries.size(), readLong("lt.harvest.parallelism", DEFAULT_PARALLELISM)), runnable -> {
+                    Thread thread = new Thread(runnable, "lambda-harvest-" + THREADS.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ExecutorService locators = Executors.newFixedThreadPool(byAccount.size(), runnable -> {
+            Thread thread = new Thread(runnable, "lambda-harvest-locate-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<Void>> downloads = new CopyOnWriteArrayList<>();
+        try {
+            List<CompletableFuture<Void>> lookups = new ArrayList<>();
+            for (List<Entry> accountEntries : byAccount.values()) {
+                Entry first = accountEntries.get(0);
+                LambdaApiClient client = LambdaApiClient.shared(first.username, first.accessKey);
+                lookups.add(CompletableFuture.runAsync(() -> locateVideos(client, accountEntries, deadline,
+                        entry -> downloads.add(CompletableFuture.runAsync(() -> collect(client, entry, root, logTypes), executor))),
+                        locators));
+            }
+            // the downloads list is complete once every lookup has ended
+            if (await(lookups, deadline)) {
+                await(downloads, deadline);
+            }
+        } finally {
+            locators.shutdownNow();
+            executor.shutdownNow();
+        }
+        List<Map<String, Object>> index = new ArrayList<>();
+        int videos = 0;
+        int logs = 0;
+        for (Entry entry : entries.values()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sessionId", entry.sessionId);
+            row.put("scenario", entry.scenario);
+            row.put("buildId", entry.buildId);
+            row.put("video", entry.video);
+            row.put("logs", new LinkedHashMap<>(entry.logs));
+            index.add(row);
+            videos += entry.video == null ? 0 : 1;
+            logs += entry.logs.size();
+        }
+        writeIndex(root.resolve(INDEX_FILE), index);
+        long endedAt = System.nanoTime();
+        LambdaTrace.complete("buildHarvest", "video", startedAt, endedAt, Map.of("sessions", entries.size()));
+        summary.put("sessions", entries.size());
+        summary.put("videos", videos);
+        summary.put("logs", logs);
+        summary.put("missing", entries.size() - videos);
+        summary.put("totalMs", TimeUnit.NANOSECONDS.toMillis(endedAt - startedAt));
+        return summary;
+    }
+
+    /**
+     * Waits for {@code futures} until {@code deadline}; {@code false} when time ran out or the thread was interrupted.
+     */
+    private static boolean await(List<CompletableFuture<Void>> futures, long deadline) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            // a failed lookup or download only leaves its sessions out of the index
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds video links for {@code entries} and hands each entry to {@code ready} as soon as it has one; gives up on
+     * the rest at the poll deadline ({@code lt.video.poll.*}) or {@code harvestDeadline}, whichever comes first. The
+     * sessions were quit before the harvest, so the first lookup runs right away instead of after
+     * {@code lt.video.poll.initial-delay-ms}.
+     */
+    private static void locateVideos(LambdaApiClient client, List<Entry> entries, long harvestDeadline,
+                                     Consumer<Entry> ready) {
+        LambdaVideoPollPolicy policy = LambdaVideoPollPolicy.fromSystemProperties();
+        long pollDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.deadlineMs());
+        long deadline = pollDeadline - harvestDeadline < 0L ? pollDeadline : harvestDeadline;
+        Map<String, Entry> waiting = new LinkedHashMap<>();
+        entries.forEach(entry -> waiting.put(entry.sessionId, entry));
+        String buildId = buildId(client, entries);
+        for (int round = 0; ; round++) {
+            long retryAfterMs = 0L;
+            Set<String> listed = Set.of();
+            try {
+                if (buildId != null) {
+                    listed = listBuild(client, buildId, waiting, ready);
+                }
+            } catch (RuntimeException e) {
+                LambdaApiException error = LambdaApiException.unwrap("buildSessions", e);
+                if (error.isUnauthorized()) {
+                    return;
+                }
+                retryAfterMs = error.retryAfterMs();
+            }
+            // listed sessions without a video are simply not ready yet; only the others are asked one by one
+            Map<String, Entry> unlisted = new LinkedHashMap<>(waiting);
+            unlisted.keySet().removeAll(listed);
+            retryAfterMs = Math.max(retryAfterMs, askEach(client, unlisted, waiting, ready));
+            if (waiting.isEmpty()) {
+                return;
+            }
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0L) {
+                return;
+            }
+            LambdaMetrics.retry("buildHarvest", retryAfterMs > 0L ? "rate-limited" : "not-ready");
+            if (!sleepQuietly(Math.min(policy.delayMs(round, retryAfterMs), remainingMs))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * {@code lt.build.id} when set, otherwise the build the first resolvable session reports in its details. Sessions
+     * of other builds are still found through {@code /sessions/{id}/video}.
+     */
+    private static String buildId(LambdaApiClient client, List<Entry> entries) {
+        String buildId = System.getProperty("lt.build.id");
+        buildId = buildId == null || buildId.isBlank() ? null : buildId.trim();
+        for (int i = 0; buildId == null && i < entries.size(); i++) {
+            try {
+                buildId = client.sessionAsync(entries.get(i).sessionId).join().buildId();
+            } catch (RuntimeException e) {
+                if (LambdaApiException.unwrap("session", e).isUnauthorized()) {
+                    break;
+                }
+            }
+        }
+        return buildId;
+    }
+
+    /**
+     * Pages through the build, hands over the waiting sessions that have a video link and returns the ids of all
+     * waiting sessions the build contains.
+     */
+    private static Set<String> listBuild(LambdaApiClient client, String buildId, Map<String, Entry> waiting,
+                                         Consumer<Entry> ready) {
+        int pageSize = (int) readLong("lt.harvest.page-size", DEFAULT_PAGE_SIZE);
+        Set<String> listed = new HashSet<>();
+        for (int offset = 0; !waiting.isEmpty(); offset += pageSize) {
+            LambdaApiClient.SessionPage page = client.buildSessionsAsync(buildId, pageSize, offset).join();
+            for (LambdaApiClient.Session session : page.sessions()) {
+                Entry entry = session.sessionId() == null ? null : waiting.get(session.sessionId());
+                if (entry != null) {
+                    listed.add(entry.sessionId);
+                    entry.buildId = session.buildId() == null ? buildId : session.buildId();
+                }
+                if (entry != null && session.videoUrl() != null) {
+                    waiting.remove(entry.sessionId);
+                    entry.videoUrl = session.videoUrl();
+                    ready.accept(entry);
+                }
+            }
+            if (page.sessions().size() < pageSize || (page.total() >= 0 && offset + pageSize >= page.total())) {
+                break;
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * Asks {@code /sessions/{id}/video} for each of {@code sessions}; returns the longest {@code Retry-After} seen.
+     */
+    private static long askEach(LambdaApiClient client, Map<String, Entry> sessions, Map<String, Entry> waiting,
+                                Consumer<Entry> ready) {
+        Map<Entry, CompletableFuture<String>> lookups = new LinkedHashMap<>();
+        sessions.values().forEach(entry -> lookups.put(entry, client.sessionVideoUrlAsync(entry.sessionId)));
+        long retryAfterMs = 0L;
+        for (Map.Entry<Entry, CompletableFuture<String>> lookup : lookups.entrySet()) {
+            Entry entry = lookup.getKey();
+            try {
+                String videoUrl = lookup.getValue().join();
+                if (videoUrl != null) {
+                    waiting.remove(entry.sessionId);
+                    entry.videoUrl = videoUrl;
+                    ready.accept(entry);
+                }
+            } catch (RuntimeException e) {
+                LambdaApiException error = LambdaApiException.unwrap("sessionVideo", e);
+                if (error.isUnauthorized()) {
+                    waiting.remove(entry.sessionId);
+                }
+                retryAfterMs = Math.max(retryAfterMs, error.retryAfterMs());
+            }
+        }
+        return retryAfterMs;
+    }
+
+    private static void collect(LambdaApiClient client, Entry entry, Path root, List<String> logTypes) {
+        String relativeVideo = LambdaWebDriverInterop.sessionVideoRelativePath(entry.sessionId);
+        for (int attempt = 0; attempt < VIDEO_ATTEMPTS && entry.video == null; attempt++) {
+            if (LambdaWebDriverInterop.downloadVideo(client, entry.videoUrl, root.resolve(relativeVideo)) != null) {
+                entry.video = relativeVideo;
+            }
+        }
+        for (String type : logTypes) {
+            String relativeLog = logRelativePath(entry.sessionId, type);
+            try {
+                client.sessionLogAsync(entry.sessionId, type, root.resolve(relativeLog)).join();
+                entry.logs.put(type, relativeLog);
+            } catch (RuntimeException ignored) {
+                // not every session has every log type; the index only lists what was written
+            }
+        }
+    }
+
+    private static void writeIndex(Path file, List<Map<String, Object>> index) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, Json.of(index).toStringPretty(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("artifact index write failed: " + file, e);
+        }
+    }
+
+    private static boolean sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            long value = Long.parseLong(raw.trim());
+            return value > 0 ? value : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * One registered session; the harvest fills in its build, video link and written files.
+     */
+    private static final class Entry {
+
+        private final String sessionId;
+        private final String scenario;
+        private final String username;
+        private final String accessKey;
+        private final Map<String, String> logs = Collections.synchronizedMap(new LinkedHashMap<>());
+        private volatile String buildId;
+        private volatile String videoUrl;
+        private volatile String video;
+
+        private Entry(String sessionId, String scenario, String username, String accessKey) {
+            this.sessionId = sessionId;
+            this.scenario = scenario;
+            this.username = username;
+            this.accessKey = accessKey;
+        }
+    }
+}
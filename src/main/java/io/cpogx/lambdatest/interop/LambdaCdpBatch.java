@@ -0,0 +1,256 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.intuit.karate.driver.WebDriver;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a list of CDP commands over {@code POST /goog/cdp/execute} with several requests in flight, so a setup
+ * sequence costs about one round-trip instead of one per command.
+ * Commands of the same CDP domain ({@code Network.enable} before {@code Network.setExtraHTTPHeaders}) or with the same
+ * {@code chain} value keep their order; other commands run concurrently, up to {@code lt.cdp.parallelism} (8).
+ * Each command is timed as a {@code cdpExecute} call in {@link LambdaMetrics}.
+ */
+final class LambdaCdpBatch {
+
+    private static final long DEFAULT_TIMEOUT_MS = 60_000L;
+
+    private final List<Command> commands;
+    private final List<List<Command>> chains;
+
+    private LambdaCdpBatch(List<Command> commands) {
+        this.commands = commands;
+        Map<String, List<Command>> byChain = new LinkedHashMap<>();
+        for (Command command : commands) {
+            byChain.computeIfAbsent(command.chain, ignored -> new ArrayList<>()).add(command);
+        }
+        this.chains = List.copyOf(byChain.values());
+    }
+
+    /**
+     * Validates {@code [{ cmd, params, chain }]}; {@code chain} defaults to the command's CDP domain.
+     */
+    static LambdaCdpBatch of(List<Map<String, Object>> specs) {
+        if (specs == null || specs.isEmpty()) {
+            throw new IllegalArgumentException("cdp commands are required");
+        }
+        List<Command> commands = new ArrayList<>();
+        for (int i = 0; i < specs.size(); i++) {
+            Map<String, Object> spec = specs.get(i);
+            if (spec == null) {
+                throw new IllegalArgumentException("cdp command " + i + " is null");
+            }
+            String cmd = trimToNull(spec.get("cmd"));
+            if (cmd == null) {
+                throw new IllegalArgumentException("cdp command " + i + " needs a cmd");
+            }
+            Object params = spec.get("params");
+            if (params != null && !(params instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException("cdp command " + i + " params must be an object");
+            }
+            String chain = trimToNull(spec.get("chain"));
+            if (chain == null) {
+                int dot = cmd.indexOf('.');
+                chain = dot > 0 ? cmd.substring(0, dot) : cmd;
+            }
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("cmd", cmd);
+            payload.put("params", params == null ? Collections.emptyMap() : params);
+            commands.add(new Command(i, cmd, chain, Json.of(payload).toString()));
+        }
+        return new LambdaCdpBatch(List.copyOf(commands));
+    }
+
+    /**
+     * Runs the batch on a Karate WebDriver session and returns {@code results} (in command order, {@code null} for
+     * failed commands), {@code timings}, {@code errors} and {@code totalMs}. Failures do not stop other commands;
+     * a chain stops at its first failure. Each request is bounded by the driver's {@code timeout}.
+     */
+    Map<String, Object> run(Object driverRef) {
+        if (!(driverRef instanceof WebDriver webDriver)) {
+            throw new IllegalArgumentException("expected com.intuit.karate.driver.WebDriver but got: "
+                    + (driverRef == null ? "null" : driverRef.getClass().getName()));
+        }
+        return run(webDriver.getHttp().urlBase, webDriver.getSessionId(), Duration.ofMillis(webDriver.getOptions().getTimeout()),
+                LambdaDriverIntrospection.browserName(webDriver), LambdaDriverIntrospection.platformName(webDriver));
+    }
+
+    /**
+     * Runs the batch on a WebDriver session directly over HTTP, each request bounded by {@code lt.cdp.timeout-ms} (60000).
+     */
+    Map<String, Object> run(String webDriverUrl, String sessionId) {
+        return run(webDriverUrl, sessionId, Duration.ofMillis(readInt("lt.cdp.timeout-ms", (int) DEFAULT_TIMEOUT_MS)), null, null);
+    }
+
+    Map<String, Object> run(String webDriverUrl, String sessionId, Duration timeout, String browser, String platform) {
+        Duration requestTimeout = timeout.isZero() || timeout.isNegative() ? Duration.ofMillis(DEFAULT_TIMEOUT_MS) : timeout;
+        long startedAt = System.nanoTime();
+        URI base = URI.create(webDriverUrl);
+        URI endpoint = URI.create(LambdaApiClient.withoutUserInfo(base) + "/session/" + sessionId + "/goog/cdp/execute");
+        String authorization = base.getUserInfo() == null ? null : LambdaApiClient.basicAuthValue(base.getUserInfo());
+        HttpClient client = LambdaApiClient.sharedHttpClient();
+        LambdaAsyncPermits inFlight = new LambdaAsyncPermits(readInt("lt.cdp.parallelism", 8));
+        Outcome[] outcomes = new Outcome[commands.size()];
+
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+        for (List<Command> chain : chains) {
+            CompletableFuture<Boolean> future = CompletableFuture.completedFuture(true);
+            for (Command command : chain) {
+                future = future.thenCompose(previousOk -> previousOk
+                        ? send(client, endpoint, authorization, requestTimeout, command, inFlight, outcomes, browser, platform)
+                        : skip(command, outcomes));
+            }
+            pending.add(future);
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+
+        List<Object> results = new ArrayList<>();
+        List<Map<String, Object>> timings = new ArrayList<>();
+        List<Map<String, Object>> errors = new ArrayList<>();
+        for (Command command : commands) {
+            Outcome outcome = outcomes[command.index];
+            results.add(outcome.value);
+            Map<String, Object> timing = new LinkedHashMap<>();
+            timing.put("cmd", command.cmd);
+            timing.put("ms", outcome.ms);
+            timing.put("status", outcome.status);
+            timings.add(timing);
+            if (outcome.error != null) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("index", command.index);
+                error.put("cmd", command.cmd);
+                error.put("error", outcome.error);
+                errors.add(error);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("results", results);
+        result.put("timings", timings);
+        result.put("errors", errors);
+        result.put("totalMs", (System.nanoTime() - startedAt) / 1_000_000L);
+        return result;
+    }
+
+    private static CompletableFuture<Boolean> send(HttpClient client,
+                                                   URI endpoint,
+                                                   String authorization,
+                                                   Duration timeout,
+                                                   Command command,
+                                                   LambdaAsyncPermits inFlight,
+                                                   Outcome[] outcomes,
+                                                   String browser,
+                                                   String platform) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(command.payload, StandardCharsets.UTF_8));
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        // a command waiting for a permit is queued, not parked on an HttpClient thread
+        AtomicLong startedAt = new AtomicLong();
+        return inFlight.submit(() -> {
+                    startedAt.set(System.nanoTime());
+                    return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                })
+                .handle((response, error) -> {
+                    long ms = (System.nanoTime() - startedAt.get()) / 1_000_000L;
+                    LambdaMetrics.call("cdpExecute", browser, platform, error != null ? 0 : response.statusCode(), startedAt.get());
+                    if (error != null) {
+                        Throwable cause = error.getCause() == null ? error : error.getCause();
+                        outcomes[command.index] = new Outcome(null, ms, "error", String.valueOf(cause.getMessage()));
+                        return false;
+                    }
+                    if (response.statusCode() != 200) {
+                        outcomes[command.index] = new Outcome(null, ms, "error", "/goog/cdp/execute failed: status="
+                                + response.statusCode() + ", body=" + response.body());
+                        return false;
+                    }
+                    Map<String, Object> body = jsonObject(response.body());
+                    if (body == null) {
+                        outcomes[command.index] = new Outcome(null, ms, "error",
+                                "/goog/cdp/execute returned no JSON object: body=" + response.body());
+                        return false;
+                    }
+                    outcomes[command.index] = new Outcome(body.get("value"), ms, "ok", null);
+                    return true;
+                });
+    }
+
+    private static Map<String, Object> jsonObject(String body) {
+        try {
+            return Json.of(body).asMap();
+        } catch (RuntimeException e) {
+            // an HTML error page from a proxy, an empty or a truncated reply
+            return null;
+        }
+    }
+
+    private static CompletableFuture<Boolean> skip(Command command, Outcome[] outcomes) {
+        outcomes[command.index] = new Outcome(null, 0L, "skipped", "skipped after an earlier failure in chain " + command.chain);
+        return CompletableFuture.completedFuture(false);
+    }
+
+    private static int readInt(String property, int fallback) {
+        String raw = trimToNull(System.getProperty(property));
+        if (raw == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(raw);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String trimToNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static final class Command {
+
+        private final int index;
+        private final String cmd;
+        private final String chain;
+        private final String payload;
+
+        private Command(int index, String cmd, String chain, String payload) {
+            this.index = index;
+            this.cmd = cmd;
+            this.chain = chain;
+            this.payload = payload;
+        }
+    }
+
+    private static final class Outcome {
+
+        private final Object value;
+        private final long ms;
+        private final String status;
+        private final String error;
+
+        private Outcome(Object value, long ms, String status, String error) {
+            this.value = value;
+            this.ms = ms;
+            this.status = status;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.driver.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.SessionId;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Session id and platform lookup for arbitrary driver objects. The reflective search runs once per driver class and
+ * is kept as a {@link MethodHandle} plan in a {@link ClassValue}; resolved values are cached per driver instance.
+ */
+final class LambdaDriverIntrospection {
+
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<SessionIdPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected SessionIdPlan computeValue(Class<?> type) {
+            return SessionIdPlan.of(type);
+        }
+    };
+
+    private static final Map<Object, String> SESSION_IDS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Object, String> PLATFORMS = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final Map<Object, String> BROWSERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // most calls in a row come from the same scenario's driver; skips the synchronized map on that path. Weakly
+    // held, like the maps, so the last driver of a run is not kept alive.
+    private static volatile Resolved lastSessionId = Resolved.NONE;
+
+    private LambdaDriverIntrospection() {
+    }
+
+    /**
+     * Session id of a Selenium or Karate driver (or anything exposing {@code getSessionId()} or a session field).
+     * Only non-null results are cached, so a driver whose session starts later is looked up again.
+     */
+    static String sessionId(Object driverRef) {
+        if (driverRef == null) {
+            return null;
+        }
+        Resolved last = lastSessionId;
+        if (last.driver.get() == driverRef) {
+            return last.value;
+        }
+        String cached = SESSION_IDS.get(driverRef);
+        if (cached == null) {
+            cached = resolveSessionId(driverRef);
+            if (cached == null) {
+                return null;
+            }
+            SESSION_IDS.put(driverRef, cached);
+        }
+        lastSessionId = new Resolved(driverRef, cached);
+        return cached;
+    }
+
+    /**
+     * Platform name from the driver's capabilities or options, falling back to {@code karate.platform.name}.
+     */
+    static String platformName(Object driverRef) {
+        if (driverRef == null) {
+            return systemPlatformName();
+        }
+        String cached = PLATFORMS.get(driverRef);
+        if (cached != null) {
+            return cached;
+        }
+        String resolved = resolvePlatformName(driverRef);
+        if (resolved != null) {
+            PLATFORMS.put(driverRef, resolved);
+            return resolved;
+        }
+        return systemPlatformName();
+    }
+
+    /**
+     * Browser name from the driver's capabilities or session request, or {@code null} when it cannot be told.
+     */
+    static String browserName(Object driverRef) {
+        if (driverRef == null) {
+            return null;
+        }
+        String cached = BROWSERS.get(driverRef);
+        if (cached != null) {
+            return cached;
+        }
+        String resolved = resolveBrowserName(driverRef);
+        if (resolved != null) {
+            BROWSERS.put(driverRef, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Resolves without the per-instance cache; the per-class plan is still used.
+     */
+    static String resolveSessionId(Object driverRef) {
+        if (driverRef instanceof RemoteWebDriver seleniumDriver) {
+            SessionId sessionId = seleniumDriver.getSessionId();
+            if (sessionId != null && !sessionId.toString().isBlank()) {
+                return sessionId.toString();
+            }
+        }
+        SessionIdPlan plan = PLANS.get(driverRef.getClass());
+        String fromMethod = plan.invokeMethod(driverRef);
+        if (fromMethod != null) {
+            return fromMethod;
+        }
+        if (driverRef instanceof WebDriver webDriver) {
+            String fromOptions = findSessionIdInOptions(webDriver);
+            if (fromOptions != null) {
+                return fromOptions;
+            }
+            Object http = webDriver.getHttp();
+            if (http != null) {
+                String fromHttpField = PLANS.get(http.getClass()).readFields(http);
+                if (fromHttpField != null) {
+                    return fromHttpField;
+                }
+            }
+        }
+        return plan.readFields(driverRef);
+    }
+
+    /**
+     * Drops everything cached for the driver; called once its session has been quit.
+     */
+    static void forget(Object driverRef) {
+        if (lastSessionId.driver.get() == driverRef) {
+            lastSessionId = Resolved.NONE;
+        }
+        SESSION_IDS.remove(driverRef);
+        PLATFORMS.remove(driverRef);
+        BROWSERS.remove(driverRef);
+    }
+
+    private static String resolvePlatformName(Object driverRef) {
+        if (driverRef instanceof RemoteWebDriver seleniumDriver) {
+            Object platform = seleniumDriver.getCapabilities().getCapability("platformName");
+            if (platform != null && !platform.toString().isBlank()) {
+                return platform.toString();
+            }
+        }
+        if (driverRef instanceof WebDriver karateDriver) {
+            Map<String, Object> options = castStringObjectMap(karateDriver.getOptions().options);
+            if (options != null) {
+                String platform = trimToNull(options.get("platformName"));
+                if (platform != null) {
+                    return platform;
+                }
+                Map<String, Object> capabilities = castStringObjectMap(options.get("capabilities"));
+                if (capabilities != null) {
+                    return trimToNull(capabilities.get("platformName"));
+                }
+                Map<String, Object> alwaysMatch = sessionAlwaysMatch(options);
+                if (alwaysMatch != null) {
+                    return trimToNull(alwaysMatch.get("platformName"));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String resolveBrowserName(Object driverRef) {
+        if (driverRef instanceof RemoteWebDriver seleniumDriver) {
+            return trimToNull(seleniumDriver.getCapabilities().getBrowserName());
+        }
+        if (driverRef instanceof WebDriver karateDriver) {
+            Map<String, Object> options = castStringObjectMap(karateDriver.getOptions().options);
+            Map<String, Object> alwaysMatch = options == null ? null : sessionAlwaysMatch(options);
+            if (alwaysMatch != null && trimToNull(alwaysMatch.get("browserName")) != null) {
+                return trimToNull(alwaysMatch.get("browserName"));
+            }
+            return trimToNull(karateDriver.getOptions().type);
+        }
+        return null;
+    }
+
+    /**
+     * {@code webDriverSession.capabilities.alwaysMatch} of a Karate driver config, as built by {@code LambdaDriverTarget}.
+     */
+    private static Map<String, Object> sessionAlwaysMatch(Map<String, Object> options) {
+        Map<String, Object> session = castStringObjectMap(options.get("webDriverSession"));
+        Map<String, Object> capabilities = session == null ? null : castStringObjectMap(session.get("capabilities"));
+        return capabilities == null ? null : castStringObjectMap(capabilities.get("alwaysMatch"));
+    }
+
+    private static String systemPlatformName() {
+        String system = trimToNull(System.getProperty("karate.platform.name"));
+        return system == null ? "" : system;
+    }
+
+    private static String findSessionIdInOptions(WebDriver webDriver) {
+        Map<String, Object> options = castStringObjectMap(webDriver.getOptions().options);
+        if (options == null || options.isEmpty()) {
+            return null;
+        }
+        String exact = trimToNull(options.get("sessionId"));
+        if (exact != null) {
+            return exact;
+        }
+        for (Map.Entry<String, Object> entry : options.entrySet()) {
+            String key = entry.getKey();
+            if (key != null && key.toLowerCase(Locale.ROOT).contains("session")) {
+                String value = trimToNull(entry.getValue());
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castStringObjectMap(Object value) {
+        if (!(value instanceof Map<?, ?> map)) {
+            return null;
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getKey() != null) {
+                out.put(entry.getKey().toString(), entry.getValue());
+            }
+        }
+        return out;
+    }
+
+    private static String trimToNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Accessors found for one class: a public no-arg {@code getSessionId()} and every instance field whose name
+     * contains "session", walked from the class up to {@code Object}.
+     */
+    private static final class SessionIdPlan {
+
+        private final MethodHandle method;
+        private final List<MethodHandle> fields;
+
+        private SessionIdPlan(MethodHandle method, List<MethodHandle> fields) {
+            this.method = method;
+            this.fields = fields;
+        }
+
+        static SessionIdPlan of(Class<?> type) {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle method = null;
+            try {
+                Method getter = type.getMethod("getSessionId");
+                if (getter.getReturnType() != void.class && (getter.trySetAccessible() || Modifier.isPublic(type.getModifiers()))) {
+                    method = lookup.unreflect(getter).asType(OBJECT_GETTER);
+                }
+            } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ignored) {
+                // no usable getter; fields only
+            }
+            List<MethodHandle> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())
+                            || !field.getName().toLowerCase(Locale.ROOT).contains("session")) {
+                        continue;
+                    }
+                    try {
+                        if (field.trySetAccessible()) {
+                            fields.add(lookup.unreflectGetter(field).asType(OBJECT_GETTER));
+                        }
+                    } catch (IllegalAccessException | RuntimeException ignored) {
+                        // field stays invisible (module boundary); keep scanning
+                    }
+                }
+            }
+            return new SessionIdPlan(method, List.copyOf(fields));
+        }
+
+        String invokeMethod(Object target) {
+            if (method == null) {
+                return null;
+            }
+            try {
+                return trimToNull(method.invokeExact(target));
+            } catch (Throwable ignored) {
+                return null;
+            }
+        }
+
+        String readFields(Object target) {
+            for (MethodHandle field : fields) {
+                try {
+                    String value = trimToNull(field.invokeExact(target));
+                    if (value != null) {
+                        return value;
+                    }
+                } catch (Throwable ignored) {
+                    // continue with the next field
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class Resolved {
+
+        static final Resolved NONE = new Resolved(null, null);
+
+        private final WeakReference<Object> driver;
+        private final String value;
+
+        private Resolved(Object driver, String value) {
+            this.driver = new WeakReference<>(driver);
+            this.value = value;
+        }
+    }
+}
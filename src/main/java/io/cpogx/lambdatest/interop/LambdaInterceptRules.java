@@ -0,0 +1,351 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.intuit.karate.driver.WebDriver;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Validated, precompiled set of LambdaTest intercept rules ({@code lt:intercept:redirect / :error / :response}).
+ * Each rule is normalized once into a ready {@code execute/sync} payload; compiled sets are cached by content.
+ * {@link #register(Object)} registers rules for different URLs concurrently and the rules of one URL, whatever their
+ * method or kind, one after another in the order given; a rule repeated right after itself for its URL is sent once.
+ */
+public final class LambdaInterceptRules {
+
+    private static final int CACHE_LIMIT = 256;
+    private static final long DEFAULT_TIMEOUT_MS = 60_000L;
+    private static final Map<String, LambdaInterceptRules> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LambdaInterceptRules> eldest) {
+                    return size() > CACHE_LIMIT;
+                }
+            });
+
+    private final List<Rule> rules;
+    private final List<List<Rule>> chains;
+
+    private LambdaInterceptRules(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        // error rules carry no method and a method-less rule matches every method, so a URL is one chain
+        Map<String, List<Rule>> byUrl = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            List<Rule> chain = byUrl.computeIfAbsent(rule.url, ignored -> new ArrayList<>());
+            // only back-to-back repeats are dropped: X, Y, X must still end with X
+            if (chain.isEmpty() || !chain.get(chain.size() - 1).payload.equals(rule.payload)) {
+                chain.add(rule);
+            }
+        }
+        List<List<Rule>> grouped = new ArrayList<>();
+        byUrl.values().forEach(chain -> grouped.add(List.copyOf(chain)));
+        this.chains = List.copyOf(grouped);
+    }
+
+    /**
+     * Compiles the rule list, or returns the cached compilation of an identical list (the {@value #CACHE_LIMIT} most
+     * recently used sets are kept).
+     */
+    public static LambdaInterceptRules compile(List<Map<String, Object>> rules) {
+        if (rules == null || rules.isEmpty()) {
+            throw new IllegalArgumentException("intercept rules are required");
+        }
+        String key = Json.of(rules).toString();
+        LambdaInterceptRules cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<Rule> compiled = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            try {
+                compiled.add(compileRule(rules.get(i)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("intercept rule #" + i + ": " + e.getMessage(), e);
+            }
+        }
+        LambdaInterceptRules created = new LambdaInterceptRules(compiled);
+        CACHE.putIfAbsent(key, created);
+        return created;
+    }
+
+    /**
+     * Validates and normalizes one rule into its {@code lt:intercept:*} command and argument map.
+     */
+    public static Rule compileRule(Map<String, Object> rule) {
+        if (rule == null || rule.isEmpty()) {
+            throw new IllegalArgumentException("intercept rule is required");
+        }
+
+        String url = readNonBlank(rule.get("url"), "intercept rule url is required");
+        String method = trimToNull(rule.get("method"));
+
+        String redirectUrl = trimToNull(rule.get("redirectUrl"));
+        if (redirectUrl != null) {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("url", url);
+            args.put("redirectUrl", redirectUrl);
+            if (method != null) {
+                args.put("method", method);
+            }
+            return new Rule("lt:intercept:redirect", url, method, args);
+        }
+
+        Object errorObj = rule.get("error");
+        String errorCode = trimToNull(rule.get("errorCode"));
+        if (errorObj != null || errorCode != null) {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("url", url);
+            String normalizedError = errorCode != null ? errorCode : String.valueOf(errorObj);
+            args.put("error", normalizedError);
+            return new Rule("lt:intercept:error", url, null, args);
+        }
+
+        Map<String, Object> response = toMap(rule.get("response"));
+        if (response == null || response.isEmpty()) {
+            throw new IllegalArgumentException("intercept rule requires response / redirectUrl / error");
+        }
+
+        Map<String, Object> normalizedResponse = new LinkedHashMap<>();
+        Object status = response.get("status");
+        if (status == null) {
+            status = response.get("responseCode");
+        }
+        normalizedResponse.put("status", status == null ? 200 : status);
+
+        Map<String, Object> headers = toMap(response.get("headers"));
+        if (headers == null) {
+            headers = toMap(response.get("responseHeaders"));
+        }
+        if (headers != null && !headers.isEmpty()) {
+            normalizedResponse.put("headers", headers);
+        }
+
+        Object body = response.get("body");
+        if (body == null) {
+            body = response.get("responseBody");
+        }
+        if (body != null) {
+            normalizedResponse.put("body", toJsonString(body));
+        }
+
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("url", url);
+        if (method != null) {
+            args.put("method", method);
+        }
+        args.put("response", normalizedResponse);
+        return new Rule("lt:intercept:response", url, method, args);
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Number of remote calls {@link #register(Object)} makes (duplicates removed).
+     */
+    public int callCount() {
+        return chains.stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Registers every rule on the session and reports {@code rules}, {@code calls}, {@code totalMs} and per-rule
+     * {@code timings} ({@code command}, {@code url}, {@code method}, {@code ms}, {@code value}).
+     * Karate drivers are driven over HTTP with up to {@code lt.intercept.parallelism} (8) calls in flight, each bounded
+     * by the driver's {@code timeout}; other drivers register sequentially.
+     */
+    public Map<String, Object> register(Object driverRef) {
+        if (driverRef instanceof WebDriver webDriver) {
+            return register(webDriver.getHttp().urlBase, webDriver.getSessionId(),
+                    Duration.ofMillis(webDriver.getOptions().getTimeout()));
+        }
+        long startedAt = System.nanoTime();
+        List<Map<String, Object>> timings = new ArrayList<>();
+        for (List<Rule> chain : chains) {
+            for (Rule rule : chain) {
+                long ruleStartedAt = System.nanoTime();
+                Object value = LambdaWebDriverInterop.execute(driverRef, rule.command, rule.args);
+                timings.add(rule.timing(ruleStartedAt, value));
+            }
+        }
+        return summary(startedAt, timings);
+    }
+
+    /**
+     * Registers the rules on a WebDriver session directly over HTTP ({@code POST {webDriverUrl}/session/{id}/execute/sync}),
+     * each call bounded by {@code lt.intercept.timeout-ms} (60000).
+     */
+    Map<String, Object> register(String webDriverUrl, String sessionId) {
+        return register(webDriverUrl, sessionId, Duration.ofMillis(readInt("lt.intercept.timeout-ms", (int) DEFAULT_TIMEOUT_MS)));
+    }
+
+    Map<String, Object> register(String webDriverUrl, String sessionId, Duration timeout) {
+        long startedAt = System.nanoTime();
+        List<Map<String, Object>> timings = Collections.synchronizedList(new ArrayList<>());
+        registerConcurrently(URI.create(webDriverUrl), sessionId, timeout, timings);
+        return summary(startedAt, timings);
+    }
+
+    private Map<String, Object> summary(long startedAt, List<Map<String, Object>> timings) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rules", rules.size());
+        result.put("calls", callCount());
+        result.put("totalMs", elapsedMs(startedAt));
+        result.put("timings", new ArrayList<>(timings));
+        return result;
+    }
+
+    private void registerConcurrently(URI base, String sessionId, Duration timeout, List<Map<String, Object>> timings) {
+        URI endpoint = URI.create(LambdaApiClient.withoutUserInfo(base) + "/session/" + sessionId + "/execute/sync");
+        String authorization = base.getUserInfo() == null ? null : LambdaApiClient.basicAuthValue(base.getUserInfo());
+        HttpClient client = LambdaApiClient.sharedHttpClient();
+        LambdaAsyncPermits inFlight = new LambdaAsyncPermits(readInt("lt.intercept.parallelism", 8));
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (List<Rule> chain : chains) {
+            CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+            for (Rule rule : chain) {
+                future = future.thenCompose(ignored -> inFlight.submit(
+                        () -> send(client, endpoint, authorization, timeout, rule, timings)));
+            }
+            pending.add(future);
+        }
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("intercept registration failed", cause);
+        }
+    }
+
+    private static CompletableFuture<Void> send(HttpClient client,
+                                                URI endpoint,
+                                                String authorization,
+                                                Duration timeout,
+                                                Rule rule,
+                                                List<Map<String, Object>> timings) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout.isZero() || timeout.isNegative() ? Duration.ofMillis(DEFAULT_TIMEOUT_MS) : timeout)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(rule.payload, StandardCharsets.UTF_8));
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        long startedAt = System.nanoTime();
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                .thenAccept(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new RuntimeException("webdriver execute failed: status=" + response.statusCode()
+                                + ", rule=" + rule.command + " " + rule.url + ", body=" + response.body());
+                    }
+                    Json json = Json.of(response.body());
+                    timings.add(rule.timing(startedAt, json.pathExists("value") ? json.get("value") : null));
+                });
+    }
+
+    private static long elapsedMs(long startedAt) {
+        return (System.nanoTime() - startedAt) / 1_000_000L;
+    }
+
+    private static int readInt(String property, int fallback) {
+        String raw = trimToNull(System.getProperty(property));
+        if (raw == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(raw);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String toJsonString(Object value) {
+        if (value instanceof String s) {
+            return s;
+        }
+        return Json.of(value).toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(Object value) {
+        return value instanceof Map<?, ?> ? (Map<String, Object>) value : null;
+    }
+
+    private static String trimToNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static String readNonBlank(Object value, String messageIfBlank) {
+        String text = trimToNull(value);
+        if (text == null) {
+            throw new IllegalArgumentException(messageIfBlank);
+        }
+        return text;
+    }
+
+    /**
+     * One compiled rule: the executor command, its argument map and the serialized request body.
+     */
+    public static final class Rule {
+
+        private final String command;
+        private final String url;
+        private final String method;
+        private final Map<String, Object> args;
+        private final String payload;
+
+        private Rule(String command, String url, String method, Map<String, Object> args) {
+            this.command = command;
+            this.url = url;
+            this.method = method;
+            this.args = Collections.unmodifiableMap(args);
+            this.payload = Json.object().set("script", command).set("args", List.of(args)).toString();
+        }
+
+        public String command() {
+            return command;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public Map<String, Object> args() {
+            return args;
+        }
+
+        String payload() {
+            return payload;
+        }
+
+        private Map<String, Object> timing(long startedAt, Object value) {
+            Map<String, Object> timing = new LinkedHashMap<>();
+            timing.put("command", command);
+            timing.put("url", url);
+            if (method != null) {
+                timing.put("method", method);
+            }
+            timing.put("ms", elapsedMs(startedAt));
+            timing.put("value", value);
+            return timing;
+        }
+    }
+}
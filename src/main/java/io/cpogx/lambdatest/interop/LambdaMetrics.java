@@ -0,0 +1,248 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for remote LambdaTest calls: {@value #CALLS} timers tagged by operation, HTTP status, browser and
+ * platform, {@value #PAYLOAD} size summaries and {@value #RETRIES} counters.
+ * Uses the registry bound by {@code LambdaTargetConfiguration}, or a private {@link SimpleMeterRegistry} outside
+ * Spring. {@link LambdaSuiteHook} writes a JSON snapshot to {@link #exportFile()} when the suite ends.
+ */
+public final class LambdaMetrics {
+
+    public static final String CALLS = "lambdatest.remote.calls";
+    public static final String PAYLOAD = "lambdatest.remote.payload";
+    public static final String RETRIES = "lambdatest.remote.retries";
+
+    public static final String DEFAULT_EXPORT_FILE = "build/lambdatest-metrics.json";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private static final Object LOCK = new Object();
+
+    private static volatile MeterRegistry registry;
+    private static volatile String exportFile;
+
+    private LambdaMetrics() {
+    }
+
+    /**
+     * Records into {@code meterRegistry} from now on; {@code file} is the export file unless {@code lt.metrics.file}
+     * is set.
+     */
+    public static MeterRegistry bind(MeterRegistry meterRegistry, String file) {
+        if (meterRegistry == null) {
+            throw new IllegalArgumentException("meterRegistry is required");
+        }
+        synchronized (LOCK) {
+            registry = meterRegistry;
+            exportFile = trimToNull(file);
+        }
+        return meterRegistry;
+    }
+
+    /**
+     * Goes back to a private registry if {@code meterRegistry} is still the bound one (e.g. its context closed).
+     */
+    public static void unbind(MeterRegistry meterRegistry) {
+        synchronized (LOCK) {
+            if (registry == meterRegistry) {
+                registry = null;
+                exportFile = null;
+            }
+        }
+    }
+
+    public static MeterRegistry registry() {
+        MeterRegistry current = registry;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LOCK) {
+            if (registry == null) {
+                registry = new SimpleMeterRegistry();
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * {@code lt.metrics.file}, else the bound file, else {@value #DEFAULT_EXPORT_FILE}; {@code null} when set to
+     * {@code false}.
+     */
+    public static Path exportFile() {
+        String raw = trimToNull(System.getProperty("lt.metrics.file"));
+        if (raw == null) {
+            raw = exportFile == null ? DEFAULT_EXPORT_FILE : exportFile;
+        }
+        return "false".equalsIgnoreCase(raw) ? null : Path.of(raw);
+    }
+
+    /**
+     * One remote call of {@code driverRef}'s session; {@code status} is the HTTP status, or {@code 0} when no
+     * response came back.
+     */
+    static void call(String operation, Object driverRef, int status, long startedAtNanos) {
+        call(operation, LambdaDriverIntrospection.browserName(driverRef), LambdaDriverIntrospection.platformName(driverRef),
+                status, startedAtNanos);
+    }
+
+    static void call(String operation, String browser, String platform, int status, long startedAtNanos) {
+        long endedAtNanos = System.nanoTime();
+        // every timed remote call is also a span on the scenario timeline
+        LambdaTrace.complete(operation, "remote", startedAtNanos, endedAtNanos, Map.of("status", status));
+        Timer.builder(CALLS)
+                .description("LambdaTest remote call latency")
+                .tag("operation", operation)
+                .tag("status", status <= 0 ? "none" : String.valueOf(status))
+                .tag("outcome", status >= 200 && status < 300 ? "success" : "failure")
+                .tag("browser", tagValue(browser))
+                .tag("platform", tagValue(platform))
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry())
+                .record(endedAtNanos - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Bytes sent ({@code direction=request}) or received ({@code response}) by one call.
+     */
+    static void payload(String operation, String direction, long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        DistributionSummary.builder(PAYLOAD)
+                .description("LambdaTest remote payload size")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("direction", direction)
+                .publishPercentiles(PERCENTILES)
+                .register(registry())
+                .record(bytes);
+    }
+
+    static void retry(String operation, String reason) {
+        Counter.builder(RETRIES)
+                .description("LambdaTest remote call retries")
+                .tag("operation", operation)
+                .tag("reason", tagValue(reason))
+                .register(registry())
+                .increment();
+    }
+
+    /**
+     * All LambdaTest meters as {@code name}, {@code type}, {@code tags} and their statistics (times in ms).
+     */
+    public static List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> meters = new ArrayList<>();
+        for (Meter meter : registry().getMeters()) {
+            String name = meter.getId().getName();
+            if (!name.startsWith("lambdatest.")) {
+                continue;
+            }
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("name", name);
+            out.put("type", meter.getId().getType().name().toLowerCase(Locale.ROOT));
+            Map<String, Object> tags = new LinkedHashMap<>();
+            for (Tag tag : meter.getId().getTags()) {
+                tags.put(tag.getKey(), tag.getValue());
+            }
+            out.put("tags", tags);
+            if (meter instanceof Timer timer) {
+                HistogramSnapshot histogram = timer.takeSnapshot();
+                out.put("count", histogram.count());
+                out.put("totalMs", round(histogram.total(TimeUnit.MILLISECONDS)));
+                out.put("maxMs", round(histogram.max(TimeUnit.MILLISECONDS)));
+                out.put("meanMs", round(histogram.mean(TimeUnit.MILLISECONDS)));
+                out.put("percentilesMs", percentiles(histogram, TimeUnit.MILLISECONDS));
+            } else if (meter instanceof DistributionSummary summary) {
+                HistogramSnapshot histogram = summary.takeSnapshot();
+                out.put("count", histogram.count());
+                out.put("total", round(histogram.total()));
+                out.put("max", round(histogram.max()));
+                out.put("mean", round(histogram.mean()));
+                out.put("percentiles", percentiles(histogram, null));
+            } else if (meter instanceof Counter counter) {
+                out.put("count", round(counter.count()));
+            } else {
+                continue;
+            }
+            meters.add(out);
+        }
+        meters.sort(Comparator.comparing((Map<String, Object> meter) -> meter.get("name").toString())
+                .thenComparing(meter -> meter.get("tags").toString()));
+        return meters;
+    }
+
+    /**
+     * Writes {@link #snapshot()} to {@code file} (replacing it atomically); returns {@code null} when nothing was
+     * recorded.
+     */
+    public static Path export(Path file) {
+        List<Map<String, Object>> meters = snapshot();
+        if (file == null || meters.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("exportedAt", Instant.now().toString());
+        document.put("meters", meters);
+        Path target = file.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.writeString(temp, Json.of(document).toStringPretty(), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("metrics export failed: " + target, e);
+        }
+        return target;
+    }
+
+    private static Map<String, Object> percentiles(HistogramSnapshot histogram, TimeUnit unit) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (ValueAtPercentile value : histogram.percentileValues()) {
+            out.put("p" + Math.round(value.percentile() * 100), round(unit == null ? value.value() : value.value(unit)));
+        }
+        return out;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000d) / 1000d;
+    }
+
+    private static String tagValue(String value) {
+        String text = trimToNull(value);
+        return text == null ? "unknown" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static String trimToNull(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
@@ -0,0 +1,366 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.core.ScenarioRuntime;
+import com.intuit.karate.driver.Driver;
+import com.intuit.karate.driver.WebDriver;
+import com.intuit.karate.http.ResourceType;
+import io.cpogx.lambdatest.session.LambdaSessionAdmission;
+import io.cpogx.lambdatest.session.LambdaSessionPool;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Ends a LambdaTest session from {@code Target.stop}: status update, quit, slot release and artifact collection run
+ * as a pipeline on background threads, so the scenario thread returns right away.
+ * Each step has its own timeout ({@code lt.finalizer.step-timeout-ms}); a failed or timed-out step does not block
+ * the next one. Per-step counts and timings are available from {@link #metrics()}.
+ */
+public final class LambdaSessionFinalizer implements AutoCloseable {
+
+    private static final int DEFAULT_THREADS = 8;
+    private static final long DEFAULT_STEP_TIMEOUT_MS = 30_000L;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_MS = 60_000L;
+    private static final Object SHARED_LOCK = new Object();
+    private static volatile LambdaSessionFinalizer shared;
+
+    private final ThreadPoolExecutor executor;
+    private final long stepTimeoutMs;
+    private final Set<CompletableFuture<Void>> pending = ConcurrentHashMap.newKeySet();
+    private final Set<Object> finalizing = ConcurrentHashMap.newKeySet();
+    private final Map<String, StepStats> stats = new ConcurrentHashMap<>();
+
+    public LambdaSessionFinalizer(int threads, long stepTimeoutMs) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "lambda-finalizer-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.stepTimeoutMs = Math.max(1L, stepTimeoutMs);
+    }
+
+    public static LambdaSessionFinalizer shared() {
+        LambdaSessionFinalizer current = shared;
+        if (current != null) {
+            return current;
+        }
+        synchronized (SHARED_LOCK) {
+            if (shared == null) {
+                LambdaSessionFinalizer finalizer = new LambdaSessionFinalizer(
+                        (int) readLong("lt.finalizer.threads", DEFAULT_THREADS),
+                        readLong("lt.finalizer.step-timeout-ms", DEFAULT_STEP_TIMEOUT_MS));
+                // the pool threads are daemons: a runner that exits before the suite hook drained them still quits
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> finalizer.drain(
+                        readLong("lt.finalizer.shutdown-timeout-ms", DEFAULT_SHUTDOWN_TIMEOUT_MS)), "lambda-finalizer-shutdown"));
+                shared = finalizer;
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * {@code true} for suites writing to {@code reportDir} that run with {@link LambdaSuiteHook}, which drains the
+     * pipelines, unless {@code -Dlt.finalizer.enabled=false}; otherwise Karate quits the driver itself.
+     */
+    public static boolean enabled(String reportDir) {
+        String raw = System.getProperty("lt.finalizer.enabled");
+        return (raw == null || !"false".equalsIgnoreCase(raw.trim())) && LambdaSuiteHook.isAttached(reportDir);
+    }
+
+    /**
+     * Whether a {@code Target} ends this driver's session, so afterScenario hooks should not quit it again.
+     */
+    public static boolean isTargetManaged(Object driverRef) {
+        return driverRef instanceof Driver driver && driver.getOptions().target != null && !driver.getOptions().stop;
+    }
+
+    /**
+     * Finalizes the scenario's driver. The video (and log) references are embedded into the report right away (on the
+     * scenario thread); everything that talks to LambdaTest runs in the background, or in the build-wide
+     * {@link LambdaBuildHarvester} pass for the artifacts. {@code releaseSlot} runs once the session
+     * is quit (or, after a quit timeout, deleted on the grid), or immediately when the scenario never got a driver. In {@link LambdaStatusOutbox#restMode()} the
+     * session is quit first and its status plus {@code sessionFields} (e.g. {@code name}, {@code tags}) go through
+     * the outbox.
+     */
+    public Map<String, Object> finish(ScenarioRuntime runtime,
+                                      String username,
+                                      String accessKey,
+                                      Map<String, Object> sessionFields,
+                                      Runnable releaseSlot) {
+        Object driver = runtime != null && runtime.engine.hasVariable("driver") ? runtime.engine.getVariable("driver") : null;
+        if (!(driver instanceof Driver)) {
+            runQuietly(releaseSlot);
+            return Collections.emptyMap();
+        }
+        String status = runtime.isFailed() ? "failed" : "passed";
+        String sessionId = LambdaDriverIntrospection.sessionId(driver);
+        boolean pooled = sessionId != null && LambdaSessionPool.isPooledSession(sessionId);
+
+        boolean restStatus = LambdaStatusOutbox.restMode() && sessionId != null;
+        List<Step> steps = new ArrayList<>();
+        if (driver instanceof WebDriver && !restStatus) {
+            steps.add(new Step("status", () -> LambdaWebDriverInterop.lambdaStatus(driver, status)));
+        }
+        if (sessionId != null) {
+            steps.add(new Step("bidi", () -> LambdaBidiChannel.closeSession(sessionId)));
+        }
+        // the slot is released only once the grid session is gone: a quit that times out is forced with
+        // DELETE /session/{id}, and if that fails too the release waits for the quit itself
+        Runnable forceQuit = driver instanceof WebDriver webDriver && sessionId != null
+                ? () -> LambdaWebDriverInterop.deleteSession(webDriver.getHttp().urlBase, sessionId)
+                : null;
+        steps.add(new Step("quit", () -> {
+            try {
+                ((Driver) driver).quit();
+            } finally {
+                LambdaDriverIntrospection.forget(driver);
+            }
+        }, forceQuit));
+        steps.add(new Step("release", releaseSlot));
+        if (restStatus) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            if (sessionFields != null) {
+                fields.putAll(sessionFields);
+            }
+            fields.put("status_ind", status);
+            steps.add(new Step("status", () -> LambdaStatusOutbox.shared().enqueue(sessionId, username, accessKey, fields)));
+        }
+        if (sessionId != null && !pooled) {
+            steps.add(new Step("uploads", () -> LambdaUploadCache.shared().forgetSession(sessionId)));
+            String relativePath = LambdaWebDriverInterop.sessionVideoRelativePath(sessionId);
+            if (isNotBlank(username) && isNotBlank(accessKey)) {
+                String reportDir = runtime.featureRuntime.suite.reportDir;
+                StringBuilder html = new StringBuilder("<video controls=\"true\" width=\"100%\"><source src=\"")
+                        .append(relativePath).append("\" type=\"video/mp4\"/></video>");
+                if (LambdaBuildHarvester.shared().collects(reportDir)) {
+                    // collected for the whole build when the suite ends, into the paths embedded here; which logs
+                    // exist is only known then, so the report links the index rather than each log
+                    LambdaBuildHarvester.shared().register(reportDir, sessionId, runtime.scenario.getRefIdAndName(), username, accessKey);
+                    html.append(" <a href=\"").append(LambdaBuildHarvester.INDEX_FILE).append("\">artifacts</a>");
+                } else {
+                    Path target = Path.of(reportDir).resolve(relativePath).toAbsolutePath().normalize();
+                    steps.add(new Step("video", () -> LambdaVideoHarvester.shared().submit(sessionId, username, accessKey, target)));
+                }
+                runtime.embed(html.toString().getBytes(StandardCharsets.UTF_8), ResourceType.HTML);
+            }
+        }
+        // the steps run on finalizer threads but belong to this scenario's timeline
+        steps.replaceAll(step -> new Step(step.name, LambdaTrace.traced(step.name, "finalize", step.action), step.onTimeout));
+        pipeline(runtime, steps);
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Runs the steps in order, each on the finalizer pool and bounded by the step timeout. A step that times out
+     * and has an {@code onTimeout} fallback holds the pipeline until the fallback succeeds or the step really ends.
+     */
+    CompletableFuture<Void> pipeline(List<Step> steps) {
+        return pipeline(null, steps);
+    }
+
+    /**
+     * {@link #pipeline(List)} for {@code owner}'s session; the owner counts as finalizing until the pipeline ends.
+     */
+    CompletableFuture<Void> pipeline(Object owner, List<Step> steps) {
+        if (owner != null) {
+            finalizing.add(owner);
+        }
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (Step step : steps) {
+            chain = chain.thenCompose(ignored -> runStep(step));
+        }
+        CompletableFuture<Void> future = chain;
+        pending.add(future);
+        future.whenComplete((ignored, error) -> {
+            pending.remove(future);
+            if (owner != null) {
+                finalizing.remove(owner);
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<Void> runStep(Step step) {
+        long startedAt = System.nanoTime();
+        StepStats stepStats = stats.computeIfAbsent(step.name, ignored -> new StepStats());
+        CompletableFuture<Void> action = CompletableFuture.runAsync(step.action, executor);
+        // orTimeout on a copy, so the action future still reports when the step actually ends
+        return action.copy()
+                .orTimeout(stepTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> {
+                    stepStats.record(System.nanoTime() - startedAt, error);
+                    return error;
+                })
+                .thenCompose(error -> step.onTimeout != null && isTimeout(error)
+                        ? settle(step, action)
+                        : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Runs the step's fallback (recorded as {@code <name>-forced}); when that fails too, waits for the step itself.
+     */
+    private CompletableFuture<Void> settle(Step step, CompletableFuture<Void> action) {
+        long startedAt = System.nanoTime();
+        StepStats forcedStats = stats.computeIfAbsent(step.name + "-forced", ignored -> new StepStats());
+        return CompletableFuture.runAsync(step.onTimeout, executor)
+                .orTimeout(stepTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> {
+                    forcedStats.record(System.nanoTime() - startedAt, error);
+                    return error == null;
+                })
+                .thenCompose(forced -> forced
+                        ? CompletableFuture.<Void>completedFuture(null)
+                        : action.handle((ignored, error) -> null));
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = error != null && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException;
+    }
+
+    /**
+     * Releases the admission permits of matching owners that have no pending pipeline. A pending pipeline releases
+     * its owner's permit itself, once the session is gone.
+     */
+    public int releaseUnfinalized(Predicate<Object> owners) {
+        return LambdaSessionAdmission.releaseAll(owner -> owners.test(owner) && !finalizing.contains(owner));
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Waits for all running pipelines; returns {@code true} when nothing is left pending.
+     */
+    public boolean drain(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+        while (!pending.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            CompletableFuture<?>[] snapshot = pending.toArray(new CompletableFuture<?>[0]);
+            try {
+                CompletableFuture.allOf(snapshot).get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception ignored) {
+                // steps record their own failures
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Per step: {@code count}, {@code failures}, {@code timeouts}, {@code totalMs}, {@code maxMs}.
+     */
+    public Map<String, Map<String, Object>> metrics() {
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        stats.forEach((name, stepStats) -> out.put(name, stepStats.snapshot()));
+        return out;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static void runQuietly(Runnable action) {
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    private static boolean isNotBlank(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            long value = Long.parseLong(raw.trim());
+            return value > 0 ? value : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * One named pipeline step, with an optional fallback that ends its effect when it times out.
+     */
+    static final class Step {
+
+        private final String name;
+        private final Runnable action;
+        private final Runnable onTimeout;
+
+        Step(String name, Runnable action) {
+            this(name, action, null);
+        }
+
+        Step(String name, Runnable action, Runnable onTimeout) {
+            this.name = name;
+            this.action = action == null ? () -> { } : action;
+            this.onTimeout = onTimeout;
+        }
+    }
+
+    private static final class StepStats {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, Throwable error) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            Throwable cause = error != null && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            } else if (cause != null) {
+                failures.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("count", count.get());
+            out.put("failures", failures.get());
+            out.put("timeouts", timeouts.get());
+            out.put("totalMs", TimeUnit.NANOSECONDS.toMillis(totalNanos.get()));
+            out.put("maxMs", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            return out;
+        }
+    }
+}
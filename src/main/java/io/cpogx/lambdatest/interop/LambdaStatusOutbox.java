@@ -0,0 +1,392 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Sets LambdaTest session status, name and tags through {@code PATCH /sessions/{id}} after the session was quit.
+ * Updates are appended to a small JSON-lines outbox file before they are sent and marked done afterwards, so updates
+ * pending when the JVM dies are sent by the next run ({@link #recover}). Due updates go out in concurrent batches
+ * of {@code lt.status.batch} (20); failures are retried with exponential backoff up to {@code lt.status.max-attempts}
+ * (8). Access keys are never written to the file.
+ */
+public final class LambdaStatusOutbox implements AutoCloseable {
+
+    static final String DEFAULT_FILE = "build/lambdatest-status-outbox.jsonl";
+
+    private static final Object SHARED_LOCK = new Object();
+    private static volatile LambdaStatusOutbox shared;
+
+    private final Path file;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final LambdaBackoff backoff;
+    private final BiFunction<Entry, Map<String, Object>, Boolean> sender;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final Map<String, Entry> pending = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> results = new ConcurrentHashMap<>();
+    private final Object fileLock = new Object();
+    private long plannedFlushAt = Long.MAX_VALUE;
+
+    public LambdaStatusOutbox(Path file, int batchSize, int maxAttempts, LambdaBackoff backoff) {
+        this(file, batchSize, maxAttempts, backoff,
+                (entry, fields) -> LambdaApiClient.shared(entry.username, entry.accessKey).updateSession(entry.sessionId, fields));
+    }
+
+    LambdaStatusOutbox(Path file,
+                       int batchSize,
+                       int maxAttempts,
+                       LambdaBackoff backoff,
+                       BiFunction<Entry, Map<String, Object>, Boolean> sender) {
+        if (file == null) {
+            throw new IllegalArgumentException("outbox file is required");
+        }
+        this.file = file.toAbsolutePath().normalize();
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoff = backoff;
+        this.sender = sender;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lambda-status-outbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(this.batchSize, runnable -> {
+            Thread thread = new Thread(runnable, "lambda-status-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static LambdaStatusOutbox shared() {
+        LambdaStatusOutbox current = shared;
+        if (current != null) {
+            return current;
+        }
+        synchronized (SHARED_LOCK) {
+            if (shared == null) {
+                String path = System.getProperty("lt.status.outbox");
+                shared = new LambdaStatusOutbox(Path.of(path == null || path.isBlank() ? DEFAULT_FILE : path.trim()),
+                        (int) readLong("lt.status.batch", 20L),
+                        (int) readLong("lt.status.max-attempts", 8L),
+                        new LambdaBackoff(readLong("lt.status.retry-interval-ms", 1_000L),
+                                readLong("lt.status.retry-max-interval-ms", 30_000L), 2.0d, 0.2d));
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * {@code true} with {@code -Dlt.status.mode=rest}: quit the session first and report its status through the outbox.
+     */
+    public static boolean restMode() {
+        String mode = System.getProperty("lt.status.mode");
+        return mode != null && "rest".equalsIgnoreCase(mode.trim());
+    }
+
+    /**
+     * Records the update in the outbox file and schedules it; the future completes with {@code true} once
+     * LambdaTest accepted it, {@code false} when all attempts failed.
+     */
+    public CompletableFuture<Boolean> enqueue(String sessionId, String username, String accessKey, Map<String, Object> fields) {
+        if (sessionId == null || sessionId.isBlank()) {
+            throw new IllegalArgumentException("sessionId is required");
+        }
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("session fields are required");
+        }
+        Entry entry = new Entry(UUID.randomUUID().toString(), sessionId.trim(), username, accessKey, new LinkedHashMap<>(fields));
+        append(entry.toRecord());
+        return schedule(entry);
+    }
+
+    /**
+     * Re-schedules updates a previous run left in the outbox file. Entries of other accounts stay in the file.
+     */
+    public int recover(String username, String accessKey) {
+        int recovered = 0;
+        for (Map<String, Object> record : readRecords().values()) {
+            String entryUser = (String) record.get("username");
+            if (entryUser == null || !entryUser.equals(username)) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> fields = (Map<String, Object>) record.get("fields");
+            String id = (String) record.get("id");
+            if (id != null && fields != null && !pending.containsKey(id)) {
+                schedule(new Entry(id, (String) record.get("sessionId"), username, accessKey, fields));
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Waits until every scheduled update was sent or gave up; returns {@code true} when nothing is left pending.
+     */
+    public boolean drain(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+        while (!results.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0]))
+                        .get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception ignored) {
+                // results only complete normally
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private CompletableFuture<Boolean> schedule(Entry entry) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        results.put(entry.id, result);
+        pending.put(entry.id, entry);
+        requestFlush(0L);
+        return result;
+    }
+
+    private void requestFlush(long delayMs) {
+        long at = System.currentTimeMillis() + delayMs;
+        synchronized (this) {
+            // a flush at or before that time will pick the entry up anyway
+            if (at >= plannedFlushAt) {
+                return;
+            }
+            plannedFlushAt = at;
+        }
+        scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends due entries in concurrent batches and schedules the next run for the earliest retry.
+     */
+    private void flush() {
+        synchronized (this) {
+            plannedFlushAt = Long.MAX_VALUE;
+        }
+        long now = System.currentTimeMillis();
+        List<Entry> due = new ArrayList<>();
+        long nextDue = Long.MAX_VALUE;
+        for (Entry entry : pending.values()) {
+            if (entry.dueAt <= now) {
+                due.add(entry);
+            } else {
+                nextDue = Math.min(nextDue, entry.dueAt);
+            }
+        }
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Entry> batch = due.subList(from, Math.min(due.size(), from + batchSize));
+            List<CompletableFuture<Void>> sends = new ArrayList<>();
+            for (Entry entry : batch) {
+                sends.add(CompletableFuture.supplyAsync(() -> send(entry), senders)
+                        .exceptionally(error -> false)
+                        .thenAccept(ok -> settle(entry, ok)));
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).join();
+        }
+        for (Entry entry : pending.values()) {
+            nextDue = Math.min(nextDue, entry.dueAt);
+        }
+        if (nextDue != Long.MAX_VALUE) {
+            requestFlush(Math.max(0L, nextDue - System.currentTimeMillis()));
+        } else {
+            compact();
+        }
+    }
+
+    private boolean send(Entry entry) {
+        if (entry.accessKey == null || entry.accessKey.isBlank()) {
+            return false;
+        }
+        Boolean ok = sender.apply(entry, entry.fields);
+        return ok != null && ok;
+    }
+
+    private void settle(Entry entry, boolean ok) {
+        entry.attempts++;
+        if (!ok && entry.attempts < maxAttempts) {
+            LambdaMetrics.retry("lambdaStatus", "rest-failure");
+            entry.dueAt = System.currentTimeMillis() + backoff.delayMs(entry.attempts - 1, 0L);
+            return;
+        }
+        pending.remove(entry.id);
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", entry.id);
+        record.put("state", ok ? "done" : "failed");
+        append(record);
+        CompletableFuture<Boolean> result = results.remove(entry.id);
+        if (result != null) {
+            result.complete(ok);
+        }
+    }
+
+    private void append(Map<String, Object> record) {
+        String line = Json.of(record).toString() + "\n";
+        synchronized (fileLock) {
+            try {
+                Path parent = file.getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            } catch (IOException e) {
+                throw new RuntimeException("failed to write status outbox: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Open entries in file order; a torn last line from a crash is skipped.
+     */
+    Map<String, Map<String, Object>> readRecords() {
+        Map<String, Map<String, Object>> open = new LinkedHashMap<>();
+        synchronized (fileLock) {
+            if (!Files.isRegularFile(file)) {
+                return open;
+            }
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException("failed to read status outbox: " + file, e);
+            }
+            for (String line : lines) {
+                Map<String, Object> record;
+                try {
+                    record = Json.of(line).asMap();
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                Object id = record.get("id");
+                if (id == null) {
+                    continue;
+                }
+                if (record.containsKey("state")) {
+                    open.remove(id.toString());
+                } else {
+                    open.put(id.toString(), record);
+                }
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Rewrites the file with only the entries that are still open (other accounts' leftovers), once idle. The new
+     * content goes to a temp file that replaces the outbox atomically, so a crash never leaves it truncated.
+     */
+    private void compact() {
+        synchronized (fileLock) {
+            if (!pending.isEmpty()) {
+                return;
+            }
+            Map<String, Map<String, Object>> open = readRecords();
+            try {
+                if (open.isEmpty()) {
+                    Files.deleteIfExists(file);
+                    return;
+                }
+                StringBuilder content = new StringBuilder();
+                for (Map<String, Object> record : open.values()) {
+                    content.append(Json.of(record).toString()).append('\n');
+                }
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.writeString(temp, content.toString(), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // compaction is an optimisation; the next run reads the uncompacted file just as well
+            }
+        }
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            long value = Long.parseLong(raw.trim());
+            return value > 0 ? value : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * One pending session update.
+     */
+    static final class Entry {
+
+        private final String id;
+        private final String sessionId;
+        private final String username;
+        private final String accessKey;
+        private final Map<String, Object> fields;
+        private int attempts;
+        private long dueAt;
+
+        private Entry(String id, String sessionId, String username, String accessKey, Map<String, Object> fields) {
+            this.id = id;
+            this.sessionId = sessionId;
+            this.username = username;
+            this.accessKey = accessKey;
+            this.fields = fields;
+        }
+
+        String sessionId() {
+            return sessionId;
+        }
+
+        private Map<String, Object> toRecord() {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", id);
+            record.put("sessionId", sessionId);
+            record.put("username", username);
+            record.put("fields", fields);
+            return record;
+        }
+    }
+}
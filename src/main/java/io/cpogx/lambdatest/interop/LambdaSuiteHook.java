@@ -0,0 +1,288 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.RuntimeHook;
+import com.intuit.karate.Suite;
+import com.intuit.karate.core.FeatureCall;
+import com.intuit.karate.core.FeatureRuntime;
+import com.intuit.karate.core.FeatureSection;
+import com.intuit.karate.core.Scenario;
+import com.intuit.karate.core.ScenarioRuntime;
+import com.intuit.karate.core.StepResult;
+import io.cpogx.lambdatest.session.LambdaScenarioDemand;
+import io.cpogx.lambdatest.session.LambdaSessionBroker;
+import io.cpogx.lambdatest.session.LambdaSessionPool;
+
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Karate suite hook that waits for background LambdaTest work and releases pooled sessions before the runner returns.
+ * It also tracks how many selected scenarios are still to run, which drives session look-ahead.
+ * Register with {@code Runner.Builder.hook(new LambdaSuiteHook())}.
+ */
+public class LambdaSuiteHook implements RuntimeHook {
+
+    private static final long DEFAULT_DRAIN_TIMEOUT_MS = 600_000L;
+
+    private static final AtomicInteger ACTIVE_SUITES = new AtomicInteger();
+    private static final Map<Suite, SuiteDemand> SUITE_DEMAND = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> ATTACHED_REPORT_DIRS = new ConcurrentHashMap<>();
+
+    private final long drainTimeoutMs;
+
+    public LambdaSuiteHook() {
+        this(readLong("lt.video.drain.timeout-ms", DEFAULT_DRAIN_TIMEOUT_MS));
+    }
+
+    public LambdaSuiteHook(long drainTimeoutMs) {
+        this.drainTimeoutMs = drainTimeoutMs;
+    }
+
+    @Override
+    public void beforeSuite(Suite suite) {
+        ACTIVE_SUITES.incrementAndGet();
+        attach(suite.reportDir);
+        int scenarios = countScenarios(suite);
+        SuiteDemand demand = new SuiteDemand(demandFingerprint(suite), scenarios);
+        SUITE_DEMAND.put(suite, demand);
+        LambdaScenarioDemand.expect(demand.fingerprint, scenarios);
+        stageUserFiles(suite);
+        recoverStatusOutbox(suite);
+    }
+
+    @Override
+    public boolean beforeScenario(ScenarioRuntime sr) {
+        if (sr.caller == null || sr.caller.depth == 0) {
+            SuiteDemand demand = SUITE_DEMAND.get(sr.featureRuntime.suite);
+            if (demand == null || demand.started.incrementAndGet() <= demand.expected) {
+                LambdaScenarioDemand.scenarioStarted(demand == null ? "" : demand.fingerprint);
+            }
+            LambdaTrace.scenarioStarted(sr.featureRuntime.suite.reportDir, sr.scenario.getRefIdAndName());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterStep(StepResult result, ScenarioRuntime sr) {
+        if (!LambdaTrace.enabled()) {
+            return;
+        }
+        long endedAt = System.nanoTime();
+        String text = result.getStep().getText();
+        LambdaTrace.complete(result.getStep().getPrefix() + " " + text, text.startsWith("screenshot(") ? "screenshot" : "step",
+                endedAt - result.getResult().getDurationNanos(), endedAt, null);
+        // the driver step creates the session right after LambdaDriverTarget.start
+        LambdaTrace.sessionReady(endedAt);
+    }
+
+    @Override
+    public void afterScenario(ScenarioRuntime sr) {
+        if (sr.caller == null || sr.caller.depth == 0) {
+            LambdaTrace.scenarioEnded();
+        }
+    }
+
+    @Override
+    public void afterFeature(FeatureRuntime fr) {
+        // scenarios still being finalized give their slot back once their session is quit
+        LambdaSessionFinalizer.shared().releaseUnfinalized(
+                owner -> owner instanceof ScenarioRuntime sr && sr.featureRuntime == fr);
+    }
+
+    @Override
+    public void afterSuite(Suite suite) {
+        // one bound for all of the suite's background work, shared by the drains below
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, drainTimeoutMs));
+        SuiteDemand demand = SUITE_DEMAND.remove(suite);
+        if (demand != null) {
+            LambdaScenarioDemand.finished(demand.fingerprint, demand.expected, demand.expected - demand.started.get());
+        }
+        // finalizer pipelines quit the sessions and queue per-session videos, so they are drained first
+        LambdaSessionFinalizer.shared().drain(remainingMs(deadline));
+        if (LambdaStatusOutbox.restMode()) {
+            LambdaStatusOutbox.shared().drain(remainingMs(deadline));
+        }
+        LambdaVideoHarvester.shared().drain(remainingMs(deadline));
+        LambdaTrace.suiteStarted(suite.reportDir);
+        try {
+            harvestBuild(suite, remainingMs(deadline));
+        } finally {
+            LambdaTrace.scenarioFinished();
+        }
+        exportMetrics();
+        exportTrace(suite);
+        detach(suite.reportDir);
+        // suites of other matrix cells may still be running on their own brokers
+        if (ACTIVE_SUITES.decrementAndGet() <= 0) {
+            ACTIVE_SUITES.set(0);
+            LambdaSessionBroker.closeAll();
+        }
+    }
+
+    /**
+     * {@code true} while a suite writing to {@code reportDir} runs with this hook, so its background work is drained
+     * before the runner returns.
+     */
+    public static boolean isAttached(String reportDir) {
+        return reportDir != null && ATTACHED_REPORT_DIRS.containsKey(reportDir);
+    }
+
+    static void attach(String reportDir) {
+        if (reportDir != null) {
+            ATTACHED_REPORT_DIRS.merge(reportDir, 1, Integer::sum);
+        }
+    }
+
+    static void detach(String reportDir) {
+        if (reportDir != null) {
+            ATTACHED_REPORT_DIRS.computeIfPresent(reportDir, (ignored, suites) -> suites > 1 ? suites - 1 : null);
+        }
+    }
+
+    /**
+     * Pre-uploads {@code lt.user.files.dir} (once per JVM and account) and adds the file names to the suite's
+     * {@code lt.user.files}, which {@code LambdaDriverTarget} merges into {@code lambda:userFiles}.
+     */
+    private static void stageUserFiles(Suite suite) {
+        List<String> staged = LambdaUserFileStager.stageConfigured(suite.systemProperties);
+        if (staged.isEmpty() || suite.systemProperties == null) {
+            return;
+        }
+        Set<String> files = new LinkedHashSet<>();
+        String configured = suite.systemProperties.get("lt.user.files");
+        if (configured != null) {
+            for (String file : configured.split(",")) {
+                if (!file.isBlank()) {
+                    files.add(file.trim());
+                }
+            }
+        }
+        files.addAll(staged);
+        suite.systemProperties.put("lt.user.files", String.join(",", files));
+    }
+
+    /**
+     * Re-sends session status updates a crashed earlier run left in the outbox ({@code -Dlt.status.mode=rest}).
+     */
+    private static void recoverStatusOutbox(Suite suite) {
+        if (!LambdaStatusOutbox.restMode() || suite.systemProperties == null) {
+            return;
+        }
+        String username = suite.systemProperties.get("lt.username");
+        String accessKey = suite.systemProperties.get("lt.accessKey");
+        if (username != null && !username.isBlank() && accessKey != null && !accessKey.isBlank()) {
+            LambdaStatusOutbox.shared().recover(username.trim(), accessKey.trim());
+        }
+    }
+
+    /**
+     * Collects videos and logs of the suite's sessions in one pass ({@link LambdaBuildHarvester}), within what is
+     * left of the drain timeout.
+     */
+    private static void harvestBuild(Suite suite, long timeoutMs) {
+        try {
+            LambdaBuildHarvester.shared().harvest(suite.reportDir, timeoutMs);
+        } catch (RuntimeException ignored) {
+            // artifacts are diagnostics; a failed harvest does not fail the suite
+        }
+    }
+
+    /**
+     * Writes the remote call metrics recorded so far (all suites of this JVM) to {@link LambdaMetrics#exportFile()}.
+     */
+    private static void exportMetrics() {
+        try {
+            LambdaMetrics.export(LambdaMetrics.exportFile());
+        } catch (RuntimeException ignored) {
+            // metrics are diagnostics; a failed export does not fail the suite
+        }
+    }
+
+    /**
+     * Writes the suite's scenario timeline to {@link LambdaTrace#FILE_NAME} in the report dir.
+     */
+    private static void exportTrace(Suite suite) {
+        try {
+            LambdaTrace.export(suite.reportDir, Path.of(suite.reportDir, LambdaTrace.FILE_NAME));
+        } catch (RuntimeException ignored) {
+            // like metrics, the trace is diagnostics only
+        }
+    }
+
+    /**
+     * Top-level scenarios matching the suite's tag selector, or {@code -1} when the count is only known at run time
+     * (dynamic outlines).
+     */
+    static int countScenarios(Suite suite) {
+        if (suite == null || suite.features == null) {
+            return -1;
+        }
+        int count = 0;
+        for (FeatureCall call : suite.features) {
+            for (FeatureSection section : call.feature.getSections()) {
+                if (section.isOutline()) {
+                    for (Scenario scenario : section.getScenarioOutline().getScenarios()) {
+                        if (scenario.isDynamic()) {
+                            return -1;
+                        }
+                        count += selected(suite, scenario) ? 1 : 0;
+                    }
+                } else {
+                    count += selected(suite, section.getScenario()) ? 1 : 0;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Capability fingerprint of the suite's sessions (from the {@code karate.*} properties a {@code LambdaDriverTarget}
+     * sets), or {@code ""} when the suite does not name a browser.
+     */
+    static String demandFingerprint(Suite suite) {
+        Map<String, String> props = suite == null ? null : suite.systemProperties;
+        if (props == null || props.get("karate.browser.name") == null || props.get("karate.browser.name").isBlank()) {
+            return "";
+        }
+        return LambdaSessionPool.fingerprint(props.get("karate.browser.name"), props.get("karate.browser.version"),
+                props.get("karate.platform.name"), props.get("lt.tunnel.name"));
+    }
+
+    private static boolean selected(Suite suite, Scenario scenario) {
+        return scenario.getTagsEffective().evaluate(suite.tagSelector, suite.env);
+    }
+
+    private static long remainingMs(long deadline) {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final class SuiteDemand {
+
+        private final String fingerprint;
+        private final int expected;
+        private final AtomicInteger started = new AtomicInteger();
+
+        private SuiteDemand(String fingerprint, int expected) {
+            this.fingerprint = fingerprint;
+            this.expected = expected;
+        }
+    }
+}
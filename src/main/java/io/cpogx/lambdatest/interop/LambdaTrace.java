@@ -0,0 +1,270 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-scenario phase timeline: capability build, admission wait, session creation, every step, every remote call
+ * and the finalizer steps (status, quit, video harvest), recorded as Chrome trace-event spans with one track per
+ * thread. {@link LambdaSuiteHook} writes each suite's spans to {@value #FILE_NAME} in its report dir; open it in
+ * {@code chrome://tracing} or Perfetto. Off unless {@code -Dlt.trace=true}; spans recorded outside a scenario or
+ * suite binding are dropped.
+ */
+public final class LambdaTrace {
+
+    public static final String FILE_NAME = "lambdatest-trace.json";
+
+    private static final int DEFAULT_MAX_EVENTS = 200_000;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+    private static final long ORIGIN_EPOCH_MICROS = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    private static final int MAX_EVENTS = maxEvents();
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+    private static final ThreadLocal<Long> SESSION_REQUESTED = new ThreadLocal<>();
+    private static final Map<String, Queue<Map<String, Object>>> EVENTS = new ConcurrentHashMap<>();
+    private static final Map<Long, String> THREADS = new ConcurrentHashMap<>();
+    private static final AtomicInteger SIZE = new AtomicInteger();
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    private static volatile boolean enabled = "true".equalsIgnoreCase(String.valueOf(System.getProperty("lt.trace")).trim());
+
+    private LambdaTrace() {
+    }
+
+    /**
+     * {@code true} with {@code -Dlt.trace=true}; the property is read once, when the class is loaded.
+     */
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Binds the current thread to a scenario of the suite writing to {@code reportDir}; spans recorded on this
+     * thread carry the scenario name until {@link #scenarioFinished()} or the next scenario.
+     */
+    public static void scenarioStarted(String reportDir, String scenario) {
+        SESSION_REQUESTED.remove();
+        if (enabled) {
+            CONTEXT.set(new Context(reportDir == null ? "" : reportDir, scenario, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Binds the current thread to the suite writing to {@code reportDir} outside any scenario (e.g. the end-of-suite
+     * harvest); cleared by {@link #scenarioFinished()}.
+     */
+    public static void suiteStarted(String reportDir) {
+        scenarioStarted(reportDir, null);
+    }
+
+    /**
+     * Records the {@code scenario} span from {@link #scenarioStarted} until now. The binding stays in place, since
+     * Karate stops the driver target after the {@code afterScenario} hooks.
+     */
+    public static void scenarioEnded() {
+        Context context = CONTEXT.get();
+        if (context != null) {
+            complete("scenario", "scenario", context.startedAtNanos, System.nanoTime(), null);
+        }
+    }
+
+    public static void scenarioFinished() {
+        CONTEXT.remove();
+        SESSION_REQUESTED.remove();
+    }
+
+    /**
+     * Marks the start of session creation on this thread (right after the capabilities are handed to Karate).
+     */
+    public static void sessionRequested() {
+        if (enabled) {
+            SESSION_REQUESTED.set(System.nanoTime());
+        }
+    }
+
+    /**
+     * Closes the {@code session} span opened by {@link #sessionRequested()}, if any, at {@code readyAtNanos}.
+     */
+    public static void sessionReady(long readyAtNanos) {
+        Long requestedAt = SESSION_REQUESTED.get();
+        if (requestedAt != null) {
+            SESSION_REQUESTED.remove();
+            complete("session", "session", requestedAt, readyAtNanos, null);
+        }
+    }
+
+    /**
+     * Wraps {@code action} to run as span {@code name} in the scenario that is current on the calling thread,
+     * e.g. for work handed to a background executor.
+     */
+    public static Runnable traced(String name, String category, Runnable action) {
+        Context context = CONTEXT.get();
+        if (context == null) {
+            return action;
+        }
+        return () -> {
+            Context previous = CONTEXT.get();
+            CONTEXT.set(context);
+            long startedAt = System.nanoTime();
+            try {
+                action.run();
+            } finally {
+                complete(name, category, startedAt, System.nanoTime(), null);
+                if (previous == null) {
+                    CONTEXT.remove();
+                } else {
+                    CONTEXT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Records one finished span on the current thread's track.
+     */
+    public static void complete(String name, String category, long startedAtNanos, long endedAtNanos, Map<String, Object> args) {
+        Context context = CONTEXT.get();
+        if (!enabled || context == null) {
+            // without a binding there is no suite to attribute the span to
+            return;
+        }
+        if (SIZE.incrementAndGet() > MAX_EVENTS) {
+            SIZE.decrementAndGet();
+            DROPPED.incrementAndGet();
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        long tid = thread.getId();
+        THREADS.putIfAbsent(tid, thread.getName());
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", name);
+        event.put("cat", category);
+        event.put("ph", "X");
+        event.put("ts", ORIGIN_EPOCH_MICROS + TimeUnit.NANOSECONDS.toMicros(startedAtNanos - ORIGIN_NANOS));
+        event.put("dur", Math.max(0L, TimeUnit.NANOSECONDS.toMicros(endedAtNanos - startedAtNanos)));
+        event.put("pid", 1);
+        event.put("tid", tid);
+        Map<String, Object> eventArgs = new LinkedHashMap<>();
+        if (context != null && context.scenario != null) {
+            eventArgs.put("scenario", context.scenario);
+        }
+        if (args != null) {
+            eventArgs.putAll(args);
+        }
+        if (!eventArgs.isEmpty()) {
+            event.put("args", eventArgs);
+        }
+        EVENTS.computeIfAbsent(context.reportDir, ignored -> new ConcurrentLinkedQueue<>()).add(event);
+    }
+
+    /**
+     * Removes and returns the spans recorded for {@code reportDir}'s suite.
+     */
+    static List<Map<String, Object>> drain(String reportDir) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        drainInto(events, reportDir == null ? "" : reportDir);
+        events.sort((a, b) -> Long.compare((Long) a.get("ts"), (Long) b.get("ts")));
+        return events;
+    }
+
+    /**
+     * Writes the suite's spans as a Chrome trace-event document to {@code file} (replacing it atomically); returns
+     * {@code null} when nothing was recorded.
+     */
+    public static Path export(String reportDir, Path file) {
+        List<Map<String, Object>> events = drain(reportDir);
+        if (file == null || events.isEmpty()) {
+            return null;
+        }
+        Map<Long, String> threads = new TreeMap<>();
+        for (Map<String, Object> event : events) {
+            Long tid = (Long) event.get("tid");
+            threads.put(tid, THREADS.getOrDefault(tid, "thread-" + tid));
+        }
+        List<Map<String, Object>> traceEvents = new ArrayList<>();
+        traceEvents.add(metadata("process_name", 0L, "lambdatest"));
+        threads.forEach((tid, name) -> traceEvents.add(metadata("thread_name", tid, name)));
+        traceEvents.addAll(events);
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("traceEvents", traceEvents);
+        document.put("displayTimeUnit", "ms");
+        document.put("otherData", Map.of("dropped", DROPPED.getAndSet(0L)));
+        Path target = file.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.writeString(temp, Json.of(document).toString(), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("trace export failed: " + target, e);
+        }
+        return target;
+    }
+
+    private static void drainInto(List<Map<String, Object>> events, String key) {
+        Queue<Map<String, Object>> queue = EVENTS.get(key);
+        if (queue == null) {
+            return;
+        }
+        Map<String, Object> event;
+        while ((event = queue.poll()) != null) {
+            SIZE.decrementAndGet();
+            events.add(event);
+        }
+    }
+
+    private static Map<String, Object> metadata(String name, long tid, String value) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", name);
+        event.put("ph", "M");
+        event.put("pid", 1);
+        event.put("tid", tid);
+        event.put("args", Map.of("name", value));
+        return event;
+    }
+
+    private static int maxEvents() {
+        String raw = System.getProperty("lt.trace.max-events");
+        if (raw == null || raw.isBlank()) {
+            return DEFAULT_MAX_EVENTS;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(raw.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_MAX_EVENTS;
+        }
+    }
+
+    private static final class Context {
+
+        private final String reportDir;
+        private final String scenario;
+        private final long startedAtNanos;
+
+        private Context(String reportDir, String scenario, long startedAtNanos) {
+            this.reportDir = reportDir;
+            this.scenario = scenario;
+            this.startedAtNanos = startedAtNanos;
+        }
+    }
+}
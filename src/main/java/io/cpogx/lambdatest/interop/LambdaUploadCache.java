@@ -0,0 +1,145 @@
+package io.cpogx.lambdatest.interop;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remote paths of files already uploaded to a WebDriver session ({@code /se/file}), keyed by session id,
+ * file name and SHA-256 of the content, so repeated uploads of the same fixture skip the transfer.
+ * File digests are memoized by path, size and modification time. Both maps keep the {@code maxEntries} most recently
+ * used entries.
+ */
+public final class LambdaUploadCache {
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final LambdaUploadCache SHARED = new LambdaUploadCache(4096);
+
+    private final Map<String, String> remotePaths;
+    private final Map<Path, FileDigest> digests;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public LambdaUploadCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.remotePaths = lru(maxEntries);
+        this.digests = lru(maxEntries);
+    }
+
+    public static LambdaUploadCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Remote path stored for the file in this session, or {@code null} (counted as a miss).
+     */
+    public String lookup(String sessionId, Path file) {
+        String remotePath = remotePaths.get(key(sessionId, file));
+        if (remotePath == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return remotePath;
+    }
+
+    public void put(String sessionId, Path file, String remotePath) {
+        remotePaths.put(key(sessionId, file), remotePath);
+    }
+
+    /**
+     * Drops the entries of a session that has ended; its remote files are gone with it.
+     */
+    public void forgetSession(String sessionId) {
+        if (sessionId != null) {
+            String prefix = sessionId + '\n';
+            synchronized (remotePaths) {
+                remotePaths.keySet().removeIf(key -> key.startsWith(prefix));
+            }
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return remotePaths.size();
+    }
+
+    public void clear() {
+        remotePaths.clear();
+        digests.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Hex SHA-256 of the file, recomputed only when its size or modification time changed.
+     */
+    public String sha256(Path file) {
+        try {
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            FileDigest cached = digests.get(file);
+            if (cached != null && cached.size == size && cached.modified == modified) {
+                return cached.sha256;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            try (InputStream in = Files.newInputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            digests.put(file, new FileDigest(size, modified, sha256));
+            return sha256;
+        } catch (IOException e) {
+            throw new RuntimeException("failed to hash upload file: " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static <K, V> Map<K, V> lru(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    private String key(String sessionId, Path file) {
+        return sessionId + '\n' + file.getFileName() + '\n' + sha256(file);
+    }
+
+    private static final class FileDigest {
+
+        private final long size;
+        private final long modified;
+        private final String sha256;
+
+        private FileDigest(long size, long modified, String sha256) {
+            this.size = size;
+            this.modified = modified;
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams files to a WebDriver {@code /se/file} endpoint as {@code {"file":"<base64 zip>"}} without holding the
+ * archive in memory: file, deflate, base64 and the JSON body are chained through a small pipe.
+ * Already-compressed types (archives, media, images) are stored without deflate.
+ */
+final class LambdaUploadStream {
+
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] BODY_PREFIX = "{\"file\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final Set<String> STORED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jar", "apk", "ipa",
+            "mp4", "mov", "m4v", "webm", "mkv", "avi", "mp3", "m4a", "ogg",
+            "png", "jpg", "jpeg", "gif", "webp", "heic", "docx", "xlsx", "pptx");
+
+    private LambdaUploadStream() {
+    }
+
+    /**
+     * POSTs the files as one archive to {@code endpoint} and returns the response's {@code value}.
+     */
+    static Object upload(HttpClient client, URI endpoint, String authorization, List<Path> files, Duration timeout) {
+        return upload(client, endpoint, authorization, files, timeout, status -> { });
+    }
+
+    /**
+     * Same as above; {@code onStatus} receives the HTTP status once a response arrived.
+     */
+    static Object upload(HttpClient client, URI endpoint, String authorization, List<Path> files, Duration timeout,
+                         IntConsumer onStatus) {
+        AtomicReference<Throwable> writeError = new AtomicReference<>();
+        AtomicReference<InputStream> body = new AtomicReference<>();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    InputStream in = pipe(files, writeError);
+                    body.set(in);
+                    return in;
+                }));
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+        HttpResponse<String> response;
+        try {
+            response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("remote file upload interrupted", e);
+        } catch (IOException e) {
+            Throwable cause = writeError.get() == null ? e : writeError.get();
+            throw new RuntimeException("remote file upload failed: " + cause.getMessage(), cause);
+        } finally {
+            closeQuietly(body.get());
+        }
+        onStatus.accept(response.statusCode());
+        if (writeError.get() != null) {
+            throw new RuntimeException("failed to prepare zip payload: " + writeError.get().getMessage(), writeError.get());
+        }
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("remote file upload failed: status=" + response.statusCode()
+                    + ", body=" + response.body());
+        }
+        Json json = Json.of(response.body());
+        return json.pathExists("value") ? json.get("value") : null;
+    }
+
+    /**
+     * Writes the complete JSON request body for the files to {@code out}.
+     */
+    static void writeBody(List<Path> files, OutputStream out) throws IOException {
+        out.write(BODY_PREFIX);
+        OutputStream base64 = Base64.getEncoder().wrap(new NonClosingOutputStream(out));
+        try (ZipOutputStream zip = new ZipOutputStream(base64)) {
+            byte[] buffer = new byte[PIPE_BUFFER_SIZE];
+            for (Path file : files) {
+                ZipEntry entry = new ZipEntry(file.getFileName().toString());
+                if (storeWithoutDeflate(file)) {
+                    entry.setMethod(ZipEntry.STORED);
+                    long size = Files.size(file);
+                    entry.setSize(size);
+                    entry.setCompressedSize(size);
+                    entry.setCrc(crc32(file, buffer));
+                }
+                zip.putNextEntry(entry);
+                try (InputStream in = Files.newInputStream(file)) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        zip.write(buffer, 0, read);
+                    }
+                }
+                zip.closeEntry();
+            }
+        }
+        out.write(BODY_SUFFIX);
+    }
+
+    static boolean storeWithoutDeflate(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static InputStream pipe(List<Path> files, AtomicReference<Throwable> writeError) {
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Thread writer = new Thread(() -> {
+            try {
+                writeBody(files, out);
+            } catch (IOException | RuntimeException e) {
+                // record before closing, so the reader never sees a clean EOF for a broken body
+                writeError.compareAndSet(null, e);
+            } finally {
+                closeQuietly(out);
+            }
+        }, "lambda-upload-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return in;
+    }
+
+    private static void closeQuietly(Closeable in) {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    private static long crc32(Path file, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Lets the base64 encoder flush its padding on close without closing the underlying body stream.
+     */
+    private static final class NonClosingOutputStream extends OutputStream {
+
+        private final OutputStream delegate;
+
+        private NonClosingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+    }
+}
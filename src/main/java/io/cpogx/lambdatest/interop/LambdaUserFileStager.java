@@ -0,0 +1,259 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Stages a fixtures directory into LambdaTest user storage once per build, so sessions reference the files through
+ * {@code lambda:userFiles} instead of uploading them via {@code /se/file}.
+ * A local manifest of name → SHA-256 per account keeps unchanged files from being uploaded again.
+ */
+public final class LambdaUserFileStager {
+
+    static final String DEFAULT_MANIFEST = "build/lambdatest-user-files.json";
+
+    private static final Map<String, CompletableFuture<List<String>>> STAGED_DIRS = new ConcurrentHashMap<>();
+
+    private final LambdaApiClient client;
+    private final Path manifest;
+    private final int parallelism;
+
+    public LambdaUserFileStager(LambdaApiClient client, Path manifest, int parallelism) {
+        if (client == null) {
+            throw new IllegalArgumentException("client is required");
+        }
+        this.client = client;
+        this.manifest = manifest == null ? Path.of(DEFAULT_MANIFEST) : manifest;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Stages {@code lt.user.files.dir} when set ({@code lt.user.files.manifest}, {@code lt.user.files.parallelism});
+     * each directory is staged once per JVM and account, concurrent callers wait for the first. Returns the staged file
+     * names, empty when nothing is configured.
+     */
+    public static List<String> stageConfigured(Map<String, String> props) {
+        String dir = pick(props, "lt.user.files.dir");
+        if (dir == null) {
+            return List.of();
+        }
+        String username = pick(props, "lt.username");
+        String accessKey = pick(props, "lt.accessKey");
+        if (username == null || accessKey == null) {
+            throw new IllegalArgumentException("lt.user.files.dir requires lt.username and lt.accessKey");
+        }
+        Path fixtures = Path.of(dir).toAbsolutePath().normalize();
+        LambdaApiClient client = LambdaApiClient.shared(username, accessKey);
+        String key = fixtures + "\n" + client.apiBaseUrl() + "\n" + username;
+        CompletableFuture<List<String>> staging = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = STAGED_DIRS.putIfAbsent(key, staging);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            String manifest = pick(props, "lt.user.files.manifest");
+            LambdaUserFileStager stager = new LambdaUserFileStager(client,
+                    Path.of(manifest == null ? DEFAULT_MANIFEST : manifest),
+                    parseInt(pick(props, "lt.user.files.parallelism"), 4));
+            List<String> files = stager.stage(fixtures).files();
+            staging.complete(files);
+            return files;
+        } catch (RuntimeException e) {
+            // a later suite tries again
+            STAGED_DIRS.remove(key, staging);
+            staging.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets which directories were staged in this JVM.
+     */
+    static void reset() {
+        STAGED_DIRS.clear();
+    }
+
+    /**
+     * Uploads new or changed regular files below {@code fixtures} and records them in the manifest.
+     * File names must be unique, since user storage is flat.
+     */
+    public Result stage(Path fixtures) {
+        if (fixtures == null || !Files.isDirectory(fixtures)) {
+            throw new IllegalArgumentException("fixtures directory does not exist: " + fixtures);
+        }
+        Map<String, Path> files = scan(fixtures);
+        String account = client.apiBaseUrl() + " " + client.username();
+        Map<String, Object> recorded = readManifest(account);
+        Map<String, String> digests = new LinkedHashMap<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            String sha256 = LambdaUploadCache.shared().sha256(file.getValue());
+            digests.put(file.getKey(), sha256);
+            if (!sha256.equals(recorded.get(file.getKey()))) {
+                changed.add(file.getKey());
+            }
+        }
+
+        Map<String, Object> uploaded = new TreeMap<>(recorded);
+        List<String> failures = new ArrayList<>();
+        if (!changed.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, changed.size()), runnable -> {
+                Thread thread = new Thread(runnable, "lambda-user-files");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Map<String, Future<?>> uploads = new LinkedHashMap<>();
+                for (String name : changed) {
+                    Path file = files.get(name);
+                    uploads.put(name, executor.submit(() -> client.uploadUserFile(file)));
+                }
+                for (Map.Entry<String, Future<?>> upload : uploads.entrySet()) {
+                    String failure = await(upload.getValue());
+                    if (failure == null) {
+                        uploaded.put(upload.getKey(), digests.get(upload.getKey()));
+                    } else {
+                        failures.add(upload.getKey() + ": " + failure);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            writeManifest(account, uploaded);
+        }
+        if (!failures.isEmpty()) {
+            throw new RuntimeException("user file staging failed for " + failures.size() + " of " + changed.size()
+                    + " files: " + String.join("; ", failures));
+        }
+        return new Result(new ArrayList<>(files.keySet()), changed);
+    }
+
+    private static Map<String, Path> scan(Path fixtures) {
+        Map<String, Path> files = new TreeMap<>();
+        try (Stream<Path> walk = Files.walk(fixtures)) {
+            for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile).sorted()::iterator) {
+                Path previous = files.put(file.getFileName().toString(), file);
+                if (previous != null) {
+                    throw new IllegalArgumentException("duplicate user file name: " + previous + " and " + file);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed to scan fixtures directory: " + fixtures, e);
+        }
+        return files;
+    }
+
+    private Map<String, Object> readManifest(String account) {
+        if (!Files.isRegularFile(manifest)) {
+            return Map.of();
+        }
+        try {
+            Json json = Json.of(Files.readString(manifest, StandardCharsets.UTF_8));
+            if (!account.equals(json.getOptional("account").orElse(null))) {
+                return Map.of();
+            }
+            Map<String, Object> files = json.<Map<String, Object>>getOptional("files").orElse(null);
+            return files == null ? Map.of() : files;
+        } catch (IOException | RuntimeException e) {
+            // an unreadable manifest only costs a full re-upload
+            return Map.of();
+        }
+    }
+
+    private void writeManifest(String account, Map<String, Object> files) {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("account", account);
+        content.put("files", files);
+        try {
+            Path parent = manifest.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+            Files.writeString(temp, Json.of(content).toStringPretty(), StandardCharsets.UTF_8);
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to write user file manifest: " + manifest, e);
+        }
+    }
+
+    private static String await(Future<?> upload) {
+        try {
+            upload.get();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (ExecutionException e) {
+            return String.valueOf(e.getCause() == null ? e : e.getCause().getMessage());
+        }
+    }
+
+    private static String pick(Map<String, String> props, String key) {
+        String value = props == null ? null : trimToNull(props.get(key));
+        return value == null ? trimToNull(System.getProperty(key)) : value;
+    }
+
+    private static int parseInt(String raw, int fallback) {
+        if (raw == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(raw);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Names of all files in the fixtures directory, and the subset that had to be uploaded.
+     */
+    public static final class Result {
+
+        private final List<String> files;
+        private final List<String> uploaded;
+
+        private Result(List<String> files, List<String> uploaded) {
+            this.files = List.copyOf(files);
+            this.uploaded = List.copyOf(uploaded);
+        }
+
+        public List<String> files() {
+            return files;
+        }
+
+        public List<String> uploaded() {
+            return uploaded;
+        }
+    }
+}
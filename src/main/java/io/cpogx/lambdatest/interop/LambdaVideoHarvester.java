@@ -0,0 +1,148 @@
+package io.cpogx.lambdatest.interop;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background video download service so scenario threads do not wait for LambdaTest to finish encoding.
+ * Work is queued on a bounded executor; when the queue is full the submitting thread runs the download itself.
+ */
+public final class LambdaVideoHarvester implements AutoCloseable {
+
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final Object SHARED_LOCK = new Object();
+    private static volatile LambdaVideoHarvester shared;
+
+    private final ThreadPoolExecutor executor;
+    private final Set<CompletableFuture<Path>> pending = ConcurrentHashMap.newKeySet();
+
+    public LambdaVideoHarvester(int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be >= 1");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                30L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "lambda-video-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("video harvester is closed");
+                    }
+                    runnable.run();
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static LambdaVideoHarvester shared() {
+        LambdaVideoHarvester current = shared;
+        if (current != null) {
+            return current;
+        }
+        synchronized (SHARED_LOCK) {
+            if (shared == null) {
+                shared = new LambdaVideoHarvester(
+                        readInt("lt.video.threads", "LT_VIDEO_THREADS", DEFAULT_THREADS),
+                        readInt("lt.video.queue", "LT_VIDEO_QUEUE", DEFAULT_QUEUE_CAPACITY));
+            }
+            return shared;
+        }
+    }
+
+    /**
+     * Queues a video download for the session; the future completes with the written file or {@code null}
+     * when LambdaTest never produced a video.
+     */
+    public CompletableFuture<Path> submit(String sessionId, String username, String accessKey, Path target) {
+        if (target == null) {
+            throw new IllegalArgumentException("video target path is required");
+        }
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        pending.add(future);
+        future.whenComplete((path, error) -> pending.remove(future));
+        try {
+            executor.execute(LambdaTrace.traced("harvest", "video", () -> harvest(future, sessionId, username, accessKey, target)));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Waits for all queued downloads; returns {@code true} when nothing is left pending.
+     */
+    public boolean drain(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+        while (!pending.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            CompletableFuture<?>[] snapshot = pending.toArray(new CompletableFuture<?>[0]);
+            try {
+                CompletableFuture.allOf(snapshot).get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception ignored) {
+                // individual failures are reported through their own futures
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static void harvest(CompletableFuture<Path> future, String sessionId, String username,
+                                String accessKey, Path target) {
+        try {
+            future.complete(LambdaWebDriverInterop.downloadSessionVideoTo(sessionId, username, accessKey, target));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    private static int readInt(String property, String envKey, int fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            raw = System.getenv(envKey);
+        }
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            int value = Integer.parseInt(raw.trim());
+            return value > 0 ? value : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.cpogx.lambdatest.interop;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Polling schedule for LambdaTest video readiness: initial delay, a {@link LambdaBackoff} between polls and an
+ * overall deadline.
+ */
+public final class LambdaVideoPollPolicy {
+
+    private static final String[] PROPERTIES = {"lt.video.poll.initial-delay-ms", "lt.video.poll.interval-ms",
+            "lt.video.poll.max-interval-ms", "lt.video.poll.multiplier", "lt.video.poll.jitter",
+            "lt.video.poll.deadline-ms", "lt.video.poll.fallback-every"};
+
+    private static volatile Configured configured;
+
+    private final long initialDelayMs;
+    private final LambdaBackoff backoff;
+    private final long deadlineMs;
+    private final int fallbackEvery;
+
+    public LambdaVideoPollPolicy(long initialDelayMs,
+                                 long intervalMs,
+                                 long maxIntervalMs,
+                                 double multiplier,
+                                 double jitter,
+                                 long deadlineMs,
+                                 int fallbackEvery) {
+        this.backoff = new LambdaBackoff(intervalMs, maxIntervalMs, multiplier, jitter);
+        this.initialDelayMs = Math.max(0L, initialDelayMs);
+        this.deadlineMs = Math.max(0L, deadlineMs);
+        this.fallbackEvery = Math.max(1, fallbackEvery);
+    }
+
+    /**
+     * The policy configured through {@code lt.video.poll.*}. The properties are validated once per distinct set of
+     * values; an invalid combination falls back to the defaults instead of failing every poll.
+     */
+    public static LambdaVideoPollPolicy fromSystemProperties() {
+        String key = configurationKey();
+        Configured current = configured;
+        if (current != null && current.key.equals(key)) {
+            return current.policy;
+        }
+        LambdaVideoPollPolicy policy;
+        try {
+            policy = new LambdaVideoPollPolicy(
+                    readLong("lt.video.poll.initial-delay-ms", 5_000L),
+                    readLong("lt.video.poll.interval-ms", 1_000L),
+                    readLong("lt.video.poll.max-interval-ms", 15_000L),
+                    readDouble("lt.video.poll.multiplier", 1.5d),
+                    readDouble("lt.video.poll.jitter", 0.2d),
+                    readLong("lt.video.poll.deadline-ms", 180_000L),
+                    (int) readLong("lt.video.poll.fallback-every", 3L));
+        } catch (IllegalArgumentException e) {
+            policy = new LambdaVideoPollPolicy(5_000L, 1_000L, 15_000L, 1.5d, 0.2d, 180_000L, 3);
+        }
+        configured = new Configured(key, policy);
+        return policy;
+    }
+
+    public long initialDelayMs() {
+        return initialDelayMs;
+    }
+
+    public long deadlineMs() {
+        return deadlineMs;
+    }
+
+    /**
+     * How often (in attempts) the endpoint that did not deliver the video URL last time is still tried.
+     */
+    public int fallbackEvery() {
+        return fallbackEvery;
+    }
+
+    /**
+     * Delay before the poll following {@code attempt} (zero-based). A server {@code Retry-After} wins when it is
+     * longer than the computed backoff.
+     */
+    public long delayMs(int attempt, long retryAfterMs) {
+        return backoff.delayMs(attempt, retryAfterMs);
+    }
+
+    /**
+     * Parses a {@code Retry-After} header given either as delta-seconds or as an HTTP date; returns {@code 0}
+     * when absent or unreadable.
+     */
+    static long parseRetryAfterMs(String header) {
+        if (header == null || header.isBlank()) {
+            return 0L;
+        }
+        String text = header.trim();
+        try {
+            return Math.max(0L, Long.parseLong(text) * 1000L);
+        } catch (NumberFormatException ignored) {
+            // fall through to the HTTP-date form
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(text, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0L, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (Exception e) {
+            return 0L;
+        }
+    }
+
+    private static String configurationKey() {
+        StringBuilder key = new StringBuilder();
+        for (String property : PROPERTIES) {
+            key.append(System.getProperty(property)).append('\n');
+        }
+        return key.toString();
+    }
+
+    private static final class Configured {
+
+        private final String key;
+        private final LambdaVideoPollPolicy policy;
+
+        private Configured(String key, LambdaVideoPollPolicy policy) {
+            this.key = key;
+            this.policy = policy;
+        }
+    }
+
+    private static long readLong(String property, long fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static double readDouble(String property, double fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(raw.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
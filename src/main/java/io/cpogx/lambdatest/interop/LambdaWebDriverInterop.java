@@ -1,41 +1,45 @@
 package io.cpogx.lambdatest.interop;
 
+import com.intuit.karate.FileUtils;
 import com.intuit.karate.Json;
+import com.intuit.karate.core.ScenarioEngine;
 import com.intuit.karate.driver.WebDriver;
 import com.intuit.karate.http.Response;
 import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.remote.RemoteWebDriver;
-import org.openqa.selenium.remote.SessionId;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.io.OutputStream;
 import java.net.URI;
-import java.net.URLEncoder;
-import java.net.URLDecoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 public final class LambdaWebDriverInterop {
 
-    private static final String DEFAULT_LT_API_BASE_URL = "https://api.lambdatest.com/automation/api/v1";
-    private static final int SESSION_VIDEO_MAX_ATTEMPTS = 120;
-    private static final long SESSION_VIDEO_RETRY_DELAY_MS = 1000L;
+    private static final String SESSION_VIDEO_DIR = "lambdatest-videos";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     private LambdaWebDriverInterop() {
     }
@@ -49,6 +53,10 @@ public final class LambdaWebDriverInterop {
     }
 
     public static Object execute(Object driverRef, String command, List<?> args) {
+        return execute("execute", driverRef, command, args);
+    }
+
+    private static Object execute(String operation, Object driverRef, String command, List<?> args) {
         if (driverRef == null) {
             throw new IllegalArgumentException("driver reference is required");
         }
@@ -59,7 +67,7 @@ public final class LambdaWebDriverInterop {
 
         if (driverRef instanceof WebDriver webDriver) {
             Json payload = Json.object().set("script", command).set("args", safeArgs);
-            Response response = webDriver.getHttp().path("execute", "sync").post(payload);
+            Response response = post(operation, webDriver, payload, "execute", "sync");
             if (response.getStatus() != 200) {
                 throw new RuntimeException("webdriver execute failed: status=" + response.getStatus()
                         + ", body=" + response.getBodyAsString());
@@ -89,7 +97,7 @@ public final class LambdaWebDriverInterop {
         WebDriver webDriver = requireWebDriver(driverRef);
         Map<String, Object> safeParams = params == null ? Collections.emptyMap() : params;
         Json payload = Json.object().set("cmd", cmd).set("params", safeParams);
-        Response response = webDriver.getHttp().path("goog", "cdp", "execute").post(payload);
+        Response response = post("cdpExecute", webDriver, payload, "goog", "cdp", "execute");
         if (response.getStatus() != 200) {
             throw new RuntimeException("/goog/cdp/execute failed: status=" + response.getStatus()
                     + ", body=" + response.getBodyAsString());
@@ -97,77 +105,82 @@ public final class LambdaWebDriverInterop {
         return response.json() == null ? null : response.json().get("value");
     }
 
-    public static Object intercept(Object driverRef, Map<String, Object> rule) {
-        if (rule == null || rule.isEmpty()) {
-            throw new IllegalArgumentException("intercept rule is required");
-        }
-
-        String url = readNonBlank(rule.get("url"), "intercept rule url is required");
-        String method = trimToNull(rule.get("method"));
-
-        String redirectUrl = trimToNull(rule.get("redirectUrl"));
-        if (redirectUrl != null) {
-            Map<String, Object> args = new LinkedHashMap<>();
-            args.put("url", url);
-            args.put("redirectUrl", redirectUrl);
-            if (method != null) {
-                args.put("method", method);
-            }
-            return execute(driverRef, "lt:intercept:redirect", args);
+    /**
+     * Runs {@code [{ cmd, params, chain }]} with independent commands in flight together and returns ordered
+     * {@code results}, per-command {@code timings} and the aggregated {@code errors}; see {@link LambdaCdpBatch}.
+     */
+    public static Map<String, Object> cdpBatch(Object driverRef, List<Map<String, Object>> commands) {
+        long startedAt = System.nanoTime();
+        try {
+            return LambdaCdpBatch.of(commands).run(requireWebDriver(driverRef));
+        } finally {
+            LambdaTrace.complete("cdpBatch", "remote", startedAt, System.nanoTime(), null);
         }
+    }
 
-        Object errorObj = rule.get("error");
-        String errorCode = trimToNull(rule.get("errorCode"));
-        if (errorObj != null || errorCode != null) {
-            Map<String, Object> args = new LinkedHashMap<>();
-            args.put("url", url);
-            String normalizedError = errorCode != null ? errorCode : String.valueOf(errorObj);
-            args.put("error", normalizedError);
-            return execute(driverRef, "lt:intercept:error", args);
-        }
+    public static Object intercept(Object driverRef, Map<String, Object> rule) {
+        LambdaInterceptRules.Rule compiled = LambdaInterceptRules.compileRule(rule);
+        return execute("intercept", driverRef, compiled.command(), Collections.singletonList(compiled.args()));
+    }
 
-        Map<String, Object> response = toMap(rule.get("response"));
-        if (response == null || response.isEmpty()) {
-            throw new IllegalArgumentException("intercept rule requires response / redirectUrl / error");
-        }
+    /**
+     * Sends a WebDriver BiDi command over the session's websocket and returns its result; see {@link LambdaBidiChannel}.
+     */
+    public static Map<String, Object> bidi(Object driverRef, String method, Map<String, Object> params) {
+        return LambdaBidiChannel.forDriver(driverRef).send(method, params);
+    }
 
-        Map<String, Object> normalizedResponse = new LinkedHashMap<>();
-        Object status = response.get("status");
-        if (status == null) {
-            status = response.get("responseCode");
-        }
-        normalizedResponse.put("status", status == null ? 200 : status);
+    /**
+     * Subscribes to BiDi events or modules (e.g. {@code network}); poll the returned subscription for events.
+     */
+    public static LambdaBidiChannel.Subscription bidiSubscribe(Object driverRef, List<String> events) {
+        return LambdaBidiChannel.forDriver(driverRef).subscribe(events);
+    }
 
-        Map<String, Object> headers = toMap(response.get("headers"));
-        if (headers == null) {
-            headers = toMap(response.get("responseHeaders"));
-        }
-        if (headers != null && !headers.isEmpty()) {
-            normalizedResponse.put("headers", headers);
-        }
+    /**
+     * Console and log entries ({@code log.entryAdded}) of the session.
+     */
+    public static LambdaBidiChannel.Subscription bidiConsole(Object driverRef) {
+        return bidiSubscribe(driverRef, List.of("log.entryAdded"));
+    }
 
-        Object body = response.get("body");
-        if (body == null) {
-            body = response.get("responseBody");
-        }
-        if (body != null) {
-            normalizedResponse.put("body", toJsonString(body));
-        }
+    /**
+     * Same rule shape as {@link #intercept(Object, Map)}, answered over BiDi {@code network.addIntercept}.
+     */
+    public static String bidiIntercept(Object driverRef, Map<String, Object> rule) {
+        return LambdaBidiChannel.forDriver(driverRef).intercept(rule);
+    }
 
-        Map<String, Object> args = new LinkedHashMap<>();
-        args.put("url", url);
-        if (method != null) {
-            args.put("method", method);
-        }
-        args.put("response", normalizedResponse);
-        return execute(driverRef, "lt:intercept:response", args);
+    /**
+     * Registers a whole rule set with as few round-trips as possible and returns per-rule timings;
+     * see {@link LambdaInterceptRules#register(Object)}.
+     */
+    public static Map<String, Object> interceptAll(Object driverRef, List<Map<String, Object>> rules) {
+        return LambdaInterceptRules.compile(rules).register(driverRef);
     }
 
     public static Object lambdaStatus(Object driverRef, String status) {
         if (status == null || status.isBlank()) {
             throw new IllegalArgumentException("lambda status is required");
         }
-        return execute(driverRef, "lambda-status", status.trim().toLowerCase(Locale.ROOT));
+        return execute("lambdaStatus", driverRef, "lambda-status",
+                Collections.singletonList(status.trim().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Queues the session's status (and optional name) on {@link LambdaStatusOutbox#shared()}, to be set through the
+     * REST API after the session was quit.
+     */
+    public static CompletableFuture<Boolean> queueLambdaStatus(String sessionId, String status, String name,
+                                                               String username, String accessKey) {
+        String value = readNonBlank(status, "lambda status is required").toLowerCase(Locale.ROOT);
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (trimToNull(name) != null) {
+            fields.put("name", name.trim());
+        }
+        fields.put("status_ind", value);
+        return LambdaStatusOutbox.shared().enqueue(readNonBlank(sessionId, "sessionId is required"),
+                trimToNull(username), trimToNull(accessKey), fields);
     }
 
     public static String lambdaStatusForError(Object errorMessage) {
@@ -175,11 +188,11 @@ public final class LambdaWebDriverInterop {
     }
 
     public static String sessionId(Object driverRef) {
-        return resolveSessionId(driverRef);
+        return LambdaDriverIntrospection.sessionId(driverRef);
     }
 
     public static byte[] downloadSessionVideo(Object driverRef, String username, String accessKey) {
-        return downloadSessionVideo(resolveSessionId(driverRef), username, accessKey);
+        return downloadSessionVideo(LambdaDriverIntrospection.sessionId(driverRef), username, accessKey);
     }
 
     public static byte[] downloadSessionVideo(String sessionId, String username, String accessKey) {
@@ -190,61 +203,280 @@ public final class LambdaWebDriverInterop {
             return null;
         }
 
-        return downloadSessionVideoInternal(sid, user, key);
+        return pollSessionVideo(sid, user, key, LambdaWebDriverInterop::readVideoBytes);
     }
 
-    private static byte[] downloadSessionVideoInternal(String sessionId, String username, String accessKey) {
-        URI sessionVideoApiUri = sessionVideoApiUri(sessionId);
-        URI sessionApiUri = sessionApiUri(sessionId);
-        if (sessionVideoApiUri == null || sessionApiUri == null) {
+    /**
+     * Streams the session video straight to {@code target} without holding it in memory.
+     * Partial downloads are kept next to the target and resumed with a range request on the next attempt;
+     * a {@code .sha256} sidecar is written once the file is complete.
+     */
+    public static Path downloadSessionVideoTo(String sessionId, String username, String accessKey, Path target) {
+        String sid = trimToNull(sessionId);
+        String user = trimToNull(username);
+        String key = trimToNull(accessKey);
+        if (sid == null || user == null || key == null) {
             return null;
         }
-        HttpClient client = HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .build();
+        if (target == null) {
+            throw new IllegalArgumentException("video target path is required");
+        }
+        Path file = target.toAbsolutePath().normalize();
+        return pollSessionVideo(sid, user, key, (client, uri) -> readVideoToFile(client, uri, file));
+    }
+
+    /**
+     * Downloads the session video into the Karate report dir and returns its report-relative path,
+     * or {@code null} when no video became available.
+     */
+    public static String downloadSessionVideoToReport(String sessionId, String username, String accessKey) {
+        String sid = trimToNull(sessionId);
+        if (sid == null) {
+            return null;
+        }
+        String relativePath = sessionVideoRelativePath(sid);
+        Path target = Path.of(currentReportDir()).resolve(relativePath);
+        return downloadSessionVideoTo(sid, username, accessKey, target) == null ? null : relativePath;
+    }
 
-        for (int i = 0; i < SESSION_VIDEO_MAX_ATTEMPTS; i++) {
-            Map<String, Object> sessionVideo = readJsonMap(client, sessionVideoApiUri, username, accessKey);
-            String videoUrl = extractVideoDownloadUrl(sessionVideo);
-            if (videoUrl == null) {
-                Map<String, Object> sessionDetails = readJsonMap(client, sessionApiUri, username, accessKey);
-                videoUrl = extractVideoDownloadUrl(sessionDetails);
+    /**
+     * Registers the session for the end-of-suite {@link LambdaBuildHarvester} pass (or, with
+     * {@code -Dlt.video.harvest=session} or without a {@link LambdaSuiteHook}, queues the video on
+     * {@link LambdaVideoHarvester#shared()}) and returns the
+     * video path relative to the Karate report dir, so the caller can reference the file before it has been downloaded.
+     */
+    public static String harvestSessionVideo(String sessionId, String username, String accessKey) {
+        String sid = trimToNull(sessionId);
+        String user = trimToNull(username);
+        String key = trimToNull(accessKey);
+        if (sid == null || user == null || key == null) {
+            return null;
+        }
+        String relativePath = sessionVideoRelativePath(sid);
+        if (LambdaBuildHarvester.shared().collects(currentReportDir())) {
+            ScenarioEngine engine = ScenarioEngine.get();
+            String scenario = engine == null || engine.runtime == null ? null : engine.runtime.scenario.getRefIdAndName();
+            LambdaBuildHarvester.shared().register(currentReportDir(), sid, scenario, user, key);
+            return relativePath;
+        }
+        Path target = Path.of(currentReportDir()).resolve(relativePath).toAbsolutePath().normalize();
+        LambdaVideoHarvester.shared().submit(sid, user, key, target);
+        return relativePath;
+    }
+
+    private static <T> T pollSessionVideo(String sessionId, String username, String accessKey,
+                                          BiFunction<LambdaApiClient, URI, T> reader) {
+        LambdaApiClient client = LambdaApiClient.shared(username, accessKey);
+        URI sessionApiUri = client.sessionUri(sessionId);
+        if (sessionApiUri == null) {
+            return null;
+        }
+
+        LambdaVideoPollPolicy policy = LambdaVideoPollPolicy.fromSystemProperties();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.deadlineMs());
+        if (!sleepQuietly(policy.initialDelayMs())) {
+            return null;
+        }
+        for (int attempt = 0; ; attempt++) {
+            boolean preferDetails = client.videoUrlFromSessionDetails();
+            VideoLookup primary = lookupVideoUrl(client, sessionId, preferDetails);
+            if (primary.unauthorized) {
+                return null;
+            }
+            long retryAfterMs = primary.retryAfterMs;
+            String videoUrl = primary.url;
+            if (videoUrl == null && retryAfterMs == 0L && attempt % policy.fallbackEvery() == policy.fallbackEvery() - 1) {
+                VideoLookup secondary = lookupVideoUrl(client, sessionId, !preferDetails);
+                retryAfterMs = secondary.retryAfterMs;
+                videoUrl = secondary.url;
+                if (videoUrl != null) {
+                    client.videoUrlFromSessionDetails(!preferDetails);
+                }
             }
             if (videoUrl != null) {
                 URI videoUri = resolveUri(sessionApiUri, videoUrl);
                 if (videoUri != null) {
-                    byte[] bytes = readVideoBytes(client, videoUri, username, accessKey);
-                    if (bytes != null && bytes.length > 0) {
-                        return bytes;
+                    T result = reader.apply(client, videoUri);
+                    if (result != null) {
+                        return result;
                     }
                 }
             }
-            if (!sleepQuietly(SESSION_VIDEO_RETRY_DELAY_MS)) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0L) {
+                return null;
+            }
+            LambdaMetrics.retry("video", retryAfterMs > 0L ? "rate-limited" : videoUrl == null ? "not-ready" : "download-failed");
+            if (!sleepQuietly(Math.min(policy.delayMs(attempt, retryAfterMs), remainingMs))) {
                 return null;
             }
         }
-        return null;
     }
 
+    /**
+     * Uploads the file to the session via {@code /se/file} and returns its remote path. A file with the same name
+     * and content already uploaded to this session is served from {@link LambdaUploadCache#shared()}
+     * (disable with {@code -Dlt.upload.cache=false}).
+     */
     public static String uploadFile(Object driverRef, String localFilePath) {
+        return uploadFiles(driverRef, List.of(readNonBlank(localFilePath, "localFilePath is required"))).get(0);
+    }
+
+    /**
+     * Uploads several files to the session and returns their remote paths in input order. Cache hits are skipped,
+     * the rest are streamed with up to {@code lt.upload.parallelism} (4) uploads in flight.
+     */
+    public static List<String> uploadFiles(Object driverRef, List<String> localFilePaths) {
         WebDriver webDriver = requireWebDriver(driverRef);
-        Path path = Path.of(localFilePath).toAbsolutePath().normalize();
-        if (!Files.exists(path) || !Files.isRegularFile(path)) {
-            throw new IllegalArgumentException("file does not exist or is not a regular file: " + path);
+        if (localFilePaths == null || localFilePaths.isEmpty()) {
+            throw new IllegalArgumentException("localFilePaths is required");
+        }
+        List<Path> paths = new ArrayList<>();
+        for (String localFilePath : localFilePaths) {
+            Path path = Path.of(readNonBlank(localFilePath, "localFilePath is required")).toAbsolutePath().normalize();
+            if (!Files.exists(path) || !Files.isRegularFile(path)) {
+                throw new IllegalArgumentException("file does not exist or is not a regular file: " + path);
+            }
+            paths.add(path);
         }
-        String encodedZip = encodeFileAsBase64Zip(path);
-        Response response = webDriver.getHttp().path("se", "file").post(Json.object().set("file", encodedZip));
-        if (response.getStatus() != 200) {
-            throw new RuntimeException("remote file upload failed: status=" + response.getStatus()
-                    + ", body=" + response.getBodyAsString());
+        return uploadFiles(webDriver, webDriver.getHttp().urlBase, webDriver.getSessionId(), paths);
+    }
+
+    static List<String> uploadFiles(String webDriverUrl, String sessionId, List<Path> paths) {
+        return uploadFiles(null, webDriverUrl, sessionId, paths);
+    }
+
+    private static List<String> uploadFiles(Object driverRef, String webDriverUrl, String sessionId, List<Path> paths) {
+        boolean cacheEnabled = sessionId != null && !"false".equalsIgnoreCase(trimToNull(System.getProperty("lt.upload.cache")));
+        String[] remotePaths = new String[paths.size()];
+        Map<Path, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            String cached = pending.containsKey(path) || !cacheEnabled ? null : LambdaUploadCache.shared().lookup(sessionId, path);
+            if (cached != null) {
+                remotePaths[i] = cached;
+            } else {
+                pending.computeIfAbsent(path, ignored -> new ArrayList<>()).add(i);
+            }
+        }
+        if (pending.size() == 1) {
+            Path path = pending.keySet().iterator().next();
+            fill(remotePaths, pending.get(path), uploadFileUncached(driverRef, webDriverUrl, sessionId, path), cacheEnabled, sessionId, path);
+        } else if (!pending.isEmpty()) {
+            int threads = (int) Math.min(pending.size(), Math.max(1L, parseLong(System.getProperty("lt.upload.parallelism"), 4L)));
+            ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "lambda-upload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Map<Path, Future<String>> uploads = new LinkedHashMap<>();
+                for (Path path : pending.keySet()) {
+                    uploads.put(path, executor.submit(() -> uploadFileUncached(driverRef, webDriverUrl, sessionId, path)));
+                }
+                for (Map.Entry<Path, Future<String>> upload : uploads.entrySet()) {
+                    Path path = upload.getKey();
+                    fill(remotePaths, pending.get(path), await(upload.getValue()), cacheEnabled, sessionId, path);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return List.of(remotePaths);
+    }
+
+    private static void fill(String[] remotePaths, List<Integer> indexes, String remotePath,
+                             boolean cacheEnabled, String sessionId, Path path) {
+        if (cacheEnabled) {
+            LambdaUploadCache.shared().put(sessionId, path, remotePath);
         }
-        String remotePath = response.json() == null ? null : response.json().get("value");
+        for (int index : indexes) {
+            remotePaths[index] = remotePath;
+        }
+    }
+
+    private static String await(Future<String> upload) {
+        try {
+            return upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("remote file upload interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("remote file upload failed", e.getCause());
+        }
+    }
+
+    private static String uploadFileUncached(Object driverRef, String webDriverUrl, String sessionId, Path path) {
+        Object value = uploadArchive(driverRef, webDriverUrl, sessionId, List.of(path));
+        String remotePath = value == null ? null : value.toString();
         if (remotePath == null || remotePath.isBlank()) {
             throw new RuntimeException("remote file upload returned empty path");
         }
         return remotePath;
     }
 
+    /**
+     * Streams the files as one zip to the session's {@code /se/file} endpoint; the payload is never fully in memory.
+     */
+    private static Object uploadArchive(Object driverRef, String webDriverUrl, String sessionId, List<Path> files) {
+        URI base = URI.create(webDriverUrl);
+        URI endpoint = URI.create(LambdaApiClient.withoutUserInfo(base) + "/session/" + sessionId + "/se/file");
+        String authorization = base.getUserInfo() == null ? null : LambdaApiClient.basicAuthValue(base.getUserInfo());
+        long timeoutMs = Math.max(1L, parseLong(System.getProperty("lt.upload.timeout-ms"), 300_000L));
+        long startedAt = System.nanoTime();
+        AtomicInteger status = new AtomicInteger();
+        try {
+            return LambdaUploadStream.upload(LambdaApiClient.sharedHttpClient(), endpoint, authorization, files,
+                    Duration.ofMillis(timeoutMs), status::set);
+        } finally {
+            LambdaMetrics.call("uploadFile", driverRef, status.get(), startedAt);
+            LambdaMetrics.payload("uploadFile", "request", totalSize(files));
+        }
+    }
+
+    /**
+     * Ends the session on the grid with {@code DELETE /session/{id}}; a session the grid no longer knows counts as
+     * deleted. Used when {@code driver.quit()} does not return in time.
+     */
+    static void deleteSession(String webDriverUrl, String sessionId) {
+        URI base = URI.create(webDriverUrl);
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                        URI.create(LambdaApiClient.withoutUserInfo(base) + "/session/" + sessionId))
+                .timeout(Duration.ofSeconds(30))
+                .DELETE();
+        if (base.getUserInfo() != null) {
+            request.header("Authorization", LambdaApiClient.basicAuthValue(base.getUserInfo()));
+        }
+        HttpResponse<String> response;
+        try {
+            response = LambdaApiClient.sharedHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new RuntimeException("session delete failed: " + sessionId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("session delete interrupted: " + sessionId, e);
+        }
+        int status = response.statusCode();
+        if ((status < 200 || status >= 300) && status != 404) {
+            throw new RuntimeException("session delete failed: status=" + status + ", body=" + response.body());
+        }
+    }
+
+    private static long totalSize(List<Path> files) {
+        long total = 0L;
+        for (Path file : files) {
+            try {
+                total += Files.size(file);
+            } catch (IOException ignored) {
+                return -1L;
+            }
+        }
+        return total;
+    }
+
     public static void inputFile(Object driverRef, String locator, String localFilePath) {
         if (locator == null || locator.isBlank()) {
             throw new IllegalArgumentException("locator is required");
@@ -253,6 +485,18 @@ public final class LambdaWebDriverInterop {
         setElementValue(requireWebDriver(driverRef), locator, remotePath);
     }
 
+    /**
+     * Fills an {@code <input type="file" multiple>} with all files: uploads them via {@link #uploadFiles} and sets
+     * the newline-joined remote paths in one element-value call.
+     */
+    public static void inputFiles(Object driverRef, String locator, List<String> localFilePaths) {
+        if (locator == null || locator.isBlank()) {
+            throw new IllegalArgumentException("locator is required");
+        }
+        List<String> remotePaths = uploadFiles(driverRef, localFilePaths);
+        setElementValue(requireWebDriver(driverRef), locator, String.join("\n", remotePaths));
+    }
+
     public static void inputLambdaUploadedFile(Object driverRef, String locator, String uploadedFileName) {
         if (locator == null || locator.isBlank()) {
             throw new IllegalArgumentException("locator is required");
@@ -260,7 +504,7 @@ public final class LambdaWebDriverInterop {
         if (uploadedFileName == null || uploadedFileName.isBlank()) {
             throw new IllegalArgumentException("uploadedFileName is required");
         }
-        String platformName = resolvePlatformName(driverRef);
+        String platformName = LambdaDriverIntrospection.platformName(driverRef);
         String remotePath = lambdaRemotePath(uploadedFileName, platformName);
         setElementValue(requireWebDriver(driverRef), locator, remotePath);
     }
@@ -304,6 +548,27 @@ public final class LambdaWebDriverInterop {
         return merged;
     }
 
+    /**
+     * POSTs through the driver's Karate {@code Http}, recording latency and payload sizes on {@link LambdaMetrics}.
+     * The payload is serialized once and those bytes are both sent and measured.
+     */
+    private static Response post(String operation, WebDriver webDriver, Json payload, String... path) {
+        byte[] request = payload.toString().getBytes(StandardCharsets.UTF_8);
+        long startedAt = System.nanoTime();
+        int status = 0;
+        try {
+            Response response = webDriver.getHttp().header("Content-Type", "application/json; charset=UTF-8")
+                    .path(path).post(request);
+            status = response.getStatus();
+            byte[] body = response.getBody();
+            LambdaMetrics.payload(operation, "response", body == null ? 0L : body.length);
+            return response;
+        } finally {
+            LambdaMetrics.call(operation, webDriver, status, startedAt);
+            LambdaMetrics.payload(operation, "request", request.length);
+        }
+    }
+
     private static WebDriver requireWebDriver(Object driverRef) {
         if (driverRef instanceof WebDriver webDriver) {
             return webDriver;
@@ -312,40 +577,12 @@ public final class LambdaWebDriverInterop {
                 + (driverRef == null ? "null" : driverRef.getClass().getName()));
     }
 
-    private static String resolvePlatformName(Object driverRef) {
-        if (driverRef instanceof RemoteWebDriver seleniumDriver) {
-            Object platform = seleniumDriver.getCapabilities().getCapability("platformName");
-            if (platform != null && !platform.toString().isBlank()) {
-                return platform.toString();
-            }
-        }
-        if (driverRef instanceof WebDriver karateDriver) {
-            Map<String, Object> options = castStringObjectMap(karateDriver.getOptions().options);
-            if (options != null) {
-                String platform = trimToNull(options.get("platformName"));
-                if (platform != null) {
-                    return platform;
-                }
-                Map<String, Object> capabilities = toMap(options.get("capabilities"));
-                if (capabilities != null) {
-                    String capPlatform = trimToNull(capabilities.get("platformName"));
-                    if (capPlatform != null) {
-                        return capPlatform;
-                    }
-                }
-            }
-        }
-        String system = trimToNull(System.getProperty("karate.platform.name"));
-        return system == null ? "" : system;
-    }
-
     private static void setElementValue(WebDriver webDriver, String locator, String value) {
         String elementId = webDriver.elementId(locator);
-        Response response = webDriver.getHttp().path("element", elementId, "value")
-                .post(Json.object().set("text", value));
+        Response response = post("elementValue", webDriver, Json.object().set("text", value), "element", elementId, "value");
         if (response.getStatus() != 200) {
-            response = webDriver.getHttp().path("element", elementId, "value")
-                    .post(Json.object().set("value", List.of(value)));
+            LambdaMetrics.retry("elementValue", "status-" + response.getStatus());
+            response = post("elementValue", webDriver, Json.object().set("value", List.of(value)), "element", elementId, "value");
         }
         if (response.getStatus() != 200) {
             throw new RuntimeException("remote file input failed: status=" + response.getStatus()
@@ -353,16 +590,6 @@ public final class LambdaWebDriverInterop {
         }
     }
 
-    private static String toJsonString(Object value) {
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof String s) {
-            return s;
-        }
-        return Json.of(value).toString();
-    }
-
     @SuppressWarnings("unchecked")
     private static Map<String, Object> castStringObjectMap(Object value) {
         if (!(value instanceof Map<?, ?> map)) {
@@ -404,137 +631,37 @@ public final class LambdaWebDriverInterop {
         return text;
     }
 
-    private static URI sessionApiUri(String sessionId) {
-        String apiBase = trimToNull(System.getProperty("lt.api.base.url"));
-        if (apiBase == null) {
-            apiBase = trimToNull(System.getenv("LT_API_BASE_URL"));
-        }
-        if (apiBase == null) {
-            apiBase = DEFAULT_LT_API_BASE_URL;
-        }
-        String encoded = URLEncoder.encode(sessionId, StandardCharsets.UTF_8);
-        return resolveUri(null, apiBase + "/sessions/" + encoded);
-    }
-
-    private static URI sessionVideoApiUri(String sessionId) {
-        String apiBase = trimToNull(System.getProperty("lt.api.base.url"));
-        if (apiBase == null) {
-            apiBase = trimToNull(System.getenv("LT_API_BASE_URL"));
-        }
-        if (apiBase == null) {
-            apiBase = DEFAULT_LT_API_BASE_URL;
-        }
-        String encoded = URLEncoder.encode(sessionId, StandardCharsets.UTF_8);
-        return resolveUri(null, apiBase + "/sessions/" + encoded + "/video");
-    }
-
-    static String extractVideoUrl(Map<String, Object> payload) {
-        if (payload == null || payload.isEmpty()) {
-            return null;
-        }
-        return extractVideoUrl(payload, null);
+    static String sessionVideoRelativePath(String sessionId) {
+        return SESSION_VIDEO_DIR + "/lambdatest-video-" + sessionId.replaceAll("[^A-Za-z0-9._-]", "_") + ".mp4";
     }
 
-    static String extractVideoDownloadUrl(Map<String, Object> payload) {
-        if (payload == null || payload.isEmpty()) {
-            return null;
-        }
-        String direct = directVideoUrl(payload);
-        if (direct != null) {
-            return direct;
-        }
-        Map<String, Object> data = toMap(payload.get("data"));
-        if (data != null) {
-            return directVideoUrl(data);
-        }
-        return null;
-    }
-
-    private static String extractVideoUrl(Object value, String keyHint) {
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Map<?, ?> map) {
-            for (Map.Entry<?, ?> entry : map.entrySet()) {
-                String key = entry.getKey() == null ? "" : String.valueOf(entry.getKey());
-                Object child = entry.getValue();
-                if (key.toLowerCase(Locale.ROOT).contains("video")) {
-                    String candidate = trimToNull(child);
-                    if (candidate != null) {
-                        URI uri = resolveUri(null, candidate);
-                        if (uri != null && uri.isAbsolute()) {
-                            return candidate;
-                        }
-                    }
-                }
-            }
-            for (Map.Entry<?, ?> entry : map.entrySet()) {
-                String key = entry.getKey() == null ? keyHint : String.valueOf(entry.getKey());
-                String nested = extractVideoUrl(entry.getValue(), key);
-                if (nested != null) {
-                    return nested;
-                }
-            }
-            return null;
-        }
-        if (value instanceof Iterable<?> iterable) {
-            for (Object item : iterable) {
-                String nested = extractVideoUrl(item, keyHint);
-                if (nested != null) {
-                    return nested;
-                }
-            }
-            return null;
-        }
-        String text = trimToNull(value);
-        if (text == null) {
-            return null;
-        }
-        URI uri = resolveUri(null, text);
-        if (uri == null || !uri.isAbsolute()) {
-            return null;
-        }
-        if (text.toLowerCase(Locale.ROOT).contains(".mp4")) {
-            return text;
+    private static String currentReportDir() {
+        ScenarioEngine engine = ScenarioEngine.get();
+        if (engine != null && engine.runtime != null && engine.runtime.featureRuntime != null) {
+            return engine.runtime.featureRuntime.suite.reportDir;
         }
-        if (keyHint != null && keyHint.toLowerCase(Locale.ROOT).contains("video")) {
-            return text;
-        }
-        return null;
+        return FileUtils.getBuildDir();
     }
 
-    private static Map<String, Object> readJsonMap(HttpClient client, URI uri, String username, String accessKey) {
-        HttpRequest request = HttpRequest.newBuilder(uri)
-                .header("Authorization", basicAuthValue(username, accessKey))
-                .header("Accept", "application/json")
-                .GET()
-                .build();
-        HttpResponse<String> response;
+    /**
+     * Asks {@code /sessions/{id}} (details) or {@code /sessions/{id}/video} for the MP4 link; API errors become an
+     * empty lookup that carries the {@code Retry-After} delay, or stops the polling on bad credentials.
+     */
+    private static VideoLookup lookupVideoUrl(LambdaApiClient client, String sessionId, boolean fromDetails) {
+        String operation = fromDetails ? "session" : "sessionVideo";
         try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-        } catch (Exception e) {
-            return Collections.emptyMap();
-        }
-        if (response.statusCode() < 200 || response.statusCode() >= 300) {
-            return Collections.emptyMap();
+            String url = fromDetails
+                    ? client.sessionAsync(sessionId).join().videoUrl()
+                    : client.sessionVideoUrlAsync(sessionId).join();
+            return new VideoLookup(url, 0L, false);
+        } catch (RuntimeException e) {
+            LambdaApiException error = LambdaApiException.unwrap(operation, e);
+            return new VideoLookup(null, error.isRateLimited() ? error.retryAfterMs() : 0L, error.isUnauthorized());
         }
-        String body = trimToNull(response.body());
-        if (body == null) {
-            return Collections.emptyMap();
-        }
-        Object parsed;
-        try {
-            parsed = Json.of(body).value();
-        } catch (Exception e) {
-            return Collections.emptyMap();
-        }
-        Map<String, Object> map = toMap(parsed);
-        return map == null ? Collections.emptyMap() : map;
     }
 
-    private static byte[] readBytes(HttpClient client, URI uri, String username, String accessKey) {
-        HttpRequest request = HttpRequest.newBuilder(uri)
-                .header("Authorization", basicAuthValue(username, accessKey))
+    private static byte[] readBytes(LambdaApiClient client, URI uri) {
+        HttpRequest request = client.apiRequest(uri)
                 .GET()
                 .build();
         HttpResponse<byte[]> response;
@@ -549,24 +676,25 @@ public final class LambdaWebDriverInterop {
         return response.body();
     }
 
-    private static byte[] readVideoBytes(HttpClient client, URI uri, String username, String accessKey) {
-        URI requestUri = withoutUserInfo(uri);
-        String authorization = videoAuthValue(uri, username, accessKey);
-        HttpRequest request = HttpRequest.newBuilder(requestUri)
-                .header("Authorization", authorization)
+    private static byte[] readVideoBytes(LambdaApiClient client, URI uri) {
+        HttpRequest request = client.videoRequest(uri)
                 .header("Accept", "video/mp4,application/octet-stream,*/*")
                 .GET()
                 .build();
         HttpResponse<byte[]> response;
+        long startedAt = System.nanoTime();
         try {
             response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
         } catch (Exception e) {
+            LambdaMetrics.call("videoDownload", null, 0, startedAt);
             return null;
         }
+        LambdaMetrics.call("videoDownload", null, response.statusCode(), startedAt);
         if (response.statusCode() < 200 || response.statusCode() >= 300) {
             return null;
         }
         byte[] body = response.body();
+        LambdaMetrics.payload("videoDownload", "response", body == null ? 0L : body.length);
         if (body == null || body.length == 0) {
             return null;
         }
@@ -580,89 +708,189 @@ public final class LambdaWebDriverInterop {
         return null;
     }
 
-    private static String resolveSessionId(Object driverRef) {
-        if (driverRef == null) {
+    /**
+     * One resumable download of {@code videoUrl} to {@code target}; {@code null} when it did not yield an MP4.
+     */
+    static Path downloadVideo(LambdaApiClient client, String videoUrl, Path target) {
+        URI uri = resolveUri(client.sessionUri("video"), videoUrl);
+        return uri == null ? null : readVideoToFile(client, uri, target.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Streams the video to {@code target}. A {@code .part} file left by an interrupted attempt is only resumed when
+     * its {@code .part.id} sidecar names the same source (URL without credentials, ETag, total length); otherwise it is
+     * discarded. The resumed request carries {@code If-Range}, and a range that does not continue the file is dropped.
+     */
+    private static Path readVideoToFile(LambdaApiClient client, URI uri, Path target) {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        Path partialId = target.resolveSibling(target.getFileName() + ".part.id");
+        String source = String.valueOf(LambdaApiClient.withoutUserInfo(uri));
+        long startedAt = System.nanoTime();
+        int status = 0;
+        try {
+            Path parent = target.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Map<String, String> saved = readPartId(partialId);
+            long offset = Files.exists(partial) ? Files.size(partial) : 0L;
+            if (offset > 0 && !source.equals(saved.get("source"))) {
+                // left by another video (or an older version without a sidecar): never splice it
+                Files.deleteIfExists(partial);
+                offset = 0L;
+            }
+            HttpRequest.Builder builder = client.videoRequest(uri)
+                    .header("Accept", "video/mp4,application/octet-stream,*/*")
+                    .GET();
+            if (offset > 0) {
+                builder.header("Range", "bytes=" + offset + "-");
+                String etag = saved.get("etag");
+                if (etag != null && !etag.isEmpty()) {
+                    builder.header("If-Range", etag);
+                }
+            }
+            HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            status = response.statusCode();
+            try (InputStream body = response.body()) {
+                if (status == 416) {
+                    discardPartial(partial, partialId);
+                    return null;
+                }
+                if (status < 200 || status >= 300) {
+                    return null;
+                }
+                String etag = response.headers().firstValue("ETag").orElse("");
+                long total = status == 206 ? rangeTotal(response) : response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+                boolean resumed = status == 206 && offset > 0 && rangeStart(response) == offset
+                        && etag.equals(saved.getOrDefault("etag", ""))
+                        && String.valueOf(total).equals(saved.getOrDefault("length", ""));
+                if (status == 206 && !resumed) {
+                    discardPartial(partial, partialId);
+                    return null;
+                }
+                if (!resumed) {
+                    Files.writeString(partialId, "source=" + source + "\netag=" + etag + "\nlength=" + total + "\n",
+                            StandardCharsets.UTF_8);
+                }
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                if (resumed) {
+                    try (InputStream existing = Files.newInputStream(partial)) {
+                        updateDigest(digest, existing, null);
+                    }
+                }
+                try (OutputStream out = resumed
+                        ? Files.newOutputStream(partial, StandardOpenOption.APPEND)
+                        : Files.newOutputStream(partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+                    updateDigest(digest, body, out);
+                }
+                LambdaMetrics.payload("videoDownload", "response", Files.size(partial) - (resumed ? offset : 0L));
+                if (Files.size(partial) == 0 || (total > 0 && Files.size(partial) != total)) {
+                    discardPartial(partial, partialId);
+                    return null;
+                }
+                String contentType = response.headers().firstValue("Content-Type").orElse("");
+                if (!looksLikeMp4(readHead(partial, 32)) && !contentType.toLowerCase(Locale.ROOT).contains("video/mp4")) {
+                    discardPartial(partial, partialId);
+                    return null;
+                }
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(partialId);
+                Files.writeString(target.resolveSibling(target.getFileName() + ".sha256"),
+                        HexFormat.of().formatHex(digest.digest()) + "  " + target.getFileName() + "\n",
+                        StandardCharsets.UTF_8);
+                return target;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            // keep the partial file so the next attempt can resume it
             return null;
+        } finally {
+            LambdaMetrics.call("videoDownload", null, status, startedAt);
+        }
+    }
+
+    private static Map<String, String> readPartId(Path partialId) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        if (!Files.exists(partialId)) {
+            return fields;
         }
-        if (driverRef instanceof RemoteWebDriver seleniumDriver) {
-            SessionId sessionId = seleniumDriver.getSessionId();
-            if (sessionId != null && !sessionId.toString().isBlank()) {
-                return sessionId.toString();
+        for (String line : Files.readAllLines(partialId, StandardCharsets.UTF_8)) {
+            int eq = line.indexOf('=');
+            if (eq > 0) {
+                fields.put(line.substring(0, eq), line.substring(eq + 1));
             }
         }
-        String reflectedMethod = invokeNoArgMethod(driverRef, "getSessionId");
-        if (reflectedMethod != null) {
-            return reflectedMethod;
+        return fields;
+    }
+
+    private static void discardPartial(Path partial, Path partialId) throws IOException {
+        Files.deleteIfExists(partial);
+        Files.deleteIfExists(partialId);
+    }
+
+    private static long parseLong(String raw, long fallback) {
+        String text = trimToNull(raw);
+        if (text == null) {
+            return fallback;
         }
-        if (driverRef instanceof WebDriver webDriver) {
-            String fromOptions = findSessionIdInOptions(webDriver);
-            if (fromOptions != null) {
-                return fromOptions;
-            }
-            Object http = webDriver.getHttp();
-            String fromHttpField = findSessionIdField(http);
-            if (fromHttpField != null) {
-                return fromHttpField;
-            }
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return fallback;
         }
-        return findSessionIdField(driverRef);
     }
 
-    private static String findSessionIdInOptions(WebDriver webDriver) {
-        Map<String, Object> options = castStringObjectMap(webDriver.getOptions().options);
-        if (options == null || options.isEmpty()) {
-            return null;
+    private static long rangeStart(HttpResponse<?> response) {
+        String contentRange = response.headers().firstValue("Content-Range").orElse("");
+        String text = contentRange.trim().toLowerCase(Locale.ROOT);
+        if (!text.startsWith("bytes ")) {
+            return -1L;
         }
-        String exact = trimToNull(options.get("sessionId"));
-        if (exact != null) {
-            return exact;
+        int dash = text.indexOf('-');
+        if (dash < 0) {
+            return -1L;
         }
-        for (Map.Entry<String, Object> entry : options.entrySet()) {
-            String key = entry.getKey();
-            if (key != null && key.toLowerCase(Locale.ROOT).contains("session")) {
-                String value = trimToNull(entry.getValue());
-                if (value != null) {
-                    return value;
-                }
-            }
+        try {
+            return Long.parseLong(text.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1L;
         }
-        return null;
     }
 
-    private static String invokeNoArgMethod(Object target, String methodName) {
+    /**
+     * Total length from {@code Content-Range: bytes a-b/total}, or {@code -1} when unknown.
+     */
+    private static long rangeTotal(HttpResponse<?> response) {
+        String contentRange = response.headers().firstValue("Content-Range").orElse("");
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0) {
+            return -1L;
+        }
         try {
-            Method method = target.getClass().getMethod(methodName);
-            Object value = method.invoke(target);
-            return trimToNull(value);
-        } catch (Exception ignored) {
-            return null;
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1L;
         }
     }
 
-    private static String findSessionIdField(Object target) {
-        if (target == null) {
-            return null;
-        }
-        Class<?> type = target.getClass();
-        while (type != null && type != Object.class) {
-            for (Field field : type.getDeclaredFields()) {
-                String name = field.getName();
-                if (name == null || !name.toLowerCase(Locale.ROOT).contains("session")) {
-                    continue;
-                }
-                try {
-                    field.setAccessible(true);
-                    String value = trimToNull(field.get(target));
-                    if (value != null) {
-                        return value;
-                    }
-                } catch (Exception ignored) {
-                    // continue scanning fields
-                }
+    private static void updateDigest(MessageDigest digest, InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            if (out != null) {
+                out.write(buffer, 0, read);
             }
-            type = type.getSuperclass();
         }
-        return null;
+    }
+
+    private static byte[] readHead(Path path, int length) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.readNBytes(length);
+        }
     }
 
     private static URI resolveUri(URI base, String value) {
@@ -694,56 +922,6 @@ public final class LambdaWebDriverInterop {
         }
     }
 
-    private static String basicAuthValue(String username, String accessKey) {
-        String userPass = username + ":" + accessKey;
-        return "Basic " + Base64.getEncoder().encodeToString(userPass.getBytes(StandardCharsets.UTF_8));
-    }
-
-    private static URI withoutUserInfo(URI uri) {
-        if (uri == null || uri.getUserInfo() == null) {
-            return uri;
-        }
-        try {
-            return new URI(uri.getScheme(), null, uri.getHost(), uri.getPort(),
-                    uri.getPath(), uri.getQuery(), uri.getFragment());
-        } catch (Exception e) {
-            return uri;
-        }
-    }
-
-    private static String videoAuthValue(URI uri, String username, String accessKey) {
-        String userInfo = uri == null ? null : trimToNull(uri.getUserInfo());
-        if (userInfo != null) {
-            int delimiter = userInfo.indexOf(':');
-            if (delimiter > 0 && delimiter < userInfo.length() - 1) {
-                String user = URLDecoder.decode(userInfo.substring(0, delimiter), StandardCharsets.UTF_8);
-                String key = URLDecoder.decode(userInfo.substring(delimiter + 1), StandardCharsets.UTF_8);
-                if (!user.isBlank() && !key.isBlank()) {
-                    return basicAuthValue(user, key);
-                }
-            }
-        }
-        return basicAuthValue(username, accessKey);
-    }
-
-    private static String directVideoUrl(Map<String, Object> payload) {
-        String[] keys = {"url", "video_url", "download_url", "videoUrl"};
-        for (String key : keys) {
-            String candidate = trimToNull(payload.get(key));
-            if (candidate == null) {
-                continue;
-            }
-            URI uri = resolveUri(null, candidate);
-            if (uri == null || !uri.isAbsolute()) {
-                continue;
-            }
-            if (candidate.toLowerCase(Locale.ROOT).contains(".mp4")) {
-                return candidate;
-            }
-        }
-        return null;
-    }
-
     static boolean looksLikeMp4(byte[] bytes) {
         if (bytes == null || bytes.length < 12) {
             return false;
@@ -757,17 +935,16 @@ public final class LambdaWebDriverInterop {
         return false;
     }
 
-    private static String encodeFileAsBase64Zip(Path path) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ZipOutputStream zip = new ZipOutputStream(baos);
-             InputStream in = Files.newInputStream(path)) {
-            zip.putNextEntry(new ZipEntry(path.getFileName().toString()));
-            in.transferTo(zip);
-            zip.closeEntry();
-            zip.finish();
-            return Base64.getEncoder().encodeToString(baos.toByteArray());
-        } catch (IOException e) {
-            throw new RuntimeException("failed to prepare zip payload for file: " + path, e);
+    private static final class VideoLookup {
+
+        final String url;
+        final long retryAfterMs;
+        final boolean unauthorized;
+
+        VideoLookup(String url, long retryAfterMs, boolean unauthorized) {
+            this.url = url;
+            this.retryAfterMs = retryAfterMs;
+            this.unauthorized = unauthorized;
         }
     }
 }
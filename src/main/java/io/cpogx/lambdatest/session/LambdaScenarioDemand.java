@@ -0,0 +1,95 @@
+package io.cpogx.lambdatest.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of scenarios the running suites have not started yet, fed by {@code LambdaSuiteHook} and kept per capability
+ * fingerprint ({@link LambdaSessionPool#fingerprint(String, String, String, String)}), so a matrix cell only
+ * pre-creates sessions for its own pending scenarios. Suites that do not name their capabilities are counted under
+ * {@code ""} and add to every fingerprint; {@code -1} means the count is unknown (no hook registered, or a suite whose
+ * scenarios are only known at run time).
+ */
+public final class LambdaScenarioDemand {
+
+    private static final Map<String, AtomicInteger> DEMAND = new ConcurrentHashMap<>();
+    private static final AtomicInteger COUNTED_SUITES = new AtomicInteger();
+    private static final AtomicInteger UNCOUNTED_SUITES = new AtomicInteger();
+
+    private LambdaScenarioDemand() {
+    }
+
+    /**
+     * Registers a starting suite with {@code scenarios} pending scenarios, or an unknown count when negative.
+     */
+    public static void expect(int scenarios) {
+        expect("", scenarios);
+    }
+
+    public static void expect(String fingerprint, int scenarios) {
+        if (scenarios < 0) {
+            UNCOUNTED_SUITES.incrementAndGet();
+        } else {
+            COUNTED_SUITES.incrementAndGet();
+            demand(fingerprint).addAndGet(scenarios);
+        }
+    }
+
+    public static void scenarioStarted() {
+        scenarioStarted("");
+    }
+
+    public static void scenarioStarted(String fingerprint) {
+        demand(fingerprint).updateAndGet(current -> current > 0 ? current - 1 : current);
+    }
+
+    /**
+     * Unregisters a finished suite; {@code unstarted} is what it expected but never ran (e.g. aborted).
+     */
+    public static void finished(int scenarios, int unstarted) {
+        finished("", scenarios, unstarted);
+    }
+
+    public static void finished(String fingerprint, int scenarios, int unstarted) {
+        if (scenarios < 0) {
+            UNCOUNTED_SUITES.updateAndGet(current -> Math.max(0, current - 1));
+        } else {
+            COUNTED_SUITES.updateAndGet(current -> Math.max(0, current - 1));
+            demand(fingerprint).updateAndGet(current -> Math.max(0, current - Math.max(0, unstarted)));
+        }
+    }
+
+    /**
+     * Pending scenarios across all suites.
+     */
+    public static int remaining() {
+        if (UNCOUNTED_SUITES.get() > 0 || COUNTED_SUITES.get() == 0) {
+            return -1;
+        }
+        return DEMAND.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * Pending scenarios that will ask for sessions with this fingerprint, including those of suites that did not
+     * name their capabilities.
+     */
+    public static int remaining(String fingerprint) {
+        if (UNCOUNTED_SUITES.get() > 0 || COUNTED_SUITES.get() == 0) {
+            return -1;
+        }
+        AtomicInteger own = DEMAND.get(fingerprint == null ? "" : fingerprint);
+        AtomicInteger any = DEMAND.get("");
+        return (own == null ? 0 : own.get()) + (any == null || any == own ? 0 : any.get());
+    }
+
+    public static void reset() {
+        DEMAND.clear();
+        COUNTED_SUITES.set(0);
+        UNCOUNTED_SUITES.set(0);
+    }
+
+    private static AtomicInteger demand(String fingerprint) {
+        return DEMAND.computeIfAbsent(fingerprint == null ? "" : fingerprint, ignored -> new AtomicInteger());
+    }
+}
@@ -0,0 +1,172 @@
+package io.cpogx.lambdatest.session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Client-side admission control for LambdaTest sessions: a fair semaphore sized to the account's parallel
+ * session limit, so surplus Karate threads wait here (bounded by {@code queueTimeoutMs}) instead of in the grid queue.
+ * One instance is shared per account; each owner (usually a {@code ScenarioRuntime}) holds at most one permit.
+ */
+public final class LambdaSessionAdmission {
+
+    private static final Map<String, LambdaSessionAdmission> ACCOUNTS = new ConcurrentHashMap<>();
+    private static final Set<String> UNLIMITED = ConcurrentHashMap.newKeySet();
+
+    private final int limit;
+    private final long queueTimeoutMs;
+    private final Semaphore permits;
+    private final Map<Object, Long> held = new ConcurrentHashMap<>();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitMs = new AtomicLong();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+
+    public LambdaSessionAdmission(int limit, long queueTimeoutMs) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("admission limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        this.queueTimeoutMs = Math.max(0L, queueTimeoutMs);
+        this.permits = new Semaphore(limit, true);
+    }
+
+    /**
+     * Shared admission for the account, created on first use; later calls reuse it regardless of their settings.
+     * Returns {@code null} when neither {@code limit} nor the probe yields a positive limit.
+     */
+    public static LambdaSessionAdmission forAccount(String account, int limit, IntSupplier probe, long queueTimeoutMs) {
+        String key = account == null ? "" : account;
+        LambdaSessionAdmission existing = ACCOUNTS.get(key);
+        if (existing != null || UNLIMITED.contains(key)) {
+            return existing;
+        }
+        synchronized (ACCOUNTS) {
+            existing = ACCOUNTS.get(key);
+            if (existing != null || UNLIMITED.contains(key)) {
+                return existing;
+            }
+            int resolved = limit > 0 ? limit : (probe == null ? 0 : probe.getAsInt());
+            if (resolved < 1) {
+                UNLIMITED.add(key);
+                return null;
+            }
+            LambdaSessionAdmission admission = new LambdaSessionAdmission(resolved, queueTimeoutMs);
+            ACCOUNTS.put(key, admission);
+            return admission;
+        }
+    }
+
+    /**
+     * Releases every permit whose owner matches, across all accounts; catches owners that never reached
+     * {@code Target.stop} (e.g. the driver failed to start after admission).
+     */
+    public static int releaseAll(Predicate<Object> owners) {
+        int released = 0;
+        for (LambdaSessionAdmission admission : ACCOUNTS.values()) {
+            for (Object owner : admission.held.keySet()) {
+                if (owners.test(owner) && admission.release(owner)) {
+                    released++;
+                }
+            }
+        }
+        return released;
+    }
+
+    public static Map<String, Map<String, Object>> snapshots() {
+        Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+        ACCOUNTS.forEach((account, admission) -> out.put(account, admission.snapshot()));
+        return out;
+    }
+
+    static void clearAccounts() {
+        ACCOUNTS.clear();
+        UNLIMITED.clear();
+    }
+
+    /**
+     * Blocks until a session slot is free; a no-op when the owner already holds one. Returns the wait in ms.
+     */
+    public long admit(Object owner) {
+        if (owner == null) {
+            throw new IllegalArgumentException("owner is required");
+        }
+        if (held.containsKey(owner)) {
+            return 0L;
+        }
+        long startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("session admission interrupted", e);
+        }
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new RuntimeException("session admission timed out: waited=" + waitedMs + "ms, limit=" + limit
+                    + ", inUse=" + inUse() + ", queued=" + permits.getQueueLength());
+        }
+        held.put(owner, System.currentTimeMillis());
+        admitted.incrementAndGet();
+        totalWaitMs.addAndGet(waitedMs);
+        maxWaitMs.accumulateAndGet(waitedMs, Math::max);
+        return waitedMs;
+    }
+
+    public boolean release(Object owner) {
+        if (owner == null || held.remove(owner) == null) {
+            return false;
+        }
+        permits.release();
+        return true;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inUse() {
+        return held.size();
+    }
+
+    public int queued() {
+        return permits.getQueueLength();
+    }
+
+    public long admittedCount() {
+        return admitted.get();
+    }
+
+    public long timeoutCount() {
+        return timeouts.get();
+    }
+
+    public long totalWaitMs() {
+        return totalWaitMs.get();
+    }
+
+    public long maxWaitMs() {
+        return maxWaitMs.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("limit", limit);
+        out.put("inUse", inUse());
+        out.put("queued", queued());
+        out.put("admitted", admittedCount());
+        out.put("timeouts", timeoutCount());
+        out.put("totalWaitMs", totalWaitMs());
+        out.put("maxWaitMs", maxWaitMs());
+        return out;
+    }
+}
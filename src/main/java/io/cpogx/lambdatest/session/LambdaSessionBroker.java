@@ -0,0 +1,201 @@
+package io.cpogx.lambdatest.session;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local WebDriver endpoint in front of the LambdaTest grid that serves sessions from a {@link LambdaSessionPool}.
+ * {@code POST /session} leases a pooled session, {@code DELETE /session/{id}} hands it back, every other
+ * command is forwarded to the grid unchanged.
+ */
+public final class LambdaSessionBroker implements AutoCloseable {
+
+    static final String BASE_PATH = "/wd/hub";
+
+    private static final Set<LambdaSessionBroker> OPEN = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LambdaSessionBroker::closeAll, "lambda-session-broker-shutdown"));
+    }
+
+    private final LambdaSessionPool pool;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public LambdaSessionBroker(LambdaSessionPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("session pool is required");
+        }
+        this.pool = pool;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "lambda-session-broker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to start local session broker", e);
+        }
+        this.server.createContext(BASE_PATH, this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+        OPEN.add(this);
+    }
+
+    /**
+     * Closes every open broker and quits its pooled sessions; called at suite end and on JVM shutdown.
+     */
+    public static void closeAll() {
+        for (LambdaSessionBroker broker : OPEN) {
+            broker.close();
+        }
+    }
+
+    /**
+     * WebDriver URL to hand to Karate instead of the grid URL.
+     */
+    public String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + BASE_PATH;
+    }
+
+    /**
+     * Grid URL behind the open broker serving {@code webDriverUrl}, or {@code webDriverUrl} itself when it is not a
+     * broker. Connections the broker cannot forward, like the BiDi websocket, go straight to the grid.
+     */
+    public static String upstreamUrl(String webDriverUrl) {
+        if (webDriverUrl == null) {
+            return null;
+        }
+        String url = webDriverUrl.endsWith("/") ? webDriverUrl.substring(0, webDriverUrl.length() - 1) : webDriverUrl;
+        for (LambdaSessionBroker broker : OPEN) {
+            if (broker.url().equals(url)) {
+                return broker.pool.gridUrl();
+            }
+        }
+        return webDriverUrl;
+    }
+
+    public LambdaSessionPool pool() {
+        return pool;
+    }
+
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        OPEN.remove(this);
+        server.stop(0);
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod().toUpperCase();
+            String path = exchange.getRequestURI().getRawPath().substring(BASE_PATH.length());
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            if ("POST".equals(method) && "/session".equals(path)) {
+                leaseSession(exchange, body);
+            } else if ("DELETE".equals(method) && path.matches("/session/[^/]+/?")) {
+                String sessionId = path.substring("/session/".length()).replace("/", "");
+                if (pool.release(sessionId)) {
+                    respond(exchange, 200, "application/json; charset=utf-8",
+                            "{\"value\":null}".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    forward(exchange, method, path, body);
+                }
+            } else {
+                forward(exchange, method, path, body);
+            }
+        } catch (RuntimeException e) {
+            String message = Json.object().set("value", Map.of(
+                    "error", "unknown error",
+                    "message", String.valueOf(e.getMessage()))).toString();
+            respond(exchange, 500, "application/json; charset=utf-8", message.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void leaseSession(HttpExchange exchange, byte[] body) throws IOException {
+        Object parsed = Json.of(new String(body, StandardCharsets.UTF_8)).value();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> payload = parsed instanceof Map<?, ?> ? (Map<String, Object>) parsed : Map.of();
+        LambdaSessionPool.PooledSession session = pool.acquire(payload);
+        respond(exchange, 200, "application/json; charset=utf-8",
+                session.getCreateResponse().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void forward(HttpExchange exchange, String method, String path, byte[] body) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        URI target = URI.create(pool.gridUrl() + path + (query == null ? "" : "?" + query));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+                .method(method, body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("grid request interrupted: " + method + " " + path, e);
+        }
+        respond(exchange, response.statusCode(),
+                response.headers().firstValue("Content-Type").orElse("application/json; charset=utf-8"),
+                response.body());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package io.cpogx.lambdatest.session;
+
+import com.intuit.karate.Json;
+import io.cpogx.lambdatest.interop.LambdaApiClient;
+import io.cpogx.lambdatest.interop.LambdaUploadCache;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of live LambdaTest WebDriver sessions keyed by capability fingerprint
+ * (browser / version / platform / tunnel). Sessions are reset between scenarios and retired after
+ * {@code maxUses} scenarios or {@code idleTimeoutMs} without use.
+ * With {@code lookAhead > 0} the pool also keeps that many spare sessions in flight while scenarios are still
+ * pending for its fingerprint ({@link LambdaScenarioDemand}). {@code maxSessions} caps every grid session the pool
+ * holds: at the cap an acquire waits up to {@code capacityWaitMs} for a matching session to come back, quitting idle
+ * sessions of other fingerprints to make room.
+ * A pooled session is one LambdaTest test: its name and tags follow the current scenario, but the status shown on
+ * the dashboard is the one reported by the last scenario that used it, and no per-scenario video is recorded.
+ */
+public final class LambdaSessionPool implements AutoCloseable {
+
+    private static final Set<String> POOLED_SESSION_IDS = ConcurrentHashMap.newKeySet();
+    private static final long DEFAULT_CAPACITY_WAIT_MS = 600_000L;
+    private static final String RESET_SCRIPT = "try { window.localStorage.clear(); } catch (e) {}"
+            + " try { window.sessionStorage.clear(); } catch (e) {}";
+
+    private final String gridUrl;
+    private final String username;
+    private final String accessKey;
+    private final int warmSize;
+    private final int maxUses;
+    private final long idleTimeoutMs;
+    private final int lookAhead;
+    private final int maxSessions;
+    private final long capacityWaitMs;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Deque<PooledSession>> idle = new ConcurrentHashMap<>();
+    private final Map<String, PooledSession> leased = new ConcurrentHashMap<>();
+    private final Set<String> warmed = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, Object>> payloads = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> creating = new ConcurrentHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public LambdaSessionPool(String gridUrl,
+                             String username,
+                             String accessKey,
+                             int warmSize,
+                             int maxUses,
+                             long idleTimeoutMs) {
+        this(gridUrl, username, accessKey, warmSize, maxUses, idleTimeoutMs, 0, 0);
+    }
+
+    public LambdaSessionPool(String gridUrl,
+                             String username,
+                             String accessKey,
+                             int warmSize,
+                             int maxUses,
+                             long idleTimeoutMs,
+                             int lookAhead,
+                             int maxSessions) {
+        this(gridUrl, username, accessKey, warmSize, maxUses, idleTimeoutMs, lookAhead, maxSessions,
+                DEFAULT_CAPACITY_WAIT_MS);
+    }
+
+    /**
+     * {@code capacityWaitMs} bounds how long an acquire waits at {@code maxSessions}; {@code LambdaDriverTarget}
+     * passes the admission queue timeout, so both limits give up at the same time.
+     */
+    public LambdaSessionPool(String gridUrl,
+                             String username,
+                             String accessKey,
+                             int warmSize,
+                             int maxUses,
+                             long idleTimeoutMs,
+                             int lookAhead,
+                             int maxSessions,
+                             long capacityWaitMs) {
+        if (gridUrl == null || gridUrl.isBlank()) {
+            throw new IllegalArgumentException("grid url is required");
+        }
+        this.gridUrl = stripTrailingSlash(gridUrl.trim());
+        this.username = username;
+        this.accessKey = accessKey;
+        this.warmSize = Math.max(0, warmSize);
+        this.maxUses = Math.max(1, maxUses);
+        this.idleTimeoutMs = Math.max(1000L, idleTimeoutMs);
+        this.lookAhead = Math.max(0, lookAhead);
+        this.maxSessions = Math.max(0, maxSessions);
+        this.capacityWaitMs = capacityWaitMs > 0 ? capacityWaitMs : DEFAULT_CAPACITY_WAIT_MS;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(2, Math.max(this.warmSize, this.lookAhead)), runnable -> {
+            Thread thread = new Thread(runnable, "lambda-session-pool-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long reapEvery = Math.min(this.idleTimeoutMs, 5000L);
+        this.executor.scheduleWithFixedDelay(this::retireIdle, reapEvery, reapEvery, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether the session id belongs to a pooled session, i.e. one that outlives a single scenario.
+     */
+    public static boolean isPooledSession(String sessionId) {
+        return sessionId != null && POOLED_SESSION_IDS.contains(sessionId);
+    }
+
+    public String gridUrl() {
+        return gridUrl;
+    }
+
+    public int idleCount() {
+        return idle.values().stream().mapToInt(Collection::size).sum();
+    }
+
+    public int leasedCount() {
+        return leased.size();
+    }
+
+    /**
+     * Hands out an idle session matching the payload's capabilities, or creates one on the grid.
+     * The first request for a fingerprint also starts warming {@code warmSize - 1} further sessions.
+     */
+    public PooledSession acquire(Map<String, Object> sessionPayload) {
+        ensureOpen();
+        String fingerprint = fingerprint(sessionPayload);
+        payloads.putIfAbsent(fingerprint, sessionPayload);
+        if (warmed.add(fingerprint)) {
+            for (int i = 1; i < warmSize && reserve(fingerprint); i++) {
+                executor.execute(() -> warmReserved(fingerprint, sessionPayload));
+            }
+        }
+        PooledSession session = takeOrCreate(fingerprint, sessionPayload);
+        session.uses++;
+        session.lastUsedAt = System.currentTimeMillis();
+        provisionAhead(fingerprint);
+        return session;
+    }
+
+    /**
+     * Sessions held against the grid: leased, idle and still being created.
+     */
+    public int sessionCount() {
+        return leasedCount() + idleCount() + creating.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    /**
+     * Returns a leased session. It is reset in the background and made available again, or quit once it has
+     * served {@code maxUses} scenarios. After {@link #close()} it is quit right away on the calling thread.
+     */
+    public boolean release(String sessionId) {
+        PooledSession session = sessionId == null ? null : leased.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.lastUsedAt = System.currentTimeMillis();
+        if (closed.get()) {
+            // the executor is shut down: quit it on the caller's thread rather than leaving it on the grid
+            retire(session);
+            return true;
+        }
+        if (session.uses >= maxUses) {
+            executor.execute(() -> {
+                retire(session);
+                provisionAhead(session.fingerprint);
+            });
+            return true;
+        }
+        executor.execute(() -> {
+            if (reset(session)) {
+                park(session, true);
+            } else {
+                retire(session);
+            }
+            provisionAhead(session.fingerprint);
+        });
+        return true;
+    }
+
+    /**
+     * Starts creating spare sessions so that up to {@code lookAhead} are idle or in flight for the fingerprint,
+     * bounded by the scenarios still pending and by {@code maxSessions}. Once no scenarios are pending, idle
+     * spares are quit.
+     */
+    synchronized void provisionAhead(String fingerprint) {
+        if (closed.get()) {
+            return;
+        }
+        int remaining = LambdaScenarioDemand.remaining(fingerprint);
+        Deque<PooledSession> queue = idle.computeIfAbsent(fingerprint, ignored -> new ConcurrentLinkedDeque<>());
+        if (remaining == 0) {
+            PooledSession spare;
+            while ((spare = queue.pollFirst()) != null) {
+                PooledSession surplus = spare;
+                executor.execute(() -> retire(surplus));
+            }
+            return;
+        }
+        if (lookAhead == 0) {
+            return;
+        }
+        Map<String, Object> payload = payloads.get(fingerprint);
+        if (payload == null) {
+            return;
+        }
+        int wanted = remaining < 0 ? lookAhead : Math.min(lookAhead, remaining);
+        AtomicInteger inFlight = creating.computeIfAbsent(fingerprint, ignored -> new AtomicInteger());
+        while (queue.size() + inFlight.get() < wanted && reserve(fingerprint)) {
+            executor.execute(() -> warmReserved(fingerprint, payload));
+        }
+    }
+
+    /**
+     * Counts one more session as being created for the fingerprint, unless that would exceed {@code maxSessions}.
+     */
+    private synchronized boolean reserve(String fingerprint) {
+        if (maxSessions > 0 && sessionCount() >= maxSessions) {
+            return false;
+        }
+        creating.computeIfAbsent(fingerprint, ignored -> new AtomicInteger()).incrementAndGet();
+        return true;
+    }
+
+    private void unreserve(String fingerprint) {
+        creating.get(fingerprint).decrementAndGet();
+    }
+
+    /**
+     * An idle session for the fingerprint, or a new one once {@code maxSessions} allows it.
+     */
+    private PooledSession takeOrCreate(String fingerprint, Map<String, Object> sessionPayload) {
+        Deque<PooledSession> queue = idle.computeIfAbsent(fingerprint, ignored -> new ConcurrentLinkedDeque<>());
+        long deadline = System.currentTimeMillis() + capacityWaitMs;
+        while (true) {
+            PooledSession session = queue.pollFirst();
+            if (session != null) {
+                leased.put(session.sessionId, session);
+                renameForScenario(session, sessionPayload);
+                return session;
+            }
+            if (reserve(fingerprint)) {
+                try {
+                    session = create(fingerprint, sessionPayload);
+                    // leased before the reservation is dropped, so the session is never uncounted
+                    leased.put(session.sessionId, session);
+                    if (closed.get() && leased.remove(session.sessionId) != null) {
+                        // close() ran while the session was being created and did not see it
+                        retire(session);
+                        ensureOpen();
+                    }
+                    return session;
+                } finally {
+                    unreserve(fingerprint);
+                }
+            }
+            if (retireIdleOf(fingerprint)) {
+                continue;
+            }
+            ensureOpen();
+            if (System.currentTimeMillis() >= deadline) {
+                throw new RuntimeException("pooled session create failed: max-sessions=" + maxSessions
+                        + " reached for " + capacityWaitMs + " ms");
+            }
+            try {
+                Thread.sleep(50L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("pooled session create interrupted", e);
+            }
+        }
+    }
+
+    /**
+     * Quits one idle session of another fingerprint to free a slot; {@code false} when there is none.
+     */
+    private boolean retireIdleOf(String fingerprint) {
+        for (Map.Entry<String, Deque<PooledSession>> entry : idle.entrySet()) {
+            if (entry.getKey().equals(fingerprint)) {
+                continue;
+            }
+            PooledSession spare = entry.getValue().pollLast();
+            if (spare != null) {
+                retire(spare);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        List<PooledSession> all = new ArrayList<>(leased.values());
+        leased.clear();
+        for (Deque<PooledSession> queue : idle.values()) {
+            PooledSession session;
+            while ((session = queue.pollFirst()) != null) {
+                all.add(session);
+            }
+        }
+        // not shutdownNow: an interrupted create would leave a session on the grid whose id was never read;
+        // in-flight creates and resets finish and see the closed flag instead
+        executor.shutdown();
+        all.forEach(this::retire);
+    }
+
+    static String fingerprint(Map<String, Object> sessionPayload) {
+        Map<String, Object> alwaysMatch = alwaysMatch(sessionPayload);
+        Map<String, Object> ltOptions = toMap(alwaysMatch.get("LT:Options"));
+        return fingerprint(text(alwaysMatch.get("browserName")), text(alwaysMatch.get("browserVersion")),
+                text(alwaysMatch.get("platformName")), ltOptions == null ? "" : text(ltOptions.get("tunnelName")));
+    }
+
+    /**
+     * Capability fingerprint sessions are pooled (and scenario demand is counted) by.
+     */
+    public static String fingerprint(String browserName, String browserVersion, String platformName, String tunnelName) {
+        return String.join("|",
+                text(browserName).toLowerCase(Locale.ROOT),
+                text(browserVersion).toLowerCase(Locale.ROOT),
+                text(platformName).toLowerCase(Locale.ROOT),
+                text(tunnelName));
+    }
+
+    /**
+     * Creates a session whose slot was taken with {@link #reserve(String)} and parks it as idle.
+     */
+    private void warmReserved(String fingerprint, Map<String, Object> sessionPayload) {
+        try {
+            if (!closed.get()) {
+                park(create(fingerprint, sessionPayload), false);
+            }
+        } catch (RuntimeException ignored) {
+            // warming is best effort; acquire() creates on demand
+        } finally {
+            unreserve(fingerprint);
+        }
+    }
+
+    /**
+     * Makes the session idle, or quits it when the pool was closed meanwhile: {@code close()} sets the flag before
+     * emptying the idle queues, so a session parked after that is either drained there or retired here.
+     */
+    private void park(PooledSession session, boolean first) {
+        Deque<PooledSession> queue = idle.computeIfAbsent(session.fingerprint, ignored -> new ConcurrentLinkedDeque<>());
+        if (first) {
+            queue.offerFirst(session);
+        } else {
+            queue.offerLast(session);
+        }
+        if (closed.get() && queue.remove(session)) {
+            retire(session);
+        }
+    }
+
+    private PooledSession create(String fingerprint, Map<String, Object> sessionPayload) {
+        HttpResponse<String> response = send("POST", "/session", Json.of(sessionPayload).toString());
+        if (response.statusCode() != 200) {
+            throw new RuntimeException("pooled session create failed: status=" + response.statusCode()
+                    + ", body=" + response.body());
+        }
+        String sessionId = Json.of(response.body()).getFirst("$..sessionId");
+        if (sessionId == null || sessionId.isBlank()) {
+            throw new RuntimeException("pooled session create returned no session id: " + response.body());
+        }
+        if (maxUses > 1) {
+            POOLED_SESSION_IDS.add(sessionId);
+        }
+        return new PooledSession(sessionId, fingerprint, response.body());
+    }
+
+    private void renameForScenario(PooledSession session, Map<String, Object> sessionPayload) {
+        Map<String, Object> ltOptions = toMap(alwaysMatch(sessionPayload).get("LT:Options"));
+        if (ltOptions == null || username == null || accessKey == null) {
+            return;
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (ltOptions.get("name") != null) {
+            fields.put("name", ltOptions.get("name"));
+        }
+        if (ltOptions.get("tags") != null) {
+            fields.put("tags", ltOptions.get("tags"));
+        }
+        if (!fields.isEmpty()) {
+            LambdaApiClient.shared(username, accessKey).updateSession(session.sessionId, fields);
+        }
+    }
+
+    private boolean reset(PooledSession session) {
+        try {
+            String base = "/session/" + session.sessionId;
+            send("POST", base + "/execute/sync", Json.object().set("script", RESET_SCRIPT).set("args", List.of()).toString());
+            send("DELETE", base + "/cookie", null);
+            HttpResponse<String> response = send("POST", base + "/url", Json.object().set("url", "about:blank").toString());
+            return response.statusCode() == 200;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void retireIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        for (Deque<PooledSession> queue : idle.values()) {
+            for (PooledSession session : queue) {
+                if (session.lastUsedAt < cutoff && queue.remove(session)) {
+                    retire(session);
+                }
+            }
+        }
+    }
+
+    private void retire(PooledSession session) {
+        try {
+            send("DELETE", "/session/" + session.sessionId, null);
+        } catch (RuntimeException ignored) {
+            // the grid reaps abandoned sessions on its own idle timeout
+        } finally {
+            POOLED_SESSION_IDS.remove(session.sessionId);
+            LambdaUploadCache.shared().forgetSession(session.sessionId);
+        }
+    }
+
+    private HttpResponse<String> send(String method, String path, String jsonBody) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(gridUrl + path))
+                .header("Content-Type", "application/json; charset=utf-8");
+        if (jsonBody == null) {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.method(method, HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8));
+        }
+        try {
+            return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("grid request interrupted: " + method + " " + path, e);
+        } catch (Exception e) {
+            throw new RuntimeException("grid request failed: " + method + " " + path, e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed.get()) {
+            throw new IllegalStateException("session pool is closed");
+        }
+    }
+
+    private static Map<String, Object> alwaysMatch(Map<String, Object> sessionPayload) {
+        Map<String, Object> capabilities = sessionPayload == null ? null : toMap(sessionPayload.get("capabilities"));
+        Map<String, Object> alwaysMatch = capabilities == null ? null : toMap(capabilities.get("alwaysMatch"));
+        return alwaysMatch == null ? Map.of() : alwaysMatch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toMap(Object value) {
+        return value instanceof Map<?, ?> ? (Map<String, Object>) value : null;
+    }
+
+    private static String text(Object value) {
+        return value == null ? "" : value.toString().trim();
+    }
+
+    private static String stripTrailingSlash(String value) {
+        return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+    }
+
+    /**
+     * A grid session owned by the pool, together with the original create-session response.
+     */
+    public static final class PooledSession {
+
+        private final String sessionId;
+        private final String fingerprint;
+        private final String createResponse;
+        private volatile int uses;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        PooledSession(String sessionId, String fingerprint, String createResponse) {
+            this.sessionId = sessionId;
+            this.fingerprint = fingerprint;
+            this.createResponse = createResponse;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getCreateResponse() {
+            return createResponse;
+        }
+
+        public int getUses() {
+            return uses;
+        }
+    }
+}
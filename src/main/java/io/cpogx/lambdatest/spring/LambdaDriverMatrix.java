@@ -0,0 +1,167 @@
+package io.cpogx.lambdatest.spring;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Browser matrix: one {@link LambdaDriverTarget} per browser / version / platform cell.
+ * {@link #run(Function)} runs the same Karate suite for every cell side by side in this JVM, splitting
+ * {@code threads} (the account's parallel session allowance) across the cells.
+ */
+public final class LambdaDriverMatrix {
+
+    public static final String CELL_PROPERTY = "lt.matrix.cell";
+
+    private final List<LambdaDriverTarget> targets;
+    private final int threads;
+
+    public LambdaDriverMatrix(List<LambdaDriverTarget> targets, int threads) {
+        if (targets == null || targets.isEmpty()) {
+            throw new IllegalArgumentException("at least one matrix target is required");
+        }
+        Set<String> cells = new HashSet<>();
+        for (LambdaDriverTarget target : targets) {
+            if (!cells.add(target.matrixCellId())) {
+                throw new IllegalArgumentException("duplicate matrix cell: " + target.matrixCellId());
+            }
+        }
+        this.targets = List.copyOf(targets);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Builds the matrix from {@code lt.matrix} ({@code browser:version:platform} cells separated by {@code ;})
+     * and {@code cpogx.execution.threads}; without {@code lt.matrix} the matrix has the single base target.
+     */
+    public static LambdaDriverMatrix fromKarateProperties(Map<String, ?> properties) {
+        Map<String, ?> props = properties == null ? Map.of() : properties;
+        LambdaDriverTarget base = LambdaDriverTarget.fromKarateProperties(props);
+        Object rawMatrix = props.get("lt.matrix");
+        Object rawThreads = props.get("cpogx.execution.threads");
+        int threads = parseInt(rawThreads == null ? null : String.valueOf(rawThreads), 1);
+        List<LambdaDriverTarget> targets = new ArrayList<>();
+        String matrix = rawMatrix == null ? "" : String.valueOf(rawMatrix).trim();
+        for (String cell : matrix.split(";")) {
+            if (cell.isBlank()) {
+                continue;
+            }
+            String[] parts = cell.split(":", -1);
+            targets.add(base.forMatrixCell(
+                    parts[0],
+                    parts.length > 1 ? parts[1] : null,
+                    parts.length > 2 ? parts[2] : null));
+        }
+        if (targets.isEmpty()) {
+            targets.add(base);
+        }
+        return new LambdaDriverMatrix(targets, threads);
+    }
+
+    public List<LambdaDriverTarget> targets() {
+        return targets;
+    }
+
+    public int size() {
+        return targets.size();
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * Threads for the cell at {@code index}: an even share of {@link #threads()}, at least one.
+     */
+    public int threadsFor(int index) {
+        int share = threads / targets.size();
+        int extra = index < threads % targets.size() ? 1 : 0;
+        return Math.max(1, share + extra);
+    }
+
+    /**
+     * Runs one Karate suite per cell concurrently and returns the results keyed by cell id.
+     * The factory creates the cell's runner (paths, tags, hooks, a per-cell report dir); the target is attached
+     * through {@link LambdaDriverTargetRegistry} for the duration of the run and {@value #CELL_PROPERTY} is added.
+     * Every started cell runs to its end before the targets are detached; the first failure is then thrown with the
+     * others suppressed.
+     */
+    public Map<String, Results> run(Function<LambdaDriverTarget, Runner.Builder> builderFactory) {
+        if (builderFactory == null) {
+            throw new IllegalArgumentException("builderFactory is required");
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(targets.size(), runnable -> {
+            Thread thread = new Thread(runnable, "lambda-matrix-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<String, Future<Results>> futures = new LinkedHashMap<>();
+        List<LambdaDriverTargetRegistry.Registration> registrations = new ArrayList<>();
+        Map<String, Results> results = new LinkedHashMap<>();
+        RuntimeException failure = null;
+        try {
+            try {
+                for (int i = 0; i < targets.size(); i++) {
+                    LambdaDriverTarget target = targets.get(i);
+                    String cell = target.matrixCellId();
+                    Runner.Builder builder = builderFactory.apply(target);
+                    registrations.add(LambdaDriverTargetRegistry.attach(builder, target));
+                    builder.systemProperty(CELL_PROPERTY, cell);
+                    int cellThreads = threadsFor(i);
+                    futures.put(cell, executor.submit(() -> builder.parallel(cellThreads)));
+                }
+            } catch (RuntimeException e) {
+                // cells already started still run to their end below
+                failure = e;
+            }
+            // registrations are closed only after every cell has ended, so no running cell loses its target
+            for (Map.Entry<String, Future<Results>> entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = addFailure(failure, new RuntimeException("matrix run interrupted: cell=" + entry.getKey(), e));
+                    break;
+                } catch (ExecutionException e) {
+                    failure = addFailure(failure, new RuntimeException("matrix cell failed: cell=" + entry.getKey(), e.getCause()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            registrations.forEach(LambdaDriverTargetRegistry.Registration::close);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    private static RuntimeException addFailure(RuntimeException first, RuntimeException next) {
+        if (first == null) {
+            return next;
+        }
+        first.addSuppressed(next);
+        return first;
+    }
+
+    private static int parseInt(String raw, int fallback) {
+        try {
+            return Integer.parseInt(raw.trim());
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+}
@@ -2,6 +2,12 @@ package io.cpogx.lambdatest.spring;
 
 import com.intuit.karate.core.ScenarioRuntime;
 import com.intuit.karate.driver.Target;
+import io.cpogx.lambdatest.interop.LambdaApiClient;
+import io.cpogx.lambdatest.interop.LambdaSessionFinalizer;
+import io.cpogx.lambdatest.interop.LambdaTrace;
+import io.cpogx.lambdatest.session.LambdaSessionAdmission;
+import io.cpogx.lambdatest.session.LambdaSessionBroker;
+import io.cpogx.lambdatest.session.LambdaSessionPool;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,6 +38,16 @@ public final class LambdaDriverTarget implements Target {
     private final boolean console;
     private final boolean visual;
     private final boolean webSocketUrl;
+    private final boolean sessionPoolEnabled;
+    private final int sessionPoolSize;
+    private final int sessionPoolMaxUses;
+    private final long sessionPoolIdleTimeoutMs;
+    private final int sessionLookAhead;
+    private final int sessionMaxConcurrent;
+    private final int admissionMaxSessions;
+    private final boolean admissionProbe;
+    private final long admissionQueueTimeoutMs;
+    private LambdaSessionBroker sessionBroker;
 
     public LambdaDriverTarget(String driverType,
                               int timeoutMs,
@@ -52,6 +68,39 @@ public final class LambdaDriverTarget implements Target {
                               boolean console,
                               boolean visual,
                               boolean webSocketUrl) {
+        this(driverType, timeoutMs, gridUrl, browserName, browserVersion, platformName, namePrefix, username,
+                accessKey, project, build, tags, tunnelName, userFiles, acceptInsecureCerts, network, console, visual,
+                webSocketUrl, false, 1, 10, 300000L, 0, 0, 0, false, 600000L);
+    }
+
+    public LambdaDriverTarget(String driverType,
+                              int timeoutMs,
+                              String gridUrl,
+                              String browserName,
+                              String browserVersion,
+                              String platformName,
+                              String namePrefix,
+                              String username,
+                              String accessKey,
+                              String project,
+                              String build,
+                              String tags,
+                              String tunnelName,
+                              String userFiles,
+                              boolean acceptInsecureCerts,
+                              boolean network,
+                              boolean console,
+                              boolean visual,
+                              boolean webSocketUrl,
+                              boolean sessionPoolEnabled,
+                              int sessionPoolSize,
+                              int sessionPoolMaxUses,
+                              long sessionPoolIdleTimeoutMs,
+                              int sessionLookAhead,
+                              int sessionMaxConcurrent,
+                              int admissionMaxSessions,
+                              boolean admissionProbe,
+                              long admissionQueueTimeoutMs) {
         this.driverType = driverType;
         this.timeoutMs = timeoutMs;
         this.gridUrl = gridUrl;
@@ -71,10 +120,29 @@ public final class LambdaDriverTarget implements Target {
         this.console = console;
         this.visual = visual;
         this.webSocketUrl = webSocketUrl;
+        this.sessionPoolEnabled = sessionPoolEnabled;
+        this.sessionPoolSize = sessionPoolSize;
+        this.sessionPoolMaxUses = sessionPoolMaxUses;
+        this.sessionPoolIdleTimeoutMs = sessionPoolIdleTimeoutMs;
+        this.sessionLookAhead = sessionLookAhead;
+        this.sessionMaxConcurrent = sessionMaxConcurrent;
+        this.admissionMaxSessions = admissionMaxSessions;
+        this.admissionProbe = admissionProbe;
+        this.admissionQueueTimeoutMs = admissionQueueTimeoutMs;
     }
 
     @Override
     public Map<String, Object> start(ScenarioRuntime runtime) {
+        LambdaSessionAdmission admission = admission();
+        if (admission != null && runtime != null) {
+            long admitStartedAt = System.nanoTime();
+            long waitedMs = admission.admit(runtime);
+            LambdaTrace.complete("admission", "session", admitStartedAt, System.nanoTime(), Map.of("limit", admission.limit()));
+            if (waitedMs > 0) {
+                runtime.logger.debug("lambda session admitted after {} ms (limit {})", waitedMs, admission.limit());
+            }
+        }
+        long startedAt = System.nanoTime();
         Map<String, Object> ltOptions = new LinkedHashMap<>();
         putIfNotBlankObject(ltOptions, "user", username);
         putIfNotBlankObject(ltOptions, "accessKey", accessKey);
@@ -89,8 +157,11 @@ public final class LambdaDriverTarget implements Target {
             ltOptions.put("tunnel", true);
             ltOptions.put("tunnelName", tunnelName.trim());
         }
-        if (!csv(userFiles).isEmpty()) {
-            ltOptions.put("lambda:userFiles", csv(userFiles));
+        Set<String> mergedUserFiles = new LinkedHashSet<>(csv(userFiles));
+        // LambdaSuiteHook adds the files it staged for this suite's account to the suite's lt.user.files
+        mergedUserFiles.addAll(csv(suiteProperty(runtime, "lt.user.files")));
+        if (!mergedUserFiles.isEmpty()) {
+            ltOptions.put("lambda:userFiles", new ArrayList<>(mergedUserFiles));
         }
         ltOptions.put("network", network);
         ltOptions.put("console", console);
@@ -112,14 +183,39 @@ public final class LambdaDriverTarget implements Target {
         Map<String, Object> config = new LinkedHashMap<>();
         config.put("type", driverType);
         config.put("start", false);
-        config.put("webDriverUrl", gridUrl);
+        config.put("webDriverUrl", sessionPoolEnabled || sessionLookAhead > 0 ? sessionBroker().url() : gridUrl);
         config.put("webDriverSession", webDriverSession);
         config.put("timeout", timeoutMs);
+        if (LambdaSessionFinalizer.enabled(reportDir(runtime))) {
+            // stop() quits the session through LambdaSessionFinalizer
+            config.put("stop", false);
+        }
+        LambdaTrace.complete("capabilities", "session", startedAt, System.nanoTime(), null);
+        LambdaTrace.sessionRequested();
         return config;
     }
 
     @Override
     public Map<String, Object> stop(ScenarioRuntime runtime) {
+        LambdaSessionAdmission admission = admission();
+        Runnable releaseSlot = admission == null ? null : () -> admission.release(runtime);
+        if (LambdaSessionFinalizer.enabled(reportDir(runtime))) {
+            Map<String, Object> sessionFields = new LinkedHashMap<>();
+            sessionFields.put("name", scenarioName(runtime));
+            List<String> mergedTags = mergedTags(runtime);
+            if (!mergedTags.isEmpty()) {
+                sessionFields.put("tags", mergedTags);
+            }
+            try {
+                return LambdaSessionFinalizer.shared().finish(runtime, username, accessKey, sessionFields, releaseSlot);
+            } finally {
+                LambdaTrace.scenarioFinished();
+            }
+        }
+        if (releaseSlot != null) {
+            releaseSlot.run();
+        }
+        LambdaTrace.scenarioFinished();
         return Collections.emptyMap();
     }
 
@@ -144,6 +240,15 @@ public final class LambdaDriverTarget implements Target {
         boolean console = parseBoolean(pick(props, "lt.console", "true"), true);
         boolean visual = parseBoolean(pick(props, "lt.visual", "true"), true);
         boolean webSocketUrl = parseBoolean(pick(props, "lt.webSocketUrl", "true"), true);
+        boolean sessionPoolEnabled = parseBoolean(pick(props, "lt.pool.enabled", "false"), false);
+        int sessionPoolSize = parseInt(pick(props, "lt.pool.size", "1"), 1);
+        int sessionPoolMaxUses = parseInt(pick(props, "lt.pool.max-uses", "10"), 10);
+        long sessionPoolIdleTimeoutMs = parseLong(pick(props, "lt.pool.idle-timeout-ms", "300000"), 300000L);
+        int sessionLookAhead = parseInt(pick(props, "lt.pool.look-ahead", "0"), 0);
+        int sessionMaxConcurrent = parseInt(pick(props, "lt.pool.max-sessions", "0"), 0);
+        int admissionMaxSessions = parseInt(pick(props, "lt.admission.max-sessions", "0"), 0);
+        boolean admissionProbe = parseBoolean(pick(props, "lt.admission.probe", "false"), false);
+        long admissionQueueTimeoutMs = parseLong(pick(props, "lt.admission.queue-timeout-ms", "600000"), 600000L);
         return new LambdaDriverTarget(
                 driverType,
                 timeoutMs,
@@ -163,10 +268,43 @@ public final class LambdaDriverTarget implements Target {
                 network,
                 console,
                 visual,
-                webSocketUrl
+                webSocketUrl,
+                sessionPoolEnabled,
+                sessionPoolSize,
+                sessionPoolMaxUses,
+                sessionPoolIdleTimeoutMs,
+                sessionLookAhead,
+                sessionMaxConcurrent,
+                admissionMaxSessions,
+                admissionProbe,
+                admissionQueueTimeoutMs
         );
     }
 
+    /**
+     * Copy of this target for one browser matrix cell. The cell is added to the LambdaTest name prefix and tags.
+     */
+    public LambdaDriverTarget forMatrixCell(String cellBrowserName, String cellBrowserVersion, String cellPlatformName) {
+        String name = isBlank(cellBrowserName) ? browserName : cellBrowserName.trim();
+        String version = isBlank(cellBrowserVersion) ? browserVersion : cellBrowserVersion.trim();
+        String platform = isBlank(cellPlatformName) ? platformName : cellPlatformName.trim();
+        String label = "[" + String.join(" ", cellParts(name, version, platform)) + "]";
+        String cellTags = isBlank(tags) ? cellId(name, version, platform) : tags.trim() + "," + cellId(name, version, platform);
+        return new LambdaDriverTarget(driverType, timeoutMs, gridUrl, name, version, platform,
+                isBlank(namePrefix) ? label : namePrefix.trim() + " " + label,
+                username, accessKey, project, build, cellTags, tunnelName, userFiles, acceptInsecureCerts, network,
+                console, visual, webSocketUrl, sessionPoolEnabled, sessionPoolSize, sessionPoolMaxUses,
+                sessionPoolIdleTimeoutMs, sessionLookAhead, sessionMaxConcurrent, admissionMaxSessions, admissionProbe,
+                admissionQueueTimeoutMs);
+    }
+
+    /**
+     * Stable id of this target's browser / version / platform, e.g. {@code chrome-latest-win11}.
+     */
+    public String matrixCellId() {
+        return cellId(browserName, browserVersion, platformName);
+    }
+
     public boolean hasCredentials() {
         return !isBlank(username) && !isBlank(accessKey);
     }
@@ -192,9 +330,47 @@ public final class LambdaDriverTarget implements Target {
         props.put("lt.console", String.valueOf(console));
         props.put("lt.visual", String.valueOf(visual));
         props.put("lt.webSocketUrl", String.valueOf(webSocketUrl));
+        props.put("lt.pool.enabled", String.valueOf(sessionPoolEnabled));
+        props.put("lt.pool.size", String.valueOf(sessionPoolSize));
+        props.put("lt.pool.max-uses", String.valueOf(sessionPoolMaxUses));
+        props.put("lt.pool.idle-timeout-ms", String.valueOf(sessionPoolIdleTimeoutMs));
+        props.put("lt.pool.look-ahead", String.valueOf(sessionLookAhead));
+        props.put("lt.pool.max-sessions", String.valueOf(sessionMaxConcurrent));
+        props.put("lt.admission.max-sessions", String.valueOf(admissionMaxSessions));
+        props.put("lt.admission.probe", String.valueOf(admissionProbe));
+        props.put("lt.admission.queue-timeout-ms", String.valueOf(admissionQueueTimeoutMs));
         return props;
     }
 
+    /**
+     * Account-wide admission gate, or {@code null} when no limit is configured or probed.
+     */
+    private LambdaSessionAdmission admission() {
+        if (admissionMaxSessions <= 0 && !admissionProbe) {
+            return null;
+        }
+        return LambdaSessionAdmission.forAccount(username, admissionMaxSessions,
+                () -> hasCredentials() ? LambdaApiClient.shared(username, accessKey).concurrencyLimit() : 0,
+                admissionQueueTimeoutMs);
+    }
+
+    private synchronized LambdaSessionBroker sessionBroker() {
+        if (sessionBroker == null || !sessionBroker.isOpen()) {
+            // look-ahead without pooling: sessions are pre-created but each serves exactly one scenario
+            sessionBroker = new LambdaSessionBroker(new LambdaSessionPool(
+                    gridUrl,
+                    username,
+                    accessKey,
+                    sessionPoolEnabled ? sessionPoolSize : 0,
+                    sessionPoolEnabled ? sessionPoolMaxUses : 1,
+                    sessionPoolIdleTimeoutMs,
+                    sessionLookAhead,
+                    sessionMaxConcurrent,
+                    admissionQueueTimeoutMs));
+        }
+        return sessionBroker;
+    }
+
     private String scenarioName(ScenarioRuntime runtime) {
         String scenario = runtime != null && runtime.scenario != null ? trimToNull(runtime.scenario.getName()) : null;
         String base = scenario == null ? "lambda-karate-lt-scenario" : scenario;
@@ -222,6 +398,33 @@ public final class LambdaDriverTarget implements Target {
         return new ArrayList<>(all);
     }
 
+    private static String cellId(String name, String version, String platform) {
+        String joined = String.join("-", cellParts(name, version, platform)).toLowerCase();
+        String id = joined.replaceAll("[^a-z0-9.]+", "-").replaceAll("^-+|-+$", "");
+        return id.isEmpty() ? "default" : id;
+    }
+
+    private static List<String> cellParts(String... values) {
+        List<String> out = new ArrayList<>();
+        for (String raw : values) {
+            String item = trimToNull(raw);
+            if (item != null) {
+                out.add(item);
+            }
+        }
+        return out;
+    }
+
+    private static String reportDir(ScenarioRuntime runtime) {
+        return runtime == null || runtime.featureRuntime == null ? null : runtime.featureRuntime.suite.reportDir;
+    }
+
+    private static String suiteProperty(ScenarioRuntime runtime, String key) {
+        Map<String, String> props = runtime == null || runtime.featureRuntime == null ? null
+                : runtime.featureRuntime.suite.systemProperties;
+        return props == null ? null : props.get(key);
+    }
+
     private static List<String> csv(String value) {
         String text = trimToNull(value);
         if (text == null) {
@@ -246,6 +449,14 @@ public final class LambdaDriverTarget implements Target {
         }
     }
 
+    private static long parseLong(String raw, long fallback) {
+        try {
+            return Long.parseLong(raw);
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+
     private static boolean parseBoolean(String raw, boolean fallback) {
         if (isBlank(raw)) {
             return fallback;
@@ -4,7 +4,12 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Static bridge so Karate feature code can obtain the Spring-created Target instance.
+ *
+ * @deprecated one instance per JVM cannot serve runners running side by side; use
+ * {@link LambdaDriverTargetRegistry}. {@link #getInstance()} now resolves through the registry and only falls back to
+ * the instance set here when the calling runner has no registered target.
  */
+@Deprecated
 public final class LambdaDriverTargetContext {
 
     private static final AtomicReference<LambdaDriverTarget> INSTANCE = new AtomicReference<>();
@@ -16,11 +21,18 @@ public final class LambdaDriverTargetContext {
         INSTANCE.set(target);
     }
 
+    /**
+     * Same as {@link LambdaDriverTargetRegistry#current()}.
+     */
     public static LambdaDriverTarget getInstance() {
-        return INSTANCE.get();
+        return LambdaDriverTargetRegistry.current();
     }
 
     public static void clearInstance() {
         INSTANCE.set(null);
     }
+
+    static LambdaDriverTarget fallback() {
+        return INSTANCE.get();
+    }
 }
@@ -0,0 +1,103 @@
+package io.cpogx.lambdatest.spring;
+
+import com.intuit.karate.Runner;
+import com.intuit.karate.core.ScenarioEngine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of {@link LambdaDriverTarget}s keyed per runner, so several runners (or matrix cells) with different
+ * targets can run side by side in one JVM. A runner carries its key in the {@value #KEY_PROPERTY} system property;
+ * feature code resolves its target with {@code LambdaDriverTargetRegistry.current()}.
+ */
+public final class LambdaDriverTargetRegistry {
+
+    public static final String KEY_PROPERTY = "lt.target.key";
+
+    private static final Map<String, LambdaDriverTarget> TARGETS = new ConcurrentHashMap<>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private LambdaDriverTargetRegistry() {
+    }
+
+    /**
+     * Registers the target under a generated key; close the registration once the runner has finished.
+     */
+    public static Registration register(LambdaDriverTarget target) {
+        return register("target-" + SEQUENCE.incrementAndGet(), target);
+    }
+
+    public static Registration register(String key, LambdaDriverTarget target) {
+        if (key == null || key.isBlank() || target == null) {
+            throw new IllegalArgumentException("key and target are required");
+        }
+        if (TARGETS.putIfAbsent(key, target) != null) {
+            throw new IllegalArgumentException("target key already registered: " + key);
+        }
+        return new Registration(key, target);
+    }
+
+    /**
+     * Registers the target and wires it into the runner: the target's Karate properties plus {@value #KEY_PROPERTY}.
+     */
+    public static Registration attach(Runner.Builder builder, LambdaDriverTarget target) {
+        if (builder == null) {
+            throw new IllegalArgumentException("builder is required");
+        }
+        Registration registration = register(target);
+        target.toKarateProperties().forEach(builder::systemProperty);
+        builder.systemProperty(KEY_PROPERTY, registration.key());
+        return registration;
+    }
+
+    public static LambdaDriverTarget get(String key) {
+        return key == null ? null : TARGETS.get(key);
+    }
+
+    /**
+     * Target of the runner executing the calling scenario, falling back to the legacy
+     * {@link LambdaDriverTargetContext} instance; {@code null} when neither is set.
+     */
+    @SuppressWarnings("deprecation")
+    public static LambdaDriverTarget current() {
+        ScenarioEngine engine = ScenarioEngine.get();
+        Map<String, String> properties = engine == null || engine.runtime == null
+                ? null
+                : engine.runtime.featureRuntime.suite.systemProperties;
+        LambdaDriverTarget target = properties == null ? null : get(properties.get(KEY_PROPERTY));
+        return target == null ? LambdaDriverTargetContext.fallback() : target;
+    }
+
+    public static int size() {
+        return TARGETS.size();
+    }
+
+    /**
+     * Handle for one registered target; closing it removes the target from the registry.
+     */
+    public static final class Registration implements AutoCloseable {
+
+        private final String key;
+        private final LambdaDriverTarget target;
+
+        private Registration(String key, LambdaDriverTarget target) {
+            this.key = key;
+            this.target = target;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public LambdaDriverTarget target() {
+            return target;
+        }
+
+        @Override
+        public void close() {
+            TARGETS.remove(key, target);
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package io.cpogx.lambdatest.spring;
 
+import io.cpogx.lambdatest.interop.LambdaMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,4 +18,49 @@ public class LambdaTargetConfiguration {
     public LambdaDriverTarget lambdaDriverTarget(LambdaTargetProperties properties) {
         return properties.toDriverTarget();
     }
+
+    @Bean
+    public LambdaDriverMatrix lambdaDriverMatrix(LambdaTargetProperties properties) {
+        return properties.toDriverMatrix();
+    }
+
+    /**
+     * Binds {@link LambdaMetrics} to the application's registry, or to a simple one when none is defined, while the
+     * context is running; the suite-end snapshot goes to {@code cpogx.lambdatest.metrics.file}.
+     */
+    @Bean
+    public LambdaMetricsBinding lambdaMetricsBinding(LambdaTargetProperties properties,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return new LambdaMetricsBinding(meterRegistry.getIfAvailable(SimpleMeterRegistry::new),
+                properties.getLambdatest().getMetrics().getFile());
+    }
+
+    /**
+     * Binds the registry {@link LambdaMetrics} records into once the bean is initialized, and unbinds it when the
+     * context closes.
+     */
+    public static final class LambdaMetricsBinding implements InitializingBean, DisposableBean {
+
+        private final MeterRegistry registry;
+        private final String file;
+
+        LambdaMetricsBinding(MeterRegistry registry, String file) {
+            this.registry = registry;
+            this.file = file;
+        }
+
+        public MeterRegistry registry() {
+            return registry;
+        }
+
+        @Override
+        public void afterPropertiesSet() {
+            LambdaMetrics.bind(registry, file);
+        }
+
+        @Override
+        public void destroy() {
+            LambdaMetrics.unbind(registry);
+        }
+    }
 }
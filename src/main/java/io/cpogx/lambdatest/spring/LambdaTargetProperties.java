@@ -1,13 +1,18 @@
 package io.cpogx.lambdatest.spring;
 
+import io.cpogx.lambdatest.interop.LambdaMetrics;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "cpogx")
 public class LambdaTargetProperties {
 
     private final Execution execution = new Execution();
     private final Browser browser = new Browser();
     private final LambdaTest lambdatest = new LambdaTest();
+    private List<Browser> matrix = new ArrayList<>();
 
     public Execution getExecution() {
         return execution;
@@ -21,6 +26,29 @@ public class LambdaTargetProperties {
         return lambdatest;
     }
 
+    public List<Browser> getMatrix() {
+        return matrix;
+    }
+
+    public void setMatrix(List<Browser> matrix) {
+        this.matrix = matrix == null ? new ArrayList<>() : matrix;
+    }
+
+    /**
+     * One target per {@code cpogx.matrix} cell, or the single {@code cpogx.browser} target when no matrix is set.
+     */
+    public LambdaDriverMatrix toDriverMatrix() {
+        LambdaDriverTarget base = toDriverTarget();
+        List<LambdaDriverTarget> targets = new ArrayList<>();
+        for (Browser cell : matrix) {
+            targets.add(base.forMatrixCell(cell.name, cell.version, cell.platformName));
+        }
+        if (targets.isEmpty()) {
+            targets.add(base);
+        }
+        return new LambdaDriverMatrix(targets, execution.threads);
+    }
+
     public LambdaDriverTarget toDriverTarget() {
         String tunnelName = lambdatest.tunnel.enabled && !isBlank(lambdatest.tunnel.name)
                 ? lambdatest.tunnel.name
@@ -44,13 +72,23 @@ public class LambdaTargetProperties {
                 lambdatest.network,
                 lambdatest.console,
                 lambdatest.visual,
-                lambdatest.webSocketUrl
+                lambdatest.webSocketUrl,
+                lambdatest.pool.enabled,
+                lambdatest.pool.size,
+                lambdatest.pool.maxUses,
+                lambdatest.pool.idleTimeoutMs,
+                lambdatest.pool.lookAhead,
+                lambdatest.pool.maxSessions,
+                lambdatest.admission.maxSessions,
+                lambdatest.admission.probe,
+                lambdatest.admission.queueTimeoutMs
         );
     }
 
     public static class Execution {
         private String driverType = "chromedriver";
         private int timeoutMs = 30000;
+        private int threads = 1;
 
         public String getDriverType() {
             return driverType;
@@ -67,6 +105,14 @@ public class LambdaTargetProperties {
         public void setTimeoutMs(int timeoutMs) {
             this.timeoutMs = timeoutMs;
         }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
     }
 
     public static class Browser {
@@ -114,6 +160,9 @@ public class LambdaTargetProperties {
         private boolean visual = true;
         private boolean webSocketUrl = true;
         private final Tunnel tunnel = new Tunnel();
+        private final Pool pool = new Pool();
+        private final Admission admission = new Admission();
+        private final Metrics metrics = new Metrics();
 
         public String getGridUrl() {
             return gridUrl;
@@ -222,6 +271,18 @@ public class LambdaTargetProperties {
         public Tunnel getTunnel() {
             return tunnel;
         }
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public Admission getAdmission() {
+            return admission;
+        }
+
+        public Metrics getMetrics() {
+            return metrics;
+        }
     }
 
     public static class Tunnel {
@@ -245,6 +306,105 @@ public class LambdaTargetProperties {
         }
     }
 
+    public static class Pool {
+        private boolean enabled = false;
+        private int size = 1;
+        private int maxUses = 10;
+        private long idleTimeoutMs = 300000L;
+        private int lookAhead = 0;
+        private int maxSessions = 0;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getMaxUses() {
+            return maxUses;
+        }
+
+        public void setMaxUses(int maxUses) {
+            this.maxUses = maxUses;
+        }
+
+        public long getIdleTimeoutMs() {
+            return idleTimeoutMs;
+        }
+
+        public void setIdleTimeoutMs(long idleTimeoutMs) {
+            this.idleTimeoutMs = idleTimeoutMs;
+        }
+
+        public int getLookAhead() {
+            return lookAhead;
+        }
+
+        public void setLookAhead(int lookAhead) {
+            this.lookAhead = lookAhead;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+    }
+
+    public static class Admission {
+        private int maxSessions = 0;
+        private boolean probe = false;
+        private long queueTimeoutMs = 600000L;
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public boolean isProbe() {
+            return probe;
+        }
+
+        public void setProbe(boolean probe) {
+            this.probe = probe;
+        }
+
+        public long getQueueTimeoutMs() {
+            return queueTimeoutMs;
+        }
+
+        public void setQueueTimeoutMs(long queueTimeoutMs) {
+            this.queueTimeoutMs = queueTimeoutMs;
+        }
+    }
+
+    public static class Metrics {
+        private String file = LambdaMetrics.DEFAULT_EXPORT_FILE;
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+    }
+
     private static boolean isBlank(String value) {
         return value == null || value.isBlank();
     }
@@ -79,7 +79,8 @@ function fn(config) {
     accessKey: cfg.accessKey || prop('lt.accessKey', ''),
     tunnelName: cfg.tunnelName || prop('lt.tunnel.name', ''),
     tags: csv(prop('lt.tags', '')),
-    userFiles: csv(prop('lt.user.files', ''))
+    userFiles: csv(prop('lt.user.files', '')),
+    videoAsync: cfg.videoAsync !== undefined ? boolValue(cfg.videoAsync, true) : boolValue(prop('lt.video.async', ''), true)
   };
 
   runtime.buildWebDriverSession = function (overrides) {
@@ -153,6 +154,11 @@ function fn(config) {
   runtime.createAfterScenario = function () {
     return function () {
       var Interop = Java.type('io.cpogx.lambdatest.interop.LambdaWebDriverInterop');
+      var Finalizer = Java.type('io.cpogx.lambdatest.interop.LambdaSessionFinalizer');
+      if (typeof driver !== 'undefined' && driver && Finalizer.isTargetManaged(driver)) {
+        // LambdaDriverTarget.stop finalizes the session
+        return;
+      }
       var status = 'passed';
       var sessionId = null;
       try {
@@ -169,14 +175,24 @@ function fn(config) {
         karate.log('lambda session id read failed', sessionError + '');
       }
 
+      // rest mode: quit first so the grid slot is freed, the status follows through the outbox
+      var restStatus = sessionId && Java.type('io.cpogx.lambdatest.interop.LambdaStatusOutbox').restMode();
       try {
-        if (typeof driver !== 'undefined' && driver) {
+        if (typeof driver !== 'undefined' && driver && !restStatus) {
           Interop.lambdaStatus(driver, status);
         }
       } catch (e1) {
         karate.log('lambda status update failed', e1 + '');
       }
 
+      try {
+        if (sessionId) {
+          Java.type('io.cpogx.lambdatest.interop.LambdaBidiChannel').closeSession(sessionId);
+        }
+      } catch (bidiError) {
+        karate.log('bidi channel close failed', bidiError + '');
+      }
+
       try {
         if (typeof driver !== 'undefined' && driver) {
           driver.quit();
@@ -186,12 +202,24 @@ function fn(config) {
       }
 
       try {
-        if (sessionId) {
-          var videoBytes = Interop.downloadSessionVideo(sessionId, runtime.username, runtime.accessKey);
-          if (videoBytes) {
-            var videoName = 'lambdatest-video-' + sessionId + '.mp4';
-            karate.write(videoBytes, 'lambdatest-videos/' + videoName);
-            karate.embed(videoBytes, 'video/mp4');
+        if (restStatus) {
+          Interop.queueLambdaStatus(sessionId, status, null, runtime.username, runtime.accessKey);
+        }
+      } catch (e3) {
+        karate.log('lambda status queue failed', e3 + '');
+      }
+
+      try {
+        var SessionPool = Java.type('io.cpogx.lambdatest.session.LambdaSessionPool');
+        if (sessionId && SessionPool.isPooledSession(sessionId)) {
+          karate.log('lambda video skipped for pooled session', sessionId);
+        } else if (sessionId) {
+          Java.type('io.cpogx.lambdatest.interop.LambdaUploadCache').shared().forgetSession(sessionId);
+          var videoPath = runtime.videoAsync
+            ? Interop.harvestSessionVideo(sessionId, runtime.username, runtime.accessKey)
+            : Interop.downloadSessionVideoToReport(sessionId, runtime.username, runtime.accessKey);
+          if (videoPath) {
+            karate.embed('<video controls="true" width="100%"><source src="' + videoPath + '" type="video/mp4"/></video>', 'text/html');
           } else {
             karate.log('lambda video unavailable for scenario', karate.info ? karate.info.scenarioName : '');
           }
@@ -0,0 +1,95 @@
+package io.cpogx.lambdatest;
+
+import com.intuit.karate.Json;
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+import io.cpogx.lambdatest.interop.LambdaBuildHarvester;
+import io.cpogx.lambdatest.interop.LambdaSuiteHook;
+import io.cpogx.lambdatest.spring.LambdaDriverTarget;
+import io.cpogx.lambdatest.spring.LambdaDriverTargetRegistry;
+import io.cpogx.lambdatest.support.LambdaFakeGrid;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drives {@code lt.load.scenarios} scenarios on {@code lt.load.threads} threads through {@link LambdaDriverTarget}
+ * against a {@link LambdaFakeGrid} and writes the throughput to {@code load-summary.json} in the report dir.
+ * Runs only through {@code gradle loadTest}, e.g. with {@code -Plt.load.scenarios=500 -Plt.load.threads=32
+ * -Plt.fake.latency-ms=20}.
+ */
+class LambdaLoadHarnessTest {
+
+    private static final String REPORT_DIR = "build/karate-reports/lambdatest-load";
+
+    @Test
+    void runLoad() throws Exception {
+        int scenarios = Integer.parseInt(LambdaSmokeTest.read("lt.load.scenarios", "24"));
+        int threads = Integer.parseInt(LambdaSmokeTest.read("lt.load.threads", "8"));
+        Map<String, String> previous = new LinkedHashMap<>();
+        swapProperty(previous, "lt.video.poll.initial-delay-ms", "0");
+        try (LambdaFakeGrid grid = LambdaFakeGrid.fromSystemProperties()) {
+            swapProperty(previous, "lt.api.base.url", grid.apiUrl());
+            Map<String, String> props = new LinkedHashMap<>();
+            props.put("karate.grid.url", grid.gridUrl());
+            props.put("lt.username", "load-user");
+            props.put("lt.accessKey", "load-key");
+            props.put("lt.build", "lambda-karate-lt-load");
+            props.put("lt.tags", "load");
+            props.put("lt.load.scenarios", String.valueOf(scenarios));
+            LambdaDriverTarget target = LambdaDriverTarget.fromKarateProperties(props);
+
+            Runner.Builder builder = Runner.path("classpath:features/lambdatest-load.feature")
+                    .reportDir(REPORT_DIR)
+                    .hook(new LambdaSuiteHook());
+            props.forEach(builder::systemProperty);
+            long started = System.nanoTime();
+            Results results;
+            try (LambdaDriverTargetRegistry.Registration ignored = LambdaDriverTargetRegistry.attach(builder, target)) {
+                results = builder.parallel(threads);
+            }
+            long elapsedMs = Math.max(1L, (System.nanoTime() - started) / 1_000_000L);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("scenarios", results.getScenariosTotal());
+            summary.put("failed", results.getFailCount());
+            summary.put("threads", threads);
+            summary.put("elapsedMs", elapsedMs);
+            summary.put("scenariosPerSecond", Math.round(results.getScenariosTotal() * 100_000d / elapsedMs) / 100d);
+            summary.put("peakSessions", grid.peakSessions());
+            summary.put("videoLookups", grid.count("GET sessions") + grid.count("GET video") + grid.count("GET session"));
+            summary.put("requests", grid.counts());
+            Path file = Path.of(REPORT_DIR, "load-summary.json");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, Json.of(summary).toStringPretty(), StandardCharsets.UTF_8);
+
+            Assertions.assertEquals(scenarios, results.getScenariosTotal());
+            if (grid.count("injected-failure") == 0 && grid.count("queue-timeout") == 0) {
+                Assertions.assertEquals(0, results.getFailCount(), results.getErrorMessages());
+                Assertions.assertEquals(scenarios, grid.createdSessions());
+                Assertions.assertEquals(0, grid.activeSessions(), "every session is quit by the finalizer");
+                Assertions.assertEquals(scenarios, grid.statuses().values().stream().filter("passed"::equals).count());
+                Assertions.assertEquals(scenarios, grid.count("GET file"), "one video per session");
+                Assertions.assertTrue(Files.exists(Path.of(REPORT_DIR, LambdaBuildHarvester.INDEX_FILE)));
+            }
+        } finally {
+            previous.forEach((key, value) -> {
+                if (value == null) {
+                    System.clearProperty(key);
+                } else {
+                    System.setProperty(key, value);
+                }
+            });
+        }
+    }
+
+    private static void swapProperty(Map<String, String> previous, String key, String value) {
+        previous.put(key, System.getProperty(key));
+        System.setProperty(key, value);
+    }
+}
@@ -2,8 +2,10 @@ package io.cpogx.lambdatest;
 
 import com.intuit.karate.Results;
 import com.intuit.karate.Runner;
+import io.cpogx.lambdatest.interop.LambdaSuiteHook;
+import io.cpogx.lambdatest.spring.LambdaDriverMatrix;
 import io.cpogx.lambdatest.spring.LambdaDriverTarget;
-import io.cpogx.lambdatest.spring.LambdaDriverTargetContext;
+import io.cpogx.lambdatest.spring.LambdaDriverTargetRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
@@ -13,32 +15,49 @@ import java.util.Map;
 
 class LambdaSmokeTest {
 
+    private static final String REPORT_DIR = "build/karate-reports/lambdatest-smoke";
+
     @Test
     void runSmoke() {
         Map<String, String> props = defaultKarateProperties();
         LambdaDriverTarget target = LambdaDriverTarget.fromKarateProperties(props);
         Assumptions.assumeTrue(target.hasCredentials(),
                 "Skipping Lambda smoke test because lt.username / lt.accessKey are not set.");
-        runSmokeWithTarget(target, props, readTagExpression());
+        LambdaDriverMatrix matrix = LambdaDriverMatrix.fromKarateProperties(props);
+        if (matrix.size() > 1) {
+            runSmokeMatrix(matrix, readTagExpression());
+        } else {
+            runSmokeWithTarget(target, props, readTagExpression());
+        }
+    }
+
+    void runSmokeMatrix(LambdaDriverMatrix matrix, String tagExpression) {
+        Map<String, Results> results = matrix.run(target ->
+                smokeRunner(REPORT_DIR + "/" + target.matrixCellId(), tagExpression));
+        results.forEach((cell, cellResults) ->
+                Assertions.assertEquals(0, cellResults.getFailCount(), cell + ": " + cellResults.getErrorMessages()));
     }
 
     void runSmokeWithTarget(LambdaDriverTarget target, Map<String, String> props, String tagExpression) {
-        Runner.Builder builder = Runner.path("classpath:features/lambdatest-smoke.feature")
-                .reportDir("build/karate-reports/lambdatest-smoke")
-                .outputCucumberJson(true);
-        if (tagExpression != null && !tagExpression.isBlank()) {
-            builder.tags(tagExpression);
-        }
+        Runner.Builder builder = smokeRunner(REPORT_DIR, tagExpression);
         props.forEach(builder::systemProperty);
-        LambdaDriverTargetContext.setInstance(target);
-        try {
+        try (LambdaDriverTargetRegistry.Registration ignored = LambdaDriverTargetRegistry.attach(builder, target)) {
             Results results = builder.parallel(1);
             Assertions.assertEquals(0, results.getFailCount(), results.getErrorMessages());
-        } finally {
-            LambdaDriverTargetContext.clearInstance();
         }
     }
 
+    private static Runner.Builder smokeRunner(String reportDir, String tagExpression) {
+        Runner.Builder builder = Runner.path("classpath:features/lambdatest-smoke.feature")
+                .reportDir(reportDir)
+                .outputCucumberJson(true)
+                .hook(new LambdaSuiteHook());
+        if (tagExpression != null && !tagExpression.isBlank()) {
+            builder.tags(tagExpression);
+        }
+        return builder;
+    }
+
     static Map<String, String> defaultKarateProperties() {
         Map<String, String> props = new LinkedHashMap<>();
         props.put("karate.driver.type", read("karate.driver.type", "chromedriver"));
@@ -60,6 +79,11 @@ class LambdaSmokeTest {
         if (!userFiles.isBlank()) {
             props.put("lt.user.files", userFiles);
         }
+        String matrix = read("lt.matrix", "");
+        if (!matrix.isBlank()) {
+            props.put("lt.matrix", matrix);
+        }
+        props.put("cpogx.execution.threads", read("cpogx.execution.threads", "1"));
         return props;
     }
 
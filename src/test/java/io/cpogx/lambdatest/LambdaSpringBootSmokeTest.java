@@ -1,5 +1,6 @@
 package io.cpogx.lambdatest;
 
+import io.cpogx.lambdatest.spring.LambdaDriverMatrix;
 import io.cpogx.lambdatest.spring.LambdaDriverTarget;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assumptions;
@@ -16,6 +17,9 @@ class LambdaSpringBootSmokeTest {
     @Autowired
     private LambdaDriverTarget driverTarget;
 
+    @Autowired
+    private LambdaDriverMatrix driverMatrix;
+
     @Autowired
     private Environment environment;
 
@@ -26,6 +30,10 @@ class LambdaSpringBootSmokeTest {
                 "Skipping Lambda Spring smoke test because credentials are not configured.");
 
         String tags = environment.getProperty("karate.tags", LambdaSmokeTest.readTagExpression());
-        new LambdaSmokeTest().runSmokeWithTarget(driverTarget, props, tags == null ? "" : tags);
+        if (driverMatrix.size() > 1) {
+            new LambdaSmokeTest().runSmokeMatrix(driverMatrix, tags == null ? "" : tags);
+        } else {
+            new LambdaSmokeTest().runSmokeWithTarget(driverTarget, props, tags == null ? "" : tags);
+        }
     }
 }
@@ -0,0 +1,46 @@
+package io.cpogx.lambdatest.interop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class LambdaAsyncPermitsTest {
+
+    @Test
+    void queuesCallsBeyondThePermitsWithoutBlockingTheCaller() {
+        LambdaAsyncPermits permits = new LambdaAsyncPermits(1);
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> first = new CompletableFuture<>();
+
+        CompletableFuture<String> one = permits.submit(() -> {
+            started.incrementAndGet();
+            return first;
+        });
+        CompletableFuture<String> two = permits.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("two");
+        });
+
+        assertEquals(1, started.get(), "the second call waits for the permit");
+        assertFalse(two.isDone());
+        first.complete("one");
+        assertEquals("one", one.join());
+        assertEquals("two", two.join());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void releasesThePermitWhenTheCallFails() {
+        LambdaAsyncPermits permits = new LambdaAsyncPermits(1);
+        CompletableFuture<Object> failed = permits.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertEquals("ok", permits.submit(() -> CompletableFuture.completedFuture("ok")).join());
+        assertEquals(true, failed.isCompletedExceptionally());
+    }
+}
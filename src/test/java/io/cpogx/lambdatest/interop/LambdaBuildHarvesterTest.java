@@ -0,0 +1,131 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import io.cpogx.lambdatest.support.LambdaFakeGrid;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaBuildHarvesterTest {
+
+    private static final String SESSION = "{\"capabilities\":{\"alwaysMatch\":{\"browserName\":\"Chrome\","
+            + "\"LT:Options\":{\"name\":\"n\",\"build\":\"harvest-build\"}}}}";
+
+    @TempDir
+    Path dir;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @AfterEach
+    void clearProperties() {
+        System.clearProperty("lt.api.base.url");
+        System.clearProperty("lt.video.poll.initial-delay-ms");
+        System.clearProperty("lt.harvest.page-size");
+        System.clearProperty("lt.harvest.logs");
+        System.clearProperty("lt.video.harvest");
+    }
+
+    @Test
+    void listsTheBuildOnceAndAttachesArtifactsBySessionId() throws Exception {
+        try (LambdaFakeGrid grid = new LambdaFakeGrid(0L, 0L, 0d, 0, 0L)) {
+            System.setProperty("lt.api.base.url", grid.apiUrl());
+            System.setProperty("lt.video.poll.initial-delay-ms", "0");
+            System.setProperty("lt.harvest.page-size", "2");
+            System.setProperty("lt.harvest.logs", "command,console");
+            send("POST", grid.gridUrl() + "/session", SESSION);
+            send("POST", grid.gridUrl() + "/session", SESSION);
+            // a session outside the build: found through its own video endpoint
+            send("POST", grid.gridUrl() + "/session", SESSION.replace("\"build\":\"harvest-build\"", "\"build\":\"other\""));
+            for (int i = 1; i <= 3; i++) {
+                send("DELETE", grid.gridUrl() + "/session/fake-" + i, null);
+            }
+
+            String reportDir = dir.toString();
+            LambdaBuildHarvester harvester = new LambdaBuildHarvester();
+            harvester.register(reportDir, "fake-1", "[1:3] one", "harvest-user", "harvest-key");
+            harvester.register(reportDir, "fake-3", "[1:4] three", "harvest-user", "harvest-key");
+            Map<String, Object> summary = harvester.harvest(reportDir);
+
+            assertEquals(2, summary.get("videos"), summary.toString());
+            assertEquals(4, summary.get("logs"), summary.toString());
+            assertEquals(0, harvester.registeredCount(reportDir));
+            assertEquals(1, grid.count("GET session"), "the build id comes from the first session");
+            assertEquals(1, grid.count("GET sessions"), "the build has two sessions, one page of two");
+            assertEquals(1, grid.count("GET video"), "only the session missing from the listing is asked for");
+            assertEquals(2, grid.count("GET file"));
+
+            List<Map<String, Object>> index = Json.of(Files.readString(dir.resolve(LambdaBuildHarvester.INDEX_FILE))).get("$");
+            Map<String, Object> one = index.stream().filter(row -> "fake-1".equals(row.get("sessionId"))).findFirst().orElseThrow();
+            Map<String, Object> three = index.stream().filter(row -> "fake-3".equals(row.get("sessionId"))).findFirst().orElseThrow();
+            assertEquals("1", one.get("buildId"));
+            assertEquals("[1:4] three", three.get("scenario"));
+            assertEquals(LambdaWebDriverInterop.sessionVideoRelativePath("fake-3"), three.get("video"));
+            assertTrue(Files.size(dir.resolve((String) three.get("video"))) > 0);
+            assertTrue(Files.readString(dir.resolve(LambdaBuildHarvester.logRelativePath("fake-3", "console"))).contains("console"));
+        }
+    }
+
+    @Test
+    void accountsAreLookedUpConcurrentlyWithinTheTimeout() throws Exception {
+        try (LambdaFakeGrid grid = new LambdaFakeGrid(0L, 0L, 0d, 0, 0L)) {
+            System.setProperty("lt.api.base.url", grid.apiUrl());
+            System.setProperty("lt.harvest.logs", "none");
+            send("POST", grid.gridUrl() + "/session", SESSION);
+            send("POST", grid.gridUrl() + "/session", SESSION);
+            // fake-1 stays open, so its video never becomes ready
+            send("DELETE", grid.gridUrl() + "/session/fake-2", null);
+
+            String reportDir = dir.toString();
+            LambdaBuildHarvester harvester = new LambdaBuildHarvester();
+            harvester.register(reportDir, "fake-1", "[1:3] open", "first-user", "key");
+            harvester.register(reportDir, "fake-2", "[1:4] quit", "second-user", "key");
+            long startedAt = System.nanoTime();
+            Map<String, Object> summary = harvester.harvest(reportDir, 1_000L);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+            assertTrue(elapsedMs < 4_000L, "bounded by the timeout, without the initial poll delay: " + elapsedMs);
+            assertEquals(1, summary.get("videos"), summary.toString());
+            assertEquals(1, summary.get("missing"), summary.toString());
+            assertTrue(Files.exists(dir.resolve(LambdaBuildHarvester.INDEX_FILE)));
+        }
+    }
+
+    @Test
+    void onlyReportDirsOfHookedSuitesAreCollectedPerBuild() {
+        LambdaBuildHarvester harvester = new LambdaBuildHarvester();
+        String reportDir = dir.toString();
+        assertFalse(harvester.collects(reportDir), "without the suite hook nothing would ever harvest the build");
+        LambdaSuiteHook.attach(reportDir);
+        LambdaSuiteHook.attach(reportDir);
+        assertTrue(harvester.collects(reportDir));
+        LambdaSuiteHook.detach(reportDir);
+        assertTrue(harvester.collects(reportDir), "another suite on the same report dir is still running");
+        System.setProperty("lt.video.harvest", "session");
+        assertFalse(harvester.collects(reportDir));
+        System.clearProperty("lt.video.harvest");
+        LambdaSuiteHook.detach(reportDir);
+        assertFalse(harvester.collects(reportDir));
+    }
+
+    private void send(String method, String url, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        http.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+}
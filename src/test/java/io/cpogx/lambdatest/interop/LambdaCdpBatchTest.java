@@ -0,0 +1,165 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaCdpBatchTest {
+
+    @Test
+    void rejectsCommandsWithoutCmd() {
+        assertThrows(IllegalArgumentException.class, () -> LambdaCdpBatch.of(List.of()));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> LambdaCdpBatch.of(List.of(Map.of("cmd", "Page.enable"), Map.of("params", Map.of()))));
+        assertEquals("cdp command 1 needs a cmd", error.getMessage());
+    }
+
+    @Test
+    void runsDomainsConcurrentlyKeepsOrderAndCollectsErrors() throws Exception {
+        List<String> arrivals = new CopyOnWriteArrayList<>();
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        grid.setExecutor(executor);
+        grid.createContext("/wd/hub/session/s1/goog/cdp/execute", exchange -> {
+            Map<String, Object> body = Json.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).asMap();
+            String cmd = String.valueOf(body.get("cmd"));
+            arrivals.add(cmd);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int status = cmd.startsWith("Broken.") ? 500 : 200;
+            byte[] bytes = (status == 200 ? "{\"value\":{\"cmd\":\"" + cmd + "\"}}" : "{\"value\":{\"error\":\"boom\"}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.start();
+        try {
+            LambdaCdpBatch batch = LambdaCdpBatch.of(List.of(
+                    Map.of("cmd", "Network.enable"),
+                    Map.of("cmd", "Emulation.setTimezoneOverride", "params", Map.of("timezoneId", "UTC")),
+                    Map.of("cmd", "Network.setExtraHTTPHeaders", "params", Map.of("headers", Map.of("x-run", "ci"))),
+                    Map.of("cmd", "Broken.first"),
+                    Map.of("cmd", "Broken.second"),
+                    Map.of("cmd", "Page.enable")));
+
+            Map<String, Object> result = batch.run("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub", "s1");
+
+            List<?> results = (List<?>) result.get("results");
+            assertEquals(6, results.size());
+            assertEquals("Network.enable", ((Map<?, ?>) results.get(0)).get("cmd"));
+            assertEquals("Network.setExtraHTTPHeaders", ((Map<?, ?>) results.get(2)).get("cmd"));
+            assertEquals("Page.enable", ((Map<?, ?>) results.get(5)).get("cmd"));
+            assertNull(results.get(3));
+            assertTrue(arrivals.indexOf("Network.enable") < arrivals.indexOf("Network.setExtraHTTPHeaders"), arrivals.toString());
+            assertTrue(!arrivals.contains("Broken.second"), arrivals.toString());
+
+            List<?> errors = (List<?>) result.get("errors");
+            assertEquals(2, errors.size());
+            assertEquals(3, ((Map<?, ?>) errors.get(0)).get("index"));
+            assertTrue(String.valueOf(((Map<?, ?>) errors.get(0)).get("error")).startsWith("/goog/cdp/execute failed: status=500"));
+            assertEquals("skipped", ((Map<?, ?>) ((List<?>) result.get("timings")).get(4)).get("status"));
+
+            // four chains of at most two 300 ms calls: well under the 1.5 s a sequential run would take
+            assertTrue((Long) result.get("totalMs") < 1_200L, String.valueOf(result.get("totalMs")));
+        } finally {
+            grid.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void aNonJsonReplyFailsOnlyItsOwnCommand() throws Exception {
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session/s1/goog/cdp/execute", exchange -> {
+            String cmd = String.valueOf(Json.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))
+                    .asMap().get("cmd"));
+            byte[] bytes = (cmd.startsWith("Proxy.") ? "<html>gateway</html>" : "{\"value\":{}}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.start();
+        try {
+            Map<String, Object> result = LambdaCdpBatch.of(List.of(Map.of("cmd", "Proxy.page"), Map.of("cmd", "Page.enable")))
+                    .run("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub", "s1");
+
+            List<?> timings = (List<?>) result.get("timings");
+            assertEquals("error", ((Map<?, ?>) timings.get(0)).get("status"));
+            assertEquals("ok", ((Map<?, ?>) timings.get(1)).get("status"));
+            assertEquals(1, ((List<?>) result.get("errors")).size());
+        } finally {
+            grid.stop(0);
+        }
+    }
+
+    @Test
+    void eachCommandIsBoundByTheTimeoutAndTimed() throws Exception {
+        MeterRegistry registry = LambdaMetrics.bind(new SimpleMeterRegistry(), null);
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        grid.setExecutor(executor);
+        grid.createContext("/wd/hub/session/s1/goog/cdp/execute", exchange -> {
+            String cmd = String.valueOf(Json.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))
+                    .asMap().get("cmd"));
+            if (cmd.startsWith("Slow.")) {
+                try {
+                    Thread.sleep(1_000L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] bytes = "{\"value\":{}}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            } catch (IOException ignored) {
+                // the client gave up on the slow command
+            }
+        });
+        grid.start();
+        try {
+            Map<String, Object> result = LambdaCdpBatch.of(List.of(Map.of("cmd", "Slow.page"), Map.of("cmd", "Page.enable")))
+                    .run("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub", "s1", Duration.ofMillis(200),
+                            "chrome", "win11");
+
+            List<?> timings = (List<?>) result.get("timings");
+            assertEquals("error", ((Map<?, ?>) timings.get(0)).get("status"));
+            assertEquals("ok", ((Map<?, ?>) timings.get(1)).get("status"));
+            Timer ok = registry.find(LambdaMetrics.CALLS).tags("operation", "cdpExecute", "status", "200", "browser", "chrome").timer();
+            Timer failed = registry.find(LambdaMetrics.CALLS).tags("operation", "cdpExecute", "status", "none", "outcome", "failure").timer();
+            assertNotNull(ok);
+            assertNotNull(failed);
+            assertEquals(1, ok.count());
+            assertEquals(1, failed.count());
+        } finally {
+            grid.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.cpogx.lambdatest.interop;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LambdaDriverIntrospectionTest {
+
+    @Test
+    void resolvesSessionIdFromGetterOrPrivateFieldAndCachesPerInstance() {
+        assertEquals("getter-1", LambdaDriverIntrospection.sessionId(new GetterDriver("getter-1")));
+
+        FieldDriver driver = new FieldDriver();
+        assertNull(LambdaDriverIntrospection.sessionId(driver), "no session yet, nothing cached");
+        driver.remoteSession = "field-1";
+        assertEquals("field-1", LambdaDriverIntrospection.sessionId(driver));
+
+        driver.remoteSession = "field-2";
+        assertEquals("field-1", LambdaDriverIntrospection.sessionId(driver), "served from the instance cache");
+        assertEquals("field-2", LambdaDriverIntrospection.resolveSessionId(driver));
+        LambdaDriverIntrospection.forget(driver);
+        assertEquals("field-2", LambdaDriverIntrospection.sessionId(driver));
+    }
+
+    @Test
+    void platformFallsBackToSystemProperty() {
+        String previous = System.getProperty("karate.platform.name");
+        System.setProperty("karate.platform.name", "macOS Sonoma");
+        try {
+            assertEquals("macOS Sonoma", LambdaDriverIntrospection.platformName(new FieldDriver()));
+        } finally {
+            if (previous == null) {
+                System.clearProperty("karate.platform.name");
+            } else {
+                System.setProperty("karate.platform.name", previous);
+            }
+        }
+    }
+
+    public static final class GetterDriver {
+
+        private final String id;
+
+        GetterDriver(String id) {
+            this.id = id;
+        }
+
+        public String getSessionId() {
+            return id;
+        }
+    }
+
+    static class BaseDriver {
+
+        String remoteSession;
+    }
+
+    static final class FieldDriver extends BaseDriver {
+
+        private final String name = "not a session";
+    }
+}
@@ -0,0 +1,120 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaInterceptRulesTest {
+
+    private static final Map<String, Object> REDIRECT = Map.of("url", "https://a/one.js", "redirectUrl", "https://a/two.js");
+    private static final Map<String, Object> MOCK = Map.of("url", "https://a/api", "method", "GET",
+            "response", Map.of("status", 201, "body", Map.of("ok", true)));
+    private static final Map<String, Object> ERROR = Map.of("url", "https://a/down", "errorCode", "Failed");
+
+    @Test
+    void compilesRulesIntoNormalizedPayloads() {
+        LambdaInterceptRules.Rule mock = LambdaInterceptRules.compileRule(MOCK);
+        assertEquals("lt:intercept:response", mock.command());
+        Map<String, Object> response = Json.of(mock.args().get("response")).asMap();
+        assertEquals(201, response.get("status"));
+        assertEquals("{\"ok\":true}", response.get("body"));
+        assertEquals("lt:intercept:redirect", LambdaInterceptRules.compileRule(REDIRECT).command());
+        assertEquals("lt:intercept:error", LambdaInterceptRules.compileRule(ERROR).command());
+    }
+
+    @Test
+    void cachesCompiledSetsByContentAndReportsBadRuleIndex() {
+        LambdaInterceptRules first = LambdaInterceptRules.compile(List.of(REDIRECT, MOCK));
+        assertSame(first, LambdaInterceptRules.compile(List.of(Map.copyOf(REDIRECT), Map.copyOf(MOCK))));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> LambdaInterceptRules.compile(List.of(REDIRECT, Map.of("url", "https://a/x"))));
+        assertTrue(error.getMessage().startsWith("intercept rule #1:"), error.getMessage());
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsedSets() {
+        LambdaInterceptRules hot = LambdaInterceptRules.compile(List.of(REDIRECT, ERROR));
+        for (int i = 0; i < 300; i++) {
+            LambdaInterceptRules.compile(List.of(Map.of("url", "https://a/" + i, "errorCode", "Failed")));
+            assertSame(hot, LambdaInterceptRules.compile(List.of(REDIRECT, ERROR)));
+        }
+    }
+
+    @Test
+    void registersUniqueRulesOverHttpWithTimings() throws Exception {
+        List<String> scripts = new CopyOnWriteArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session/s1/execute/sync", exchange -> {
+            calls.incrementAndGet();
+            Map<String, Object> body = Json.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).asMap();
+            scripts.add(String.valueOf(body.get("script")));
+            byte[] bytes = "{\"value\":\"ok\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.start();
+        try {
+            LambdaInterceptRules rules = LambdaInterceptRules.compile(List.of(REDIRECT, MOCK, ERROR, REDIRECT));
+            assertEquals(3, rules.callCount());
+
+            Map<String, Object> result = rules.register(
+                    "http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub", "s1");
+
+            assertEquals(4, result.get("rules"));
+            assertEquals(3, result.get("calls"));
+            assertEquals(3, calls.get());
+            assertTrue(scripts.containsAll(List.of("lt:intercept:redirect", "lt:intercept:response", "lt:intercept:error")));
+            List<?> timings = (List<?>) result.get("timings");
+            assertEquals(3, timings.size());
+            assertEquals("ok", ((Map<?, ?>) timings.get(0)).get("value"));
+        } finally {
+            grid.stop(0);
+        }
+    }
+
+    @Test
+    void rulesForOneUrlKeepTheirOrderAcrossMethodsAndRepeats() throws Exception {
+        Map<String, Object> error = Map.of("url", "https://a/api", "errorCode", "Failed");
+        Map<String, Object> redirect = Map.of("url", "https://a/api", "redirectUrl", "https://b/api");
+        List<String> scripts = new CopyOnWriteArrayList<>();
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session/s1/execute/sync", exchange -> {
+            Map<String, Object> body = Json.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).asMap();
+            scripts.add(String.valueOf(body.get("script")));
+            byte[] bytes = "{\"value\":null}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.setExecutor(Executors.newFixedThreadPool(4));
+        grid.start();
+        try {
+            LambdaInterceptRules rules = LambdaInterceptRules.compile(List.of(error, MOCK, MOCK, redirect, error));
+            assertEquals(4, rules.callCount(), "only the back-to-back repeat is collapsed");
+            rules.register("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub", "s1");
+            assertEquals(List.of("lt:intercept:error", "lt:intercept:response", "lt:intercept:redirect", "lt:intercept:error"),
+                    scripts, "the error rule written last wins");
+        } finally {
+            grid.stop(0);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaMetricsTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void uploadsAreTimedByStatusWithPayloadSizes() throws Exception {
+        MeterRegistry registry = LambdaMetrics.bind(new SimpleMeterRegistry(), null);
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            boolean broken = exchange.getRequestURI().getPath().contains("/broken/");
+            byte[] bytes = (broken ? "{\"value\":{\"error\":\"boom\"}}" : "{\"value\":\"/remote/a.txt\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(broken ? 500 : 200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.start();
+        try {
+            String webDriverUrl = "http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub";
+            Path file = Files.writeString(dir.resolve("a.txt"), "x".repeat(1_000));
+            LambdaWebDriverInterop.uploadFiles(webDriverUrl, "metrics", List.of(file));
+            assertThrows(RuntimeException.class, () -> LambdaWebDriverInterop.uploadFiles(webDriverUrl, "broken", List.of(file)));
+
+            Timer ok = registry.find(LambdaMetrics.CALLS).tags("operation", "uploadFile", "status", "200").timer();
+            Timer failed = registry.find(LambdaMetrics.CALLS).tags("operation", "uploadFile", "status", "500", "outcome", "failure").timer();
+            assertNotNull(ok);
+            assertNotNull(failed);
+            assertEquals(1, ok.count());
+            assertEquals(1, failed.count());
+            assertEquals(2_000d, registry.find(LambdaMetrics.PAYLOAD).tags("operation", "uploadFile").summary().totalAmount());
+        } finally {
+            LambdaUploadCache.shared().forgetSession("metrics");
+            grid.stop(0);
+        }
+    }
+
+    @Test
+    void exportsLambdaMetersAsJson() throws Exception {
+        MeterRegistry registry = LambdaMetrics.bind(new SimpleMeterRegistry(), null);
+        registry.counter("other.meter").increment();
+        LambdaMetrics.call("cdpExecute", "Chrome", "Windows 11", 200, System.nanoTime() - 5_000_000L);
+        LambdaMetrics.payload("cdpExecute", "request", 120);
+        LambdaMetrics.retry("cdpExecute", "timeout");
+        LambdaMetrics.retry("cdpExecute", "timeout");
+
+        Path exported = LambdaMetrics.export(dir.resolve("metrics/lambdatest-metrics.json"));
+        assertNotNull(exported);
+        List<Map<String, Object>> meters = Json.of(Files.readString(exported)).get("meters");
+        assertTrue(meters.stream().noneMatch(meter -> "other.meter".equals(meter.get("name"))));
+        Map<String, Object> call = meter(meters, LambdaMetrics.CALLS, "cdpExecute");
+        assertEquals(Map.of("browser", "chrome", "operation", "cdpExecute", "outcome", "success",
+                "platform", "windows 11", "status", "200"), call.get("tags"));
+        assertTrue(((Number) call.get("maxMs")).doubleValue() >= 5d, call.toString());
+        assertTrue(((Map<?, ?>) call.get("percentilesMs")).containsKey("p95"), call.toString());
+        assertEquals(120d, ((Number) meter(meters, LambdaMetrics.PAYLOAD, "cdpExecute").get("total")).doubleValue());
+        assertEquals(2d, ((Number) meter(meters, LambdaMetrics.RETRIES, "cdpExecute").get("count")).doubleValue());
+    }
+
+    @Test
+    void systemPropertyWinsOverTheBoundFileAndUnbindRestoresAPrivateRegistry() {
+        MeterRegistry bound = LambdaMetrics.bind(new SimpleMeterRegistry(), dir.resolve("bound.json").toString());
+        assertEquals(dir.resolve("bound.json"), LambdaMetrics.exportFile());
+        System.setProperty("lt.metrics.file", dir.resolve("property.json").toString());
+        try {
+            assertEquals(dir.resolve("property.json"), LambdaMetrics.exportFile());
+        } finally {
+            System.clearProperty("lt.metrics.file");
+        }
+
+        LambdaMetrics.unbind(bound);
+        assertNotSame(bound, LambdaMetrics.registry());
+        assertEquals(Path.of(LambdaMetrics.DEFAULT_EXPORT_FILE), LambdaMetrics.exportFile());
+    }
+
+    // background work of other tests may record into the same registry
+    private static Map<String, Object> meter(List<Map<String, Object>> meters, String name, String operation) {
+        return meters.stream()
+                .filter(meter -> name.equals(meter.get("name")) && operation.equals(((Map<?, ?>) meter.get("tags")).get("operation")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(name + " " + operation + " not in " + meters));
+    }
+}
@@ -0,0 +1,123 @@
+package io.cpogx.lambdatest.interop;
+
+import io.cpogx.lambdatest.session.LambdaSessionAdmission;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaSessionFinalizerTest {
+
+    @Test
+    void runsStepsInOrderAndKeepsGoingPastTimeoutsAndFailures() {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        try (LambdaSessionFinalizer finalizer = new LambdaSessionFinalizer(2, 100L)) {
+            finalizer.pipeline(List.of(
+                    new LambdaSessionFinalizer.Step("status", () -> {
+                        ran.add("status");
+                        sleep(500L);
+                    }),
+                    new LambdaSessionFinalizer.Step("quit", () -> {
+                        ran.add("quit");
+                        throw new IllegalStateException("session already gone");
+                    }),
+                    new LambdaSessionFinalizer.Step("release", () -> ran.add("release"))));
+
+            assertTrue(finalizer.drain(5_000L));
+            assertEquals(0, finalizer.pendingCount());
+            assertEquals(List.of("status", "quit", "release"), ran);
+
+            Map<String, Map<String, Object>> metrics = finalizer.metrics();
+            assertEquals(1L, metrics.get("status").get("timeouts"));
+            assertEquals(1L, metrics.get("quit").get("failures"));
+            assertEquals(0L, metrics.get("release").get("failures"));
+            assertEquals(1L, metrics.get("release").get("count"));
+        }
+    }
+
+    @Test
+    void releaseWaitsForAQuitThatTimedOutUntilTheSessionIsGone() {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        try (LambdaSessionFinalizer finalizer = new LambdaSessionFinalizer(4, 100L)) {
+            finalizer.pipeline(List.of(
+                    new LambdaSessionFinalizer.Step("quit", () -> {
+                        sleep(500L);
+                        ran.add("quit");
+                    }, () -> ran.add("deleted")),
+                    new LambdaSessionFinalizer.Step("release", () -> ran.add("release"))));
+            assertTrue(finalizer.drain(5_000L));
+            assertEquals(List.of("deleted", "release"), ran, "a forced delete frees the slot");
+
+            sleep(600L);
+            ran.clear();
+            finalizer.pipeline(List.of(
+                    new LambdaSessionFinalizer.Step("quit", () -> {
+                        sleep(500L);
+                        ran.add("hung quit");
+                    }, () -> {
+                        throw new IllegalStateException("grid unreachable");
+                    }),
+                    new LambdaSessionFinalizer.Step("release", () -> ran.add("release"))));
+            assertTrue(finalizer.drain(5_000L));
+            assertEquals(List.of("hung quit", "release"), ran, "without a delete the slot waits for the quit");
+
+            Map<String, Map<String, Object>> metrics = finalizer.metrics();
+            assertEquals(2L, metrics.get("quit").get("timeouts"));
+            assertEquals(1L, metrics.get("quit-forced").get("failures"));
+        }
+    }
+
+    @Test
+    void theSlotOfAScenarioBeingFinalizedStaysHeldUntilItsSessionIsQuit() {
+        LambdaSessionAdmission admission = LambdaSessionAdmission.forAccount("finalizer-slot-test", 1, null, 1_000L);
+        Object owner = new Object();
+        Object abandoned = new Object();
+        admission.admit(owner);
+        try (LambdaSessionFinalizer finalizer = new LambdaSessionFinalizer(2, 5_000L)) {
+            finalizer.pipeline(owner, List.of(
+                    new LambdaSessionFinalizer.Step("quit", () -> sleep(300L)),
+                    new LambdaSessionFinalizer.Step("release", () -> admission.release(owner))));
+
+            // what afterFeature does when the feature ends
+            assertEquals(0, finalizer.releaseUnfinalized(candidate -> candidate == owner));
+            assertEquals(1, admission.inUse(), "the session still holds its grid slot");
+
+            assertTrue(finalizer.drain(5_000L));
+            assertEquals(0, admission.inUse());
+
+            // a scenario whose driver never started has no pipeline and is released right away
+            admission.admit(abandoned);
+            assertEquals(1, finalizer.releaseUnfinalized(candidate -> candidate == abandoned));
+            assertEquals(0, admission.inUse());
+        }
+    }
+
+    @Test
+    void runsOnlyForSuitesThatDrainItThroughTheHook() {
+        String reportDir = "build/finalizer-enabled-test";
+        assertFalse(LambdaSessionFinalizer.enabled(reportDir), "without the hook Karate quits the driver itself");
+        LambdaSuiteHook.attach(reportDir);
+        try {
+            assertTrue(LambdaSessionFinalizer.enabled(reportDir));
+            System.setProperty("lt.finalizer.enabled", "false");
+            assertFalse(LambdaSessionFinalizer.enabled(reportDir));
+        } finally {
+            System.clearProperty("lt.finalizer.enabled");
+            LambdaSuiteHook.detach(reportDir);
+        }
+        assertFalse(LambdaSessionFinalizer.enabled(reportDir));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.cpogx.lambdatest.interop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaStatusOutboxTest {
+
+    private static final LambdaBackoff FAST_RETRY = new LambdaBackoff(10L, 50L, 2.0d, 0.0d);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void retriesFailedUpdatesAndClearsTheOutboxWhenDone() throws Exception {
+        Path file = dir.resolve("outbox.jsonl");
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        try (LambdaStatusOutbox outbox = new LambdaStatusOutbox(file, 4, 5, FAST_RETRY, (entry, fields) ->
+                attempts.computeIfAbsent(entry.sessionId(), ignored -> new AtomicInteger()).incrementAndGet() > 2
+                        || !entry.sessionId().equals("flaky"))) {
+            CompletableFuture<Boolean> flaky = outbox.enqueue("flaky", "user", "key", Map.of("status_ind", "failed"));
+            CompletableFuture<Boolean> steady = outbox.enqueue("steady", "user", "key", Map.of("status_ind", "passed"));
+            CompletableFuture<Boolean> noKey = outbox.enqueue("orphan", "user", null, Map.of("status_ind", "passed"));
+
+            assertTrue(outbox.drain(5_000L));
+            assertTrue(flaky.get(1, TimeUnit.SECONDS));
+            assertTrue(steady.get(1, TimeUnit.SECONDS));
+            assertFalse(noKey.get(1, TimeUnit.SECONDS), "gives up after max attempts");
+            assertEquals(3, attempts.get("flaky").get());
+            assertEquals(1, attempts.get("steady").get());
+            for (int i = 0; i < 100 && Files.exists(file); i++) {
+                Thread.sleep(10);
+            }
+            assertFalse(Files.exists(file), "outbox is removed once every update is settled");
+        }
+    }
+
+    @Test
+    void recoversUpdatesLeftByACrashedRun() throws Exception {
+        Path file = dir.resolve("outbox.jsonl");
+        Files.writeString(file, String.join("\n",
+                "{\"id\":\"a\",\"sessionId\":\"s-1\",\"username\":\"user\",\"fields\":{\"status_ind\":\"passed\",\"name\":\"login\"}}",
+                "{\"id\":\"b\",\"sessionId\":\"s-2\",\"username\":\"user\",\"fields\":{\"status_ind\":\"failed\"}}",
+                "{\"id\":\"b\",\"state\":\"done\"}",
+                "{\"id\":\"c\",\"sessionId\":\"s-3\",\"username\":\"other\",\"fields\":{\"status_ind\":\"passed\"}}",
+                "{\"id\":\"d\",\"sessionId\":\"s-4\",\"usern") + "\n");
+        List<String> sent = new CopyOnWriteArrayList<>();
+        try (LambdaStatusOutbox outbox = new LambdaStatusOutbox(file, 4, 3, FAST_RETRY, (entry, fields) -> {
+            sent.add(entry.sessionId() + " " + fields.get("name") + " " + fields.get("status_ind"));
+            return true;
+        })) {
+            assertEquals(1, outbox.recover("user", "key"));
+            assertTrue(outbox.drain(5_000L));
+            assertEquals(List.of("s-1 login passed"), sent);
+            for (int i = 0; i < 100 && Files.readAllLines(file).size() != 1; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of("c"), List.copyOf(outbox.readRecords().keySet()), "other accounts stay queued");
+            assertFalse(Files.exists(dir.resolve("outbox.jsonl.tmp")), "compaction replaces the file atomically");
+        }
+    }
+}
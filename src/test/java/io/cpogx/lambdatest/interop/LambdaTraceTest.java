@@ -0,0 +1,103 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaTraceTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void enableTracing() {
+        LambdaTrace.setEnabled(true);
+    }
+
+    @AfterEach
+    void disableTracing() {
+        LambdaTrace.setEnabled(false);
+    }
+
+    @Test
+    void backgroundWorkStaysOnTheScenarioTimelineWithItsOwnTrack() throws Exception {
+        String reportDir = dir.resolve("report").toString();
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "trace-worker"));
+        try {
+            LambdaTrace.scenarioStarted(reportDir, "[1:3] checkout");
+            LambdaTrace.sessionRequested();
+            long readyAt = System.nanoTime() + 2_000_000L;
+            LambdaTrace.sessionReady(readyAt);
+            Runnable quit = LambdaTrace.traced("quit", "finalize", () -> LambdaMetrics.call("traceQuit", "Chrome", "win11", 200, System.nanoTime()));
+            CompletableFuture.runAsync(quit, executor).get(5, TimeUnit.SECONDS);
+            LambdaTrace.scenarioEnded();
+        } finally {
+            LambdaTrace.scenarioFinished();
+            executor.shutdownNow();
+        }
+
+        Path file = LambdaTrace.export(reportDir, dir.resolve("report/" + LambdaTrace.FILE_NAME));
+        List<Map<String, Object>> events = Json.of(Files.readString(file)).get("traceEvents");
+        Map<String, Object> session = event(events, "session");
+        Map<String, Object> quit = event(events, "quit");
+        Map<String, Object> call = event(events, "traceQuit");
+        assertTrue(((Number) session.get("dur")).longValue() >= 1_000L, session.toString());
+        assertEquals("[1:3] checkout", ((Map<?, ?>) quit.get("args")).get("scenario"));
+        assertEquals(Map.of("scenario", "[1:3] checkout", "status", 200), call.get("args"));
+        assertEquals(quit.get("tid"), call.get("tid"));
+        assertNotEquals(session.get("tid"), quit.get("tid"), "finalizer work gets its own track");
+        assertTrue(events.stream().anyMatch(event -> "M".equals(event.get("ph"))
+                && Map.of("name", "trace-worker").equals(event.get("args"))));
+        event(events, "scenario");
+    }
+
+    @Test
+    void spansOutsideAScenarioOrSuiteAreDropped() throws Exception {
+        String first = dir.resolve("first").toString();
+        String second = dir.resolve("second").toString();
+        LambdaTrace.complete("orphan", "remote", System.nanoTime(), System.nanoTime(), null);
+        LambdaTrace.suiteStarted(second);
+        try {
+            LambdaTrace.complete("buildHarvest", "video", System.nanoTime(), System.nanoTime(), null);
+        } finally {
+            LambdaTrace.scenarioFinished();
+        }
+
+        assertEquals(List.of(), LambdaTrace.drain(first));
+        List<Map<String, Object>> events = LambdaTrace.drain(second);
+        assertEquals(List.of("buildHarvest"), events.stream().map(event -> event.get("name")).toList());
+        assertFalse(((Map<?, ?>) events.get(0).getOrDefault("args", Map.of())).containsKey("scenario"));
+
+        LambdaTrace.setEnabled(false);
+        LambdaTrace.scenarioStarted(first, "off");
+        try {
+            LambdaTrace.complete("ignored", "step", System.nanoTime(), System.nanoTime(), null);
+        } finally {
+            LambdaTrace.scenarioFinished();
+        }
+        assertEquals(List.of(), LambdaTrace.drain(first), "nothing is recorded unless tracing is on");
+    }
+
+    private static Map<String, Object> event(List<Map<String, Object>> events, String name) {
+        return events.stream()
+                .filter(event -> name.equals(event.get("name")) && "X".equals(event.get("ph")))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(name + " not in " + events));
+    }
+}
@@ -0,0 +1,67 @@
+package io.cpogx.lambdatest.interop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LambdaUploadCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void servesRemotePathPerSessionAndContent() throws Exception {
+        LambdaUploadCache cache = new LambdaUploadCache(16);
+        Path file = Files.writeString(dir.resolve("doc.pdf"), "v1");
+
+        assertNull(cache.lookup("s1", file));
+        cache.put("s1", file, "/tmp/remote/doc.pdf");
+        assertEquals("/tmp/remote/doc.pdf", cache.lookup("s1", file));
+        assertNull(cache.lookup("s2", file), "other sessions do not see the upload");
+
+        Path copy = Files.writeString(dir.resolve("copy.pdf"), "v1");
+        assertNull(cache.lookup("s1", copy), "the remote name follows the local file name");
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(3, cache.missCount());
+
+        cache.forgetSession("s1");
+        assertNull(cache.lookup("s1", file));
+    }
+
+    @Test
+    void rehashesOnlyWhenTheFileChanges() throws Exception {
+        LambdaUploadCache cache = new LambdaUploadCache(16);
+        Path file = Files.writeString(dir.resolve("a.txt"), "one");
+        String first = cache.sha256(file);
+        assertEquals("7692c3ad3540bb803c020b3aee66cd8887123234ea0c6e7143c0add73ff431ed", first);
+
+        Files.writeString(file, "two");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2_000L));
+        assertNotEquals(first, cache.sha256(file));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws Exception {
+        LambdaUploadCache cache = new LambdaUploadCache(2);
+        Path a = Files.writeString(dir.resolve("a.txt"), "a");
+        Path b = Files.writeString(dir.resolve("b.txt"), "b");
+        Path c = Files.writeString(dir.resolve("c.txt"), "c");
+        cache.put("s1", a, "/remote/a");
+        cache.put("s1", b, "/remote/b");
+        assertEquals("/remote/a", cache.lookup("s1", a));
+
+        cache.put("s1", c, "/remote/c");
+
+        assertEquals(2, cache.size());
+        assertEquals("/remote/a", cache.lookup("s1", a), "recently used entries survive");
+        assertNull(cache.lookup("s1", b));
+    }
+}
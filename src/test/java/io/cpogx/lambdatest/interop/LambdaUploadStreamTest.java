@@ -0,0 +1,131 @@
+package io.cpogx.lambdatest.interop;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaUploadStreamTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void bodyIsBase64ZipWithCompressedTypesStored() throws Exception {
+        Path text = Files.writeString(dir.resolve("notes.txt"), "hello ".repeat(1000));
+        Path image = Files.write(dir.resolve("shot.PNG"), randomBytes(4096));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        LambdaUploadStream.writeBody(List.of(text, image), body);
+
+        Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        Map<String, byte[]> contents = unzip(Json.of(body.toString(StandardCharsets.US_ASCII)).get("file"), entries);
+        assertEquals(ZipEntry.DEFLATED, entries.get("notes.txt").getMethod());
+        assertEquals(ZipEntry.STORED, entries.get("shot.PNG").getMethod());
+        assertArrayEquals(Files.readAllBytes(text), contents.get("notes.txt"));
+        assertArrayEquals(Files.readAllBytes(image), contents.get("shot.PNG"));
+    }
+
+    @Test
+    void streamsLargeUploadsToTheSession() throws Exception {
+        Path large = Files.write(dir.resolve("large.bin"), randomBytes(12 * 1024 * 1024));
+        AtomicReference<byte[]> received = new AtomicReference<>();
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session/s1/se/file", exchange -> {
+            String file = Json.of(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.US_ASCII)).get("file");
+            try {
+                received.set(unzip(file, new LinkedHashMap<>()).get("large.bin"));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            byte[] bytes = "{\"value\":\"/tmp/upload/large.bin\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.start();
+        try {
+            URI endpoint = URI.create("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub/session/s1/se/file");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            Object value = LambdaUploadStream.upload(client, endpoint, null, List.of(large), Duration.ofSeconds(60));
+            assertEquals("/tmp/upload/large.bin", value);
+            assertArrayEquals(Files.readAllBytes(large), received.get());
+
+            Path missing = dir.resolve("missing.txt");
+            RuntimeException error = assertThrows(RuntimeException.class,
+                    () -> LambdaUploadStream.upload(client, endpoint, null, List.of(missing), Duration.ofSeconds(10)));
+            assertTrue(error.getMessage().contains("missing.txt"), error.getMessage());
+        } finally {
+            grid.stop(0);
+        }
+    }
+
+    @Test
+    void brokenArchiveFailsEvenWhenTheGridAcceptsTheTruncatedBody() throws Exception {
+        Path present = Files.writeString(dir.resolve("present.txt"), "ok");
+        HttpServer grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub/session/s1/se/file", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] bytes = "{\"value\":\"/tmp/upload/present.txt\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        grid.start();
+        try {
+            URI endpoint = URI.create("http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub/session/s1/se/file");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            List<Path> files = List.of(present, dir.resolve("gone.txt"));
+            RuntimeException error = assertThrows(RuntimeException.class,
+                    () -> LambdaUploadStream.upload(client, endpoint, null, files, Duration.ofSeconds(10)));
+            assertTrue(error.getMessage().contains("gone.txt"), error.getMessage());
+        } finally {
+            grid.stop(0);
+        }
+    }
+
+    private static Map<String, byte[]> unzip(String base64, Map<String, ZipEntry> entries) throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(base64)))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), entry);
+                contents.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return contents;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
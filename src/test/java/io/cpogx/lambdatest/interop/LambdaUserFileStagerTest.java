@@ -0,0 +1,123 @@
+package io.cpogx.lambdatest.interop;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaUserFileStagerTest {
+
+    private static final Pattern FILE_NAME = Pattern.compile("filename=\"([^\"]+)\"");
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void resetStagedDirectories() {
+        LambdaUserFileStager.reset();
+    }
+
+    @Test
+    void uploadsOnlyNewOrChangedFixtures() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        HttpServer api = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        api.createContext("/automation/api/v1/user-files", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Matcher matcher = FILE_NAME.matcher(body);
+            int status = 500;
+            if (exchange.getRequestHeaders().getFirst("Authorization") != null && matcher.find()) {
+                received.add(matcher.group(1));
+                status = matcher.group(1).startsWith("broken") ? 500 : 200;
+            }
+            byte[] bytes = "{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        api.start();
+        try {
+            LambdaApiClient client = new LambdaApiClient(HttpClient.newHttpClient(),
+                    "http://127.0.0.1:" + api.getAddress().getPort() + "/automation/api/v1",
+                    "user", "key", Duration.ofSeconds(10), Duration.ofSeconds(10));
+            Path fixtures = Files.createDirectories(dir.resolve("fixtures"));
+            Files.writeString(fixtures.resolve("a.csv"), "a");
+            Files.writeString(Files.createDirectories(fixtures.resolve("nested")).resolve("b.pdf"), "b");
+            Path manifest = dir.resolve("manifest.json");
+            LambdaUserFileStager stager = new LambdaUserFileStager(client, manifest, 2);
+
+            LambdaUserFileStager.Result first = stager.stage(fixtures);
+            assertEquals(List.of("a.csv", "b.pdf"), first.files());
+            assertEquals(List.of("a.csv", "b.pdf"), first.uploaded());
+            assertEquals(2, received.size());
+            assertTrue(Files.readString(manifest).contains("b.pdf"));
+
+            assertEquals(List.of(), stager.stage(fixtures).uploaded(), "unchanged fixtures are not uploaded again");
+
+            Files.writeString(fixtures.resolve("a.csv"), "a2");
+            assertEquals(List.of("a.csv"), stager.stage(fixtures).uploaded());
+            assertEquals(3, received.size());
+
+            Files.writeString(fixtures.resolve("broken.txt"), "x");
+            RuntimeException error = assertThrows(RuntimeException.class, () -> stager.stage(fixtures));
+            assertTrue(error.getMessage().contains("broken.txt"), error.getMessage());
+            assertTrue(Files.readString(manifest).contains("a.csv"), "successful uploads stay recorded");
+        } finally {
+            api.stop(0);
+        }
+    }
+
+    @Test
+    void stagesAConfiguredDirectoryOncePerAccount() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        HttpServer api = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        api.createContext("/automation/api/v1/user-files", exchange -> {
+            Matcher matcher = FILE_NAME.matcher(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (matcher.find()) {
+                received.add(exchange.getRequestHeaders().getFirst("Authorization") + " " + matcher.group(1));
+            }
+            byte[] bytes = "{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        api.start();
+        System.setProperty("lt.api.base.url", "http://127.0.0.1:" + api.getAddress().getPort() + "/automation/api/v1");
+        try {
+            Path fixtures = Files.createDirectories(dir.resolve("fixtures"));
+            Files.writeString(fixtures.resolve("a.csv"), "a");
+            Map<String, String> first = Map.of("lt.user.files.dir", fixtures.toString(), "lt.username", "one",
+                    "lt.accessKey", "key", "lt.user.files.manifest", dir.resolve("one.json").toString());
+            Map<String, String> second = Map.of("lt.user.files.dir", fixtures.toString(), "lt.username", "two",
+                    "lt.accessKey", "key", "lt.user.files.manifest", dir.resolve("two.json").toString());
+
+            assertEquals(List.of("a.csv"), LambdaUserFileStager.stageConfigured(first));
+            assertEquals(List.of("a.csv"), LambdaUserFileStager.stageConfigured(first));
+            assertEquals(1, received.size(), "the directory is staged once for the account");
+
+            assertEquals(List.of("a.csv"), LambdaUserFileStager.stageConfigured(second));
+            assertEquals(2, received.size(), "another account gets its own copy");
+        } finally {
+            System.clearProperty("lt.api.base.url");
+            api.stop(0);
+        }
+    }
+}
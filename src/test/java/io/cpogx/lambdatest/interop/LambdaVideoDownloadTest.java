@@ -0,0 +1,136 @@
+package io.cpogx.lambdatest.interop;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaVideoDownloadTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private byte[] video;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean dropFirstResponse = new AtomicBoolean();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        video = new byte[200_000];
+        byte[] header = new byte[]{0x00, 0x00, 0x00, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+        System.arraycopy(header, 0, video, 0, header.length);
+        for (int i = header.length; i < video.length; i++) {
+            video[i] = (byte) (i % 251);
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        server.createContext("/api/sessions/s1/video", exchange -> {
+            byte[] body = ("{\"status\":\"success\",\"url\":\"" + base + "/files/s1.mp4\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/files/s1.mp4", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range == null ? "" : range);
+            int start = 0;
+            if (range != null && range.startsWith("bytes=")) {
+                start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + start + "-" + (video.length - 1) + "/" + video.length);
+            }
+            exchange.getResponseHeaders().add("Content-Type", "video/mp4");
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.sendResponseHeaders(start > 0 ? 206 : 200, video.length - start);
+            if (dropFirstResponse.compareAndSet(true, false)) {
+                // connection lost mid-body: the client keeps what it got as the partial file
+                exchange.getResponseBody().write(video, 0, 50_000);
+                exchange.getResponseBody().flush();
+                exchange.close();
+                return;
+            }
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(video, start, video.length - start);
+            }
+        });
+        server.start();
+        System.setProperty("lt.api.base.url", base + "/api");
+        System.setProperty("lt.video.poll.initial-delay-ms", "0");
+        System.setProperty("lt.video.poll.interval-ms", "10");
+    }
+
+    @AfterEach
+    void stopServer() {
+        System.clearProperty("lt.api.base.url");
+        System.clearProperty("lt.video.poll.initial-delay-ms");
+        System.clearProperty("lt.video.poll.interval-ms");
+        server.stop(0);
+    }
+
+    @Test
+    void streamsVideoToDiskAndWritesChecksum() throws Exception {
+        Path target = tempDir.resolve("videos/s1.mp4");
+        Path result = LambdaWebDriverInterop.downloadSessionVideoTo("s1", "user", "key", target);
+
+        assertEquals(target.toAbsolutePath().normalize(), result);
+        assertArrayEquals(video, Files.readAllBytes(target));
+        assertEquals(List.of(""), ranges);
+        assertEquals(sha256(video) + "  s1.mp4\n", Files.readString(tempDir.resolve("videos/s1.mp4.sha256")));
+    }
+
+    @Test
+    void resumesInterruptedDownloadWithRangeRequest() throws Exception {
+        Path target = tempDir.resolve("s1.mp4");
+        dropFirstResponse.set(true);
+
+        LambdaWebDriverInterop.downloadSessionVideoTo("s1", "user", "key", target);
+
+        assertEquals(2, ranges.size(), ranges.toString());
+        assertEquals("", ranges.get(0));
+        assertTrue(ranges.get(1).startsWith("bytes="), ranges.toString());
+        assertArrayEquals(video, Files.readAllBytes(target));
+        assertFalse(Files.exists(tempDir.resolve("s1.mp4.part")));
+        assertFalse(Files.exists(tempDir.resolve("s1.mp4.part.id")));
+        assertTrue(Files.readString(tempDir.resolve("s1.mp4.sha256")).startsWith(sha256(video)));
+    }
+
+    @Test
+    void discardsPartialFileThatBelongsToAnotherVideo() throws Exception {
+        Path target = tempDir.resolve("s1.mp4");
+        byte[] stale = new byte[50_000];
+        Arrays.fill(stale, (byte) 7);
+        Files.write(tempDir.resolve("s1.mp4.part"), stale);
+        Files.writeString(tempDir.resolve("s1.mp4.part.id"), "source=http://elsewhere/old.mp4\netag=\nlength=50000\n");
+
+        LambdaWebDriverInterop.downloadSessionVideoTo("s1", "user", "key", target);
+
+        assertEquals(List.of(""), ranges);
+        assertArrayEquals(video, Files.readAllBytes(target));
+        assertFalse(Files.exists(tempDir.resolve("s1.mp4.part.id")));
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,49 @@
+package io.cpogx.lambdatest.interop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaVideoHarvesterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void submitWithoutCredentialsCompletesWithoutVideo() throws Exception {
+        try (LambdaVideoHarvester harvester = new LambdaVideoHarvester(1, 4)) {
+            Path target = tempDir.resolve("videos/session.mp4");
+            CompletableFuture<Path> future = harvester.submit("session-1", null, null, target);
+            assertNull(future.get(5, TimeUnit.SECONDS));
+            assertTrue(harvester.drain(1000L));
+            assertEquals(0, harvester.pendingCount());
+            assertFalse(Files.exists(target));
+        }
+    }
+
+    @Test
+    void submitRequiresTargetPath() {
+        try (LambdaVideoHarvester harvester = new LambdaVideoHarvester(1, 1)) {
+            assertThrows(IllegalArgumentException.class, () -> harvester.submit("session-1", "u", "k", null));
+        }
+    }
+
+    @Test
+    void submitAfterCloseFailsFuture() {
+        LambdaVideoHarvester harvester = new LambdaVideoHarvester(1, 1);
+        harvester.close();
+        CompletableFuture<Path> future = harvester.submit("session-1", "u", "k", tempDir.resolve("x.mp4"));
+        assertTrue(future.isCompletedExceptionally());
+        assertTrue(harvester.drain(100L));
+    }
+}
@@ -0,0 +1,72 @@
+package io.cpogx.lambdatest.interop;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaVideoPollPolicyTest {
+
+    @Test
+    void delayGrowsExponentiallyUpToCap() {
+        LambdaVideoPollPolicy policy = new LambdaVideoPollPolicy(0L, 1000L, 4000L, 2.0d, 0.0d, 60_000L, 3);
+        assertEquals(1000L, policy.delayMs(0, 0L));
+        assertEquals(2000L, policy.delayMs(1, 0L));
+        assertEquals(4000L, policy.delayMs(2, 0L));
+        assertEquals(4000L, policy.delayMs(10, 0L));
+    }
+
+    @Test
+    void retryAfterOverridesShorterBackoff() {
+        LambdaVideoPollPolicy policy = new LambdaVideoPollPolicy(0L, 1000L, 4000L, 2.0d, 0.0d, 60_000L, 3);
+        assertEquals(7000L, policy.delayMs(0, 7000L));
+        assertEquals(4000L, policy.delayMs(5, 1000L));
+    }
+
+    @Test
+    void jitterStaysWithinBounds() {
+        LambdaVideoPollPolicy policy = new LambdaVideoPollPolicy(0L, 1000L, 1000L, 1.0d, 0.25d, 60_000L, 3);
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.delayMs(i, 0L);
+            assertTrue(delay >= 750L && delay <= 1250L, "delay out of bounds: " + delay);
+        }
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndHttpDate() {
+        assertEquals(0L, LambdaVideoPollPolicy.parseRetryAfterMs(null));
+        assertEquals(0L, LambdaVideoPollPolicy.parseRetryAfterMs("soon"));
+        assertEquals(3000L, LambdaVideoPollPolicy.parseRetryAfterMs(" 3 "));
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+        long parsed = LambdaVideoPollPolicy.parseRetryAfterMs(date);
+        assertTrue(parsed > 25_000L && parsed <= 30_000L, "unexpected retry-after: " + parsed);
+    }
+
+    @Test
+    void rejectsInvalidSchedules() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LambdaVideoPollPolicy(0L, 0L, 1000L, 2.0d, 0.0d, 1000L, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LambdaVideoPollPolicy(0L, 1000L, 1000L, 0.5d, 0.0d, 1000L, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LambdaVideoPollPolicy(0L, 1000L, 1000L, 1.0d, 1.0d, 1000L, 1));
+    }
+
+    @Test
+    void invalidPropertiesFallBackToDefaultsOnce() {
+        System.setProperty("lt.video.poll.interval-ms", "0");
+        try {
+            LambdaVideoPollPolicy policy = LambdaVideoPollPolicy.fromSystemProperties();
+            assertEquals(180_000L, policy.deadlineMs());
+            assertSame(policy, LambdaVideoPollPolicy.fromSystemProperties());
+        } finally {
+            System.clearProperty("lt.video.poll.interval-ms");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package io.cpogx.lambdatest.session;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaSessionAdmissionTest {
+
+    @AfterEach
+    void clear() {
+        LambdaSessionAdmission.clearAccounts();
+    }
+
+    @Test
+    void waitsForAFreeSlotAndRecordsTheWait() throws Exception {
+        LambdaSessionAdmission admission = new LambdaSessionAdmission(1, 5_000L);
+        assertEquals(0L, admission.admit("a"));
+        assertEquals(0L, admission.admit("a"), "re-admitting the same owner does not take a second slot");
+
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(() -> admission.admit("b"));
+        for (int i = 0; i < 100 && admission.queued() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, admission.queued());
+        Thread.sleep(50);
+        assertTrue(admission.release("a"));
+        assertTrue(second.get(5, TimeUnit.SECONDS) >= 50L);
+
+        assertEquals(2L, admission.admittedCount());
+        assertEquals(1, admission.inUse());
+        assertTrue(admission.maxWaitMs() >= 50L);
+        assertFalse(admission.release("a"));
+    }
+
+    @Test
+    void failsFastOnceTheQueueDeadlinePasses() {
+        LambdaSessionAdmission admission = new LambdaSessionAdmission(1, 50L);
+        admission.admit("a");
+        RuntimeException error = assertThrows(RuntimeException.class, () -> admission.admit("b"));
+        assertTrue(error.getMessage().startsWith("session admission timed out"), error.getMessage());
+        assertEquals(1L, admission.timeoutCount());
+    }
+
+    @Test
+    void accountAdmissionIsSharedAndProbedOnce() {
+        AtomicInteger probes = new AtomicInteger();
+        LambdaSessionAdmission first = LambdaSessionAdmission.forAccount("acct", 0, () -> {
+            probes.incrementAndGet();
+            return 3;
+        }, 1_000L);
+        assertSame(first, LambdaSessionAdmission.forAccount("acct", 10, () -> 99, 1_000L));
+        assertEquals(3, first.limit());
+        assertEquals(1, probes.get());
+
+        assertNull(LambdaSessionAdmission.forAccount("unknown", 0, () -> {
+            probes.incrementAndGet();
+            return 0;
+        }, 1_000L));
+        assertNull(LambdaSessionAdmission.forAccount("unknown", 0, probes::incrementAndGet, 1_000L));
+        assertEquals(2, probes.get());
+    }
+
+    @Test
+    void releaseAllFreesMatchingOwners() {
+        LambdaSessionAdmission admission = LambdaSessionAdmission.forAccount("acct", 2, null, 1_000L);
+        admission.admit("feature-1/a");
+        admission.admit("feature-2/a");
+        assertEquals(1, LambdaSessionAdmission.releaseAll(owner -> owner.toString().startsWith("feature-1")));
+        assertEquals(1, admission.inUse());
+    }
+}
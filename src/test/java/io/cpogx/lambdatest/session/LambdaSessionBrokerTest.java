@@ -0,0 +1,239 @@
+package io.cpogx.lambdatest.session;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaSessionBrokerTest {
+
+    private static final String CHROME_SESSION = "{\"capabilities\":{\"alwaysMatch\":{\"browserName\":\"Chrome\","
+            + "\"browserVersion\":\"latest\",\"platformName\":\"win11\"}}}";
+
+    private HttpServer grid;
+    private LambdaSessionBroker broker;
+    private final AtomicInteger created = new AtomicInteger();
+    private volatile int slowCreate;
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws IOException {
+        LambdaScenarioDemand.reset();
+        grid = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        grid.createContext("/wd/hub", this::handleGrid);
+        grid.setExecutor(Executors.newCachedThreadPool());
+        grid.start();
+        String gridUrl = "http://127.0.0.1:" + grid.getAddress().getPort() + "/wd/hub";
+        broker = new LambdaSessionBroker(new LambdaSessionPool(gridUrl, null, null, 1, 2, 60_000L));
+    }
+
+    @AfterEach
+    void stop() {
+        broker.close();
+        grid.stop(0);
+        LambdaScenarioDemand.reset();
+    }
+
+    @Test
+    void lookAheadPreCreatesSessionsForPendingScenariosWithinCap() throws Exception {
+        broker.close();
+        broker = new LambdaSessionBroker(new LambdaSessionPool(broker.pool().gridUrl(), null, null, 0, 1, 60_000L, 2, 2));
+        LambdaScenarioDemand.expect(3);
+
+        LambdaScenarioDemand.scenarioStarted();
+        String first = createSession();
+        awaitIdle(1);
+        assertEquals(2, created.get(), "capped at two grid sessions");
+        assertFalse(LambdaSessionPool.isPooledSession(first), "single-use sessions keep per-scenario videos");
+
+        send("DELETE", "/session/" + first, null);
+        awaitCall("DELETE /wd/hub/session/" + first);
+        LambdaScenarioDemand.scenarioStarted();
+        String second = createSession();
+        assertEquals("s2", second);
+        awaitIdle(1);
+        assertEquals(3, created.get());
+
+        LambdaScenarioDemand.scenarioStarted();
+        assertEquals("s3", createSession());
+        Thread.sleep(100);
+        assertEquals(3, created.get(), "no spares once every scenario has started");
+        assertEquals(0, broker.pool().idleCount());
+    }
+
+    @Test
+    void lookAheadFollowsDemandOfTheSameFingerprintAndCapHoldsForEveryCreate() throws Exception {
+        broker.close();
+        broker = new LambdaSessionBroker(new LambdaSessionPool(broker.pool().gridUrl(), null, null, 0, 1, 60_000L, 2, 1));
+        LambdaScenarioDemand.expect(LambdaSessionPool.fingerprint("firefox", "latest", "win11", ""), 3);
+        String chromeFingerprint = LambdaSessionPool.fingerprint("chrome", "latest", "win11", "");
+        LambdaScenarioDemand.expect(chromeFingerprint, 1);
+        LambdaScenarioDemand.scenarioStarted(chromeFingerprint);
+
+        String chrome = createSession();
+        Thread.sleep(100);
+        assertEquals(1, created.get(), "pending firefox scenarios do not warm chrome sessions");
+
+        CompletableFuture<HttpResponse<String>> firefox = CompletableFuture.supplyAsync(() -> {
+            try {
+                return send("POST", "/session", CHROME_SESSION.replace("Chrome", "Firefox"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertFalse(firefox.isDone(), "max-sessions=1 is held by the chrome lease");
+        assertEquals(1, created.get());
+
+        send("DELETE", "/session/" + chrome, null);
+        assertEquals(200, firefox.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(2, created.get());
+        assertTrue(broker.pool().sessionCount() <= 1);
+    }
+
+    @Test
+    void reusesSessionUntilMaxUsesThenRetiresIt() throws Exception {
+        String first = createSession();
+        assertEquals("s1", first);
+        assertTrue(LambdaSessionPool.isPooledSession(first));
+        assertEquals("\"hello\"", send("GET", "/session/s1/title", null).body().replaceAll(".*\"value\":(\"[^\"]*\").*", "$1"));
+
+        assertEquals(200, send("DELETE", "/session/s1", null).statusCode());
+        awaitIdle(1);
+        assertTrue(calls.contains("DELETE /wd/hub/session/s1/cookie"));
+        assertTrue(calls.contains("POST /wd/hub/session/s1/url"));
+
+        assertEquals("s1", createSession());
+        assertEquals(1, created.get());
+        send("DELETE", "/session/s1", null);
+        awaitCall("DELETE /wd/hub/session/s1");
+        for (int i = 0; i < 100 && LambdaSessionPool.isPooledSession("s1"); i++) {
+            Thread.sleep(20);
+        }
+        assertFalse(LambdaSessionPool.isPooledSession("s1"));
+
+        assertEquals("s2", createSession());
+    }
+
+    @Test
+    void differentCapabilitiesGetDifferentSessions() throws Exception {
+        String chrome = createSession();
+        HttpResponse<String> response = send("POST", "/session", CHROME_SESSION.replace("Chrome", "Firefox"));
+        assertEquals(200, response.statusCode());
+        assertNotEquals(chrome, response.body().replaceAll(".*\"sessionId\":\"([^\"]+)\".*", "$1"));
+        assertEquals(2, broker.pool().leasedCount());
+    }
+
+    @Test
+    void fingerprintIgnoresScenarioSpecificOptions() {
+        Map<String, Object> a = Map.of("capabilities", Map.of("alwaysMatch", Map.of(
+                "browserName", "Chrome", "LT:Options", Map.of("name", "one", "tunnelName", "t"))));
+        Map<String, Object> b = Map.of("capabilities", Map.of("alwaysMatch", Map.of(
+                "browserName", "chrome", "LT:Options", Map.of("name", "two", "tunnelName", "t"))));
+        assertEquals(LambdaSessionPool.fingerprint(a), LambdaSessionPool.fingerprint(b));
+    }
+
+    @Test
+    void aSessionWarmedWhileThePoolClosesIsQuitInsteadOfParked() throws Exception {
+        LambdaScenarioDemand.expect(3);
+        slowCreate = 2;
+        LambdaSessionPool pool = new LambdaSessionPool(broker.pool().gridUrl(), null, null, 0, 1, 60_000L, 1, 0);
+        try {
+            LambdaScenarioDemand.scenarioStarted();
+            assertEquals("s1", pool.acquire(Json.of(CHROME_SESSION).asMap()).getSessionId());
+            for (int i = 0; i < 100 && created.get() < 2; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, created.get(), "the look-ahead session is being created");
+        } finally {
+            pool.close();
+        }
+        awaitCall("DELETE /wd/hub/session/s1");
+        awaitCall("DELETE /wd/hub/session/s2");
+        assertEquals(0, pool.idleCount());
+    }
+
+    private String createSession() throws Exception {
+        HttpResponse<String> response = send("POST", "/session", CHROME_SESSION);
+        assertEquals(200, response.statusCode(), response.body());
+        return response.body().replaceAll(".*\"sessionId\":\"([^\"]+)\".*", "$1");
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(broker.url() + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void awaitIdle(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && broker.pool().idleCount() != expected; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, broker.pool().idleCount());
+    }
+
+    private void awaitCall(String call) throws InterruptedException {
+        for (int i = 0; i < 100 && !calls.contains(call); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(calls.contains(call), "missing grid call: " + call + " in " + calls);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleGrid(HttpExchange exchange) throws IOException {
+        String call = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+        calls.add(call);
+        exchange.getRequestBody().readAllBytes();
+        String body;
+        if ("POST /wd/hub/session".equals(call)) {
+            int session = created.incrementAndGet();
+            if (session == slowCreate) {
+                sleepQuietly(500L);
+            }
+            body = "{\"value\":{\"sessionId\":\"s" + session + "\",\"capabilities\":{}}}";
+        } else if (call.endsWith("/title")) {
+            body = "{\"value\":\"hello\"}";
+        } else {
+            body = "{\"value\":null}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.cpogx.lambdatest.spring;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaDriverMatrixTest {
+
+    @Test
+    void expandsCellsIntoNamedAndTaggedTargets() {
+        LambdaDriverMatrix matrix = LambdaDriverMatrix.fromKarateProperties(Map.of(
+                "lt.matrix", "Chrome:latest:win11; Firefox:latest:macOS Sonoma",
+                "lt.name.prefix", "nightly",
+                "cpogx.execution.threads", "5"));
+
+        assertEquals(2, matrix.size());
+        LambdaDriverTarget firefox = matrix.targets().get(1);
+        assertEquals("firefox-latest-macos-sonoma", firefox.matrixCellId());
+        Map<String, String> props = firefox.toKarateProperties();
+        assertEquals("Firefox", props.get("karate.browser.name"));
+        assertEquals("macOS Sonoma", props.get("karate.platform.name"));
+        assertEquals("nightly [Firefox latest macOS Sonoma]", props.get("lt.name.prefix"));
+        assertEquals("smoke,lambda,firefox-latest-macos-sonoma", props.get("lt.tags"));
+        assertEquals(3, matrix.threadsFor(0));
+        assertEquals(2, matrix.threadsFor(1));
+    }
+
+    @Test
+    void withoutMatrixFallsBackToSingleTarget() {
+        LambdaDriverMatrix matrix = LambdaDriverMatrix.fromKarateProperties(Map.of("karate.browser.name", "Edge"));
+        assertEquals(1, matrix.size());
+        assertEquals("edge-latest-win11", matrix.targets().get(0).matrixCellId());
+        assertEquals(1, matrix.threadsFor(0));
+    }
+
+    @Test
+    void rejectsDuplicateCells() {
+        LambdaDriverTarget base = LambdaDriverTarget.fromKarateProperties(Map.of());
+        assertThrows(IllegalArgumentException.class, () -> new LambdaDriverMatrix(List.of(
+                base.forMatrixCell("Chrome", "latest", "win11"),
+                base.forMatrixCell("chrome", "latest", "WIN11")), 2));
+    }
+
+    @Test
+    void runsEveryCellWithItsOwnTarget() {
+        LambdaDriverMatrix matrix = LambdaDriverMatrix.fromKarateProperties(Map.of(
+                "lt.matrix", "Chrome:latest:win11;MicrosoftEdge:latest:win11;Firefox:latest:win10",
+                "cpogx.execution.threads", "3"));
+
+        Map<String, Results> results = matrix.run(target -> Runner.path("classpath:features/matrix-cell.feature")
+                .reportDir("build/karate-reports/matrix-test/" + target.matrixCellId()));
+
+        assertEquals(List.of("chrome-latest-win11", "microsoftedge-latest-win11", "firefox-latest-win10"),
+                List.copyOf(results.keySet()));
+        results.forEach((cell, cellResults) -> {
+            assertEquals(1, cellResults.getScenariosPassed(), cell + ": " + cellResults.getErrorMessages());
+            assertTrue(cellResults.getReportDir().endsWith(cell));
+        });
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void aFailingCellLetsTheOthersFinishWithTheirTargets() {
+        LambdaDriverMatrix matrix = LambdaDriverMatrix.fromKarateProperties(Map.of(
+                "lt.matrix", "Chrome:latest:win11;MicrosoftEdge:latest:win11;Firefox:latest:win10",
+                "cpogx.execution.threads", "3"));
+        AtomicBoolean slowCellKeptItsTarget = new AtomicBoolean();
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> matrix.run(target -> new Runner.Builder() {
+            private String key;
+
+            @Override
+            public Runner.Builder systemProperty(String name, String value) {
+                if (LambdaDriverTargetRegistry.KEY_PROPERTY.equals(name)) {
+                    key = value;
+                }
+                return super.systemProperty(name, value);
+            }
+
+            @Override
+            public Results parallel(int threads) {
+                if (!target.matrixCellId().startsWith("firefox")) {
+                    throw new IllegalStateException("cell broke: " + target.matrixCellId());
+                }
+                try {
+                    Thread.sleep(300L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                slowCellKeptItsTarget.set(LambdaDriverTargetRegistry.get(key) == target);
+                return null;
+            }
+        }));
+
+        assertTrue(error.getMessage().contains("chrome-latest-win11"), error.getMessage());
+        assertEquals(1, error.getSuppressed().length, "the edge failure is kept as well");
+        assertTrue(slowCellKeptItsTarget.get(), "the firefox cell ran to its end with its target registered");
+    }
+}
@@ -0,0 +1,59 @@
+package io.cpogx.lambdatest.spring;
+
+import com.intuit.karate.Results;
+import com.intuit.karate.Runner;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LambdaDriverTargetRegistryTest {
+
+    private final LambdaDriverTarget base = LambdaDriverTarget.fromKarateProperties(Map.of());
+
+    @Test
+    void registrationIsScopedToItsHandle() {
+        LambdaDriverTarget target = base.forMatrixCell("Firefox", "latest", "win11");
+        try (LambdaDriverTargetRegistry.Registration registration = LambdaDriverTargetRegistry.register("probe", target)) {
+            assertSame(target, LambdaDriverTargetRegistry.get("probe"));
+            assertThrows(IllegalArgumentException.class, () -> LambdaDriverTargetRegistry.register("probe", base));
+        }
+        assertNull(LambdaDriverTargetRegistry.get("probe"));
+    }
+
+    @Test
+    void runnersSideBySideResolveTheirOwnTargets() {
+        CompletableFuture<Results> chrome = CompletableFuture.supplyAsync(() -> run(base.forMatrixCell("Chrome", "latest", "win11")));
+        CompletableFuture<Results> safari = CompletableFuture.supplyAsync(() -> run(base.forMatrixCell("Safari", "17", "macOS Sonoma")));
+        assertEquals(0, chrome.join().getFailCount(), chrome.join().getErrorMessages());
+        assertEquals(0, safari.join().getFailCount(), safari.join().getErrorMessages());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void theLegacyContextStillResolvesThroughTheRegistry() {
+        assertNull(LambdaDriverTargetContext.getInstance());
+        LambdaDriverTargetContext.setInstance(base);
+        try {
+            assertSame(base, LambdaDriverTargetRegistry.current(), "runners without a registered target fall back");
+            assertSame(base, LambdaDriverTargetContext.getInstance());
+        } finally {
+            LambdaDriverTargetContext.clearInstance();
+        }
+        assertNull(LambdaDriverTargetContext.getInstance());
+    }
+
+    private static Results run(LambdaDriverTarget target) {
+        Runner.Builder builder = Runner.path("classpath:features/matrix-cell.feature")
+                .reportDir("build/karate-reports/registry-test/" + target.matrixCellId())
+                .systemProperty(LambdaDriverMatrix.CELL_PROPERTY, target.matrixCellId());
+        try (LambdaDriverTargetRegistry.Registration ignored = LambdaDriverTargetRegistry.attach(builder, target)) {
+            return builder.parallel(2);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package io.cpogx.lambdatest.support;
+
+import com.intuit.karate.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the LambdaTest grid and automation API, for running suites offline and measuring
+ * throughput without credentials.
+ * Serves the WebDriver commands Karate and {@code LambdaWebDriverInterop} use ({@code /session},
+ * {@code /execute/sync} including {@code lt:intercept:*} and {@code lambda-status}, {@code /se/file},
+ * {@code /goog/cdp/execute}, navigation, elements, screenshots) under {@link #gridUrl()} and the API
+ * ({@code /sessions/{id}}, {@code /sessions/{id}/video}, {@code /sessions/{id}/log/{type}},
+ * {@code /sessions?build_id=..}, {@code /org/concurrency}) under {@link #apiUrl()}. Sessions with the same
+ * {@code LT:Options.build} share a build id, and the build listing links a session's video once it has been quit.
+ * Every request waits {@code latencyMs} (session creation {@code sessionLatencyMs}), fails with HTTP 500 at
+ * {@code failureRate} (quits never fail) and at most {@code maxSessions} sessions are open at once; further
+ * {@code POST /session} calls queue for up to {@code queueTimeoutMs} like the real grid.
+ */
+public final class LambdaFakeGrid implements AutoCloseable {
+
+    static final String GRID_PATH = "/wd/hub";
+    static final String API_PATH = "/automation/api/v1";
+    static final String FILES_PATH = "/files";
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+    // 1x1 transparent PNG
+    private static final String SCREENSHOT = "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+    private static final byte[] VIDEO = fakeVideo();
+
+    private final long latencyMs;
+    private final long sessionLatencyMs;
+    private final double failureRate;
+    private final int maxSessions;
+    private final long queueTimeoutMs;
+    private final Semaphore slots;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicInteger sessionCounter = new AtomicInteger();
+    private final AtomicInteger buildCounter = new AtomicInteger();
+    private final Map<String, String> builds = new ConcurrentHashMap<>();
+    private final AtomicInteger elementCounter = new AtomicInteger();
+    private final AtomicInteger uploadCounter = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+    private final Map<String, FakeSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public LambdaFakeGrid(long latencyMs, long sessionLatencyMs, double failureRate, int maxSessions, long queueTimeoutMs) {
+        if (failureRate < 0d || failureRate > 1d) {
+            throw new IllegalArgumentException("failureRate must be between 0 and 1");
+        }
+        this.latencyMs = Math.max(0L, latencyMs);
+        this.sessionLatencyMs = Math.max(0L, sessionLatencyMs);
+        this.failureRate = failureRate;
+        this.maxSessions = Math.max(0, maxSessions);
+        this.queueTimeoutMs = Math.max(0L, queueTimeoutMs);
+        this.slots = this.maxSessions > 0 ? new Semaphore(this.maxSessions, true) : null;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "lambda-fake-grid-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to start fake LambdaTest grid", e);
+        }
+        this.server.createContext(GRID_PATH, this::handleGrid);
+        this.server.createContext(API_PATH, this::handleApi);
+        this.server.createContext(FILES_PATH, this::handleFile);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * Fake grid configured from {@code lt.fake.latency-ms} (0), {@code lt.fake.session-latency-ms} (0),
+     * {@code lt.fake.failure-rate} (0), {@code lt.fake.max-sessions} (0 = unlimited) and
+     * {@code lt.fake.queue-timeout-ms} (60000).
+     */
+    public static LambdaFakeGrid fromSystemProperties() {
+        return new LambdaFakeGrid(
+                readLong("lt.fake.latency-ms", 0L),
+                readLong("lt.fake.session-latency-ms", 0L),
+                readDouble("lt.fake.failure-rate", 0d),
+                (int) readLong("lt.fake.max-sessions", 0L),
+                readLong("lt.fake.queue-timeout-ms", 60_000L));
+    }
+
+    /**
+     * WebDriver URL for {@code karate.grid.url}.
+     */
+    public String gridUrl() {
+        return baseUrl() + GRID_PATH;
+    }
+
+    /**
+     * Automation API base URL for {@code lt.api.base.url}.
+     */
+    public String apiUrl() {
+        return baseUrl() + API_PATH;
+    }
+
+    public int createdSessions() {
+        return sessionCounter.get();
+    }
+
+    public int activeSessions() {
+        return active.get();
+    }
+
+    public int peakSessions() {
+        return peak.get();
+    }
+
+    /**
+     * Last {@code lambda-status} / {@code status_ind} reported per session.
+     */
+    public Map<String, String> statuses() {
+        Map<String, String> out = new TreeMap<>();
+        sessions.forEach((id, session) -> {
+            if (session.status != null) {
+                out.put(id, session.status);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Requests served per endpoint (e.g. {@code POST /session}, {@code lt:intercept:response}, {@code GET video}),
+     * plus {@code injected-failure} and {@code queue-timeout}.
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> out = new TreeMap<>();
+        counts.forEach((key, adder) -> out.put(key, adder.sum()));
+        return out;
+    }
+
+    public long count(String key) {
+        LongAdder adder = counts.get(key);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    private void handleGrid(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod().toUpperCase();
+            String path = exchange.getRequestURI().getRawPath().substring(GRID_PATH.length());
+            byte[] body = readBody(exchange);
+            if ("POST".equals(method) && "/session".equals(path)) {
+                createSession(exchange, body);
+                return;
+            }
+            if (!path.startsWith("/session/")) {
+                webDriverError(exchange, 404, "unknown command", method + " " + path);
+                return;
+            }
+            String rest = path.substring("/session/".length());
+            int slash = rest.indexOf('/');
+            String sessionId = slash < 0 ? rest : rest.substring(0, slash);
+            String command = slash < 0 ? "" : rest.substring(slash + 1);
+            FakeSession session = sessions.get(sessionId);
+            if (session == null || session.quit) {
+                webDriverError(exchange, 404, "invalid session id", "no such session: " + sessionId);
+                return;
+            }
+            if ("DELETE".equals(method) && command.isEmpty()) {
+                pause(latencyMs);
+                quit(session);
+                record("DELETE /session");
+                value(exchange, null);
+                return;
+            }
+            pause(latencyMs);
+            if (injectFailure()) {
+                webDriverError(exchange, 500, "unknown error", "injected failure");
+                return;
+            }
+            command(exchange, sessionId, session, method, command, body);
+        } catch (RuntimeException e) {
+            webDriverError(exchange, 500, "unknown error", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createSession(HttpExchange exchange, byte[] body) throws IOException {
+        record("POST /session");
+        if (slots != null && !acquireSlot()) {
+            record("queue-timeout");
+            webDriverError(exchange, 500, "session not created", "concurrency limit of " + maxSessions + " reached");
+            return;
+        }
+        boolean created = false;
+        try {
+            pause(sessionLatencyMs);
+            if (injectFailure()) {
+                webDriverError(exchange, 500, "session not created", "injected failure");
+                return;
+            }
+            Object alwaysMatch = Json.of(new String(body, StandardCharsets.UTF_8)).get("$.capabilities.alwaysMatch", null);
+            Map<String, Object> capabilities = new LinkedHashMap<>();
+            if (alwaysMatch instanceof Map<?, ?> requested) {
+                requested.forEach((key, value) -> capabilities.put(String.valueOf(key), value));
+            }
+            String sessionId = "fake-" + sessionCounter.incrementAndGet();
+            FakeSession session = new FakeSession();
+            if (capabilities.get("LT:Options") instanceof Map<?, ?> ltOptions) {
+                if (ltOptions.get("name") != null) {
+                    session.name = ltOptions.get("name").toString();
+                }
+                if (ltOptions.get("build") != null) {
+                    session.buildName = ltOptions.get("build").toString();
+                    session.buildId = builds.computeIfAbsent(session.buildName, ignored -> String.valueOf(buildCounter.incrementAndGet()));
+                }
+            }
+            sessions.put(sessionId, session);
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            created = true;
+            value(exchange, Map.of("sessionId", sessionId, "capabilities", capabilities));
+        } finally {
+            if (!created && slots != null) {
+                slots.release();
+            }
+        }
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void quit(FakeSession session) {
+        synchronized (session) {
+            if (session.quit) {
+                return;
+            }
+            session.quit = true;
+        }
+        active.decrementAndGet();
+        if (slots != null) {
+            slots.release();
+        }
+    }
+
+    private void command(HttpExchange exchange, String sessionId, FakeSession session, String method, String command, byte[] body) throws IOException {
+        Json request = body.length == 0 ? Json.object() : Json.of(new String(body, StandardCharsets.UTF_8));
+        switch (method + " " + command) {
+            case "POST execute/sync", "POST execute/async" -> {
+                String script = String.valueOf(request.get("$.script", ""));
+                if (script.startsWith("lambda-status")) {
+                    Object status = request.get("$.args[0]", null);
+                    session.status = status != null ? status.toString() : script.substring(script.indexOf('=') + 1);
+                    record("lambda-status");
+                    value(exchange, null);
+                } else if (script.startsWith("lt:intercept:")) {
+                    record(script);
+                    value(exchange, true);
+                } else {
+                    record("POST execute/sync");
+                    value(exchange, script.contains("location.href") ? session.url : null);
+                }
+            }
+            case "POST se/file" -> {
+                record("POST se/file");
+                value(exchange, "/tmp/lambdatest/" + sessionId + "/upload-" + uploadCounter.incrementAndGet());
+            }
+            case "POST goog/cdp/execute" -> {
+                record("POST goog/cdp/execute");
+                value(exchange, Map.of());
+            }
+            case "POST url" -> {
+                session.url = String.valueOf(request.get("$.url", "about:blank"));
+                record("POST url");
+                value(exchange, null);
+            }
+            case "GET url" -> value(exchange, session.url);
+            case "GET title" -> value(exchange, "LambdaTest fake grid");
+            case "GET screenshot" -> {
+                record("GET screenshot");
+                value(exchange, SCREENSHOT);
+            }
+            case "POST element" -> value(exchange, Map.of(ELEMENT_KEY, "element-" + elementCounter.incrementAndGet()));
+            case "POST elements" -> value(exchange, List.of(Map.of(ELEMENT_KEY, "element-" + elementCounter.incrementAndGet())));
+            case "GET window/handles" -> value(exchange, List.of("window-1"));
+            case "GET window/rect" -> value(exchange, Map.of("x", 0, "y", 0, "width", 1280, "height", 800));
+            default -> {
+                record("other");
+                value(exchange, null);
+            }
+        }
+    }
+
+    private void handleApi(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod().toUpperCase();
+            String path = exchange.getRequestURI().getRawPath().substring(API_PATH.length());
+            byte[] body = readBody(exchange);
+            if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+                apiError(exchange, 401, "authentication required");
+                return;
+            }
+            pause(latencyMs);
+            if (injectFailure()) {
+                apiError(exchange, 500, "injected failure");
+                return;
+            }
+            if ("GET".equals(method) && "/org/concurrency".equals(path)) {
+                record("GET concurrency");
+                respond(exchange, 200, JSON, Json.object().set("data", Map.of("max_concurrency", maxSessions)).toString());
+                return;
+            }
+            String[] parts = path.split("/");
+            if (parts.length == 2 && "sessions".equals(parts[1]) && "GET".equals(method)) {
+                record("GET sessions");
+                listSessions(exchange, exchange.getRequestURI().getRawQuery());
+                return;
+            }
+            FakeSession session = parts.length >= 3 && "sessions".equals(parts[1]) ? sessions.get(parts[2]) : null;
+            if (session == null) {
+                apiError(exchange, 404, "not found: " + path);
+                return;
+            }
+            String sessionId = parts[2];
+            if (parts.length == 3 && "GET".equals(method)) {
+                record("GET session");
+                Map<String, Object> data = sessionData(sessionId, session);
+                data.put("video_url", baseUrl() + FILES_PATH + "/" + sessionId + ".mp4");
+                respond(exchange, 200, JSON, Json.object().set("status", "success").set("data", data).toString());
+            } else if (parts.length == 3 && "PATCH".equals(method)) {
+                record("PATCH session");
+                Json fields = Json.of(new String(body, StandardCharsets.UTF_8));
+                Object status = fields.get("$.status_ind", null);
+                if (status != null) {
+                    session.status = status.toString();
+                }
+                Object name = fields.get("$.name", null);
+                if (name != null) {
+                    session.name = name.toString();
+                }
+                respond(exchange, 200, JSON, "{\"status\":\"success\",\"message\":\"Session updated\"}");
+            } else if (parts.length == 4 && "video".equals(parts[3]) && "GET".equals(method)) {
+                record("GET video");
+                respond(exchange, 200, JSON, Json.object().set("status", "success")
+                        .set("url", baseUrl() + FILES_PATH + "/" + sessionId + ".mp4").toString());
+            } else if (parts.length == 5 && "log".equals(parts[3]) && "GET".equals(method)) {
+                record("GET log");
+                respond(exchange, 200, JSON, Json.object().set("status", "success")
+                        .set("data", List.of(Map.of("type", parts[4], "session_id", sessionId))).toString());
+            } else {
+                apiError(exchange, 404, "not found: " + method + " " + path);
+            }
+        } catch (RuntimeException e) {
+            apiError(exchange, 500, String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * {@code GET /sessions?build_id=..&limit=..&offset=..}, oldest session first.
+     */
+    private void listSessions(HttpExchange exchange, String query) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        String buildId = params.get("build_id");
+        int limit = (int) Math.max(1L, parseLong(params.get("limit"), 10L));
+        int offset = (int) Math.max(0L, parseLong(params.get("offset"), 0L));
+        List<String> ids = new ArrayList<>();
+        sessions.forEach((id, session) -> {
+            if (buildId == null || buildId.equals(session.buildId)) {
+                ids.add(id);
+            }
+        });
+        ids.sort(Comparator.comparingInt(id -> Integer.parseInt(id.substring("fake-".length()))));
+        List<Map<String, Object>> page = new ArrayList<>();
+        for (String id : ids.subList(Math.min(offset, ids.size()), Math.min(offset + limit, ids.size()))) {
+            FakeSession session = sessions.get(id);
+            Map<String, Object> data = sessionData(id, session);
+            if (session.quit) {
+                data.put("video_url", baseUrl() + FILES_PATH + "/" + id + ".mp4");
+            }
+            page.add(data);
+        }
+        Map<String, Object> resultSet = new LinkedHashMap<>();
+        resultSet.put("count", page.size());
+        resultSet.put("limit", limit);
+        resultSet.put("offset", offset);
+        resultSet.put("total", ids.size());
+        respond(exchange, 200, JSON, Json.object().set("data", page).set("meta", Map.of("result_set", resultSet)).toString());
+    }
+
+    private static Map<String, Object> sessionData(String sessionId, FakeSession session) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("session_id", sessionId);
+        data.put("name", session.name);
+        data.put("build_id", session.buildId);
+        data.put("build_name", session.buildName);
+        data.put("status_ind", session.status == null ? (session.quit ? "completed" : "running") : session.status);
+        return data;
+    }
+
+    private void handleFile(HttpExchange exchange) throws IOException {
+        try {
+            readBody(exchange);
+            record("GET file");
+            exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+            exchange.sendResponseHeaders(200, VIDEO.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(VIDEO);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean injectFailure() {
+        if (failureRate > 0d && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            record("injected-failure");
+            return true;
+        }
+        return false;
+    }
+
+    private void record(String key) {
+        counts.computeIfAbsent(key, ignored -> new LongAdder()).increment();
+    }
+
+    private static void value(HttpExchange exchange, Object value) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("value", value);
+        respond(exchange, 200, JSON, Json.of(body).toString());
+    }
+
+    private static void webDriverError(HttpExchange exchange, int status, String error, String message) throws IOException {
+        respond(exchange, status, JSON, Json.object().set("value", Map.of("error", error, "message", message)).toString());
+    }
+
+    private static void apiError(HttpExchange exchange, int status, String message) throws IOException {
+        respond(exchange, status, JSON, Json.object().set("status", "fail").set("message", message).toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] fakeVideo() {
+        byte[] video = new byte[4096];
+        byte[] header = {0x00, 0x00, 0x00, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'};
+        System.arraycopy(header, 0, video, 0, header.length);
+        for (int i = header.length; i < video.length; i++) {
+            video[i] = (byte) (i % 251);
+        }
+        return video;
+    }
+
+    private static long readLong(String property, long fallback) {
+        return parseLong(System.getProperty(property), fallback);
+    }
+
+    private static long parseLong(String raw, long fallback) {
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static double readDouble(String property, double fallback) {
+        String raw = System.getProperty(property);
+        if (raw == null || raw.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(raw.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final class FakeSession {
+        volatile String name;
+        volatile String buildId;
+        volatile String buildName;
+        volatile String status;
+        volatile String url = "about:blank";
+        volatile boolean quit;
+    }
+}
@@ -0,0 +1,74 @@
+package io.cpogx.lambdatest.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LambdaFakeGridTest {
+
+    private static final String SESSION = "{\"capabilities\":{\"alwaysMatch\":{\"browserName\":\"Chrome\",\"LT:Options\":{\"name\":\"one\"}}}}";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void queuesSessionsBeyondTheConcurrencyLimitUntilOneQuits() throws Exception {
+        try (LambdaFakeGrid grid = new LambdaFakeGrid(0L, 0L, 0d, 1, 100L)) {
+            HttpResponse<String> first = send("POST", grid.gridUrl() + "/session", SESSION, null);
+            assertEquals(200, first.statusCode());
+            assertTrue(first.body().contains("\"sessionId\":\"fake-1\""), first.body());
+
+            HttpResponse<String> queued = send("POST", grid.gridUrl() + "/session", SESSION, null);
+            assertEquals(500, queued.statusCode());
+            assertTrue(queued.body().contains("concurrency limit of 1 reached"), queued.body());
+
+            send("POST", grid.gridUrl() + "/session/fake-1/execute/sync", "{\"script\":\"lambda-status\",\"args\":[\"passed\"]}", null);
+            assertEquals(200, send("DELETE", grid.gridUrl() + "/session/fake-1", null, null).statusCode());
+            assertEquals(404, send("GET", grid.gridUrl() + "/session/fake-1/title", null, null).statusCode());
+            assertEquals(200, send("POST", grid.gridUrl() + "/session", SESSION, null).statusCode());
+
+            assertEquals(Map.of("fake-1", "passed"), grid.statuses());
+            assertEquals(1, grid.count("queue-timeout"));
+            assertEquals(1, grid.peakSessions());
+        }
+    }
+
+    @Test
+    void apiRequiresAuthAndServesSessionVideo() throws Exception {
+        try (LambdaFakeGrid grid = new LambdaFakeGrid(0L, 0L, 0d, 0, 0L)) {
+            send("POST", grid.gridUrl() + "/session", SESSION, null);
+            assertEquals(401, send("GET", grid.apiUrl() + "/sessions/fake-1", null, null).statusCode());
+            assertEquals(404, send("GET", grid.apiUrl() + "/sessions/missing", null, "Basic eDp5").statusCode());
+
+            HttpResponse<String> video = send("GET", grid.apiUrl() + "/sessions/fake-1/video", null, "Basic eDp5");
+            String url = video.body().replaceAll(".*\"url\":\"([^\"]+)\".*", "$1");
+            HttpResponse<byte[]> file = client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals("ftyp", new String(file.body(), 4, 4));
+
+            assertEquals(200, send("PATCH", grid.apiUrl() + "/sessions/fake-1", "{\"status_ind\":\"failed\"}", "Basic eDp5").statusCode());
+            assertEquals("failed", grid.statuses().get("fake-1"));
+        }
+    }
+
+    @Test
+    void failureRateMustBeAFraction() {
+        assertThrows(IllegalArgumentException.class, () -> new LambdaFakeGrid(0L, 0L, 1.5d, 0, 0L));
+    }
+
+    private HttpResponse<String> send(String method, String url, String body, String authorization) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,19 @@
+Feature: Load scenarios against the fake LambdaTest grid
+
+Background:
+  * def Interop = Java.type('io.cpogx.lambdatest.interop.LambdaWebDriverInterop')
+  * def FileUtil = Java.type('io.cpogx.lambdatest.support.FileUtil')
+  * configure driverTarget = Java.type('io.cpogx.lambdatest.spring.LambdaDriverTargetRegistry').current()
+
+@load
+Scenario Outline: Load scenario <n>
+  * driver 'https://example.test/load/' + n
+  * def ack = Interop.intercept(driver, { url: 'https://example.test/api/' + n, response: { status: 200, body: { n: '#(n)' } } })
+  * match ack == true
+  * Interop.cdpExecute(driver, 'Network.enable', {})
+  * def uploadPath = FileUtil.writeString('build/lambda-load/upload-' + n + '.txt', 'load ' + n)
+  * match Interop.uploadFile(driver, uploadPath) contains 'upload-'
+  * screenshot()
+
+  Examples:
+    | karate.repeat(karate.properties['lt.load.scenarios'] * 1, function(i){ return { n: i } }) |
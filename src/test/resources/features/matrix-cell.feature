@@ -0,0 +1,8 @@
+Feature: Matrix cell wiring without a remote browser
+
+Scenario: Each cell suite resolves its own target
+  * def LambdaDriverTargetRegistry = Java.type('io.cpogx.lambdatest.spring.LambdaDriverTargetRegistry')
+  * def cell = karate.properties['lt.matrix.cell']
+  * def target = LambdaDriverTargetRegistry.current()
+  * match target.matrixCellId() == cell
+  * match karate.properties['lt.tags'] contains cell